@@ -0,0 +1,40 @@
+package ash.org.benchmarks;
+
+import ash.org.crawler.HTMLParser;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+//Serves one saved page from memory for every url, so scraper benchmarks measure parsing and not the network
+public class CorpusHTMLParser extends HTMLParser {
+
+    private final String html;
+
+    public CorpusHTMLParser(String html) {
+        super(0);
+        this.html = html;
+    }
+
+    public static String load(String page) throws IOException {
+        try (InputStream in = CorpusHTMLParser.class.getResourceAsStream("/corpus/" + page)) {
+            if(in == null){
+                throw new IOException("No corpus page " + page);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Override
+    public Document parse(URL url) {
+        return Jsoup.parse(html, url.toString());
+    }
+
+    @Override
+    public String fetch(URL url) {
+        return html;
+    }
+}
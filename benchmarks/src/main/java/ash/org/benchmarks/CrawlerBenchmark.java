@@ -0,0 +1,58 @@
+package ash.org.benchmarks;
+
+import ash.org.crawler.Crawler;
+import ash.org.crawler.ExtractionMode;
+import ash.org.crawler.HTMLScraper;
+import ash.org.domain.Site;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+//Whole crawlDomain runs over an in-process synthetic site, so only crawler overhead is measured
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class CrawlerBenchmark {
+
+    @Param({"1000", "10000"})
+    private int pages;
+
+    @Param({"8"})
+    private int fanout;
+
+    @Param({"1", "8"})
+    private int workers;
+
+    @Param({"STREAMING"})
+    private ExtractionMode mode;
+
+    private Crawler crawler;
+    private URL homePage;
+
+    @Setup
+    public void setup() throws IOException {
+        HTMLScraper scraper = new HTMLScraper(new SyntheticSiteHTMLParser(pages, fanout), mode);
+        crawler = new Crawler(scraper, workers);
+        homePage = new URL("http://www.synthetic-site.com/");
+    }
+
+    @Benchmark
+    public Site crawlDomain() throws IOException {
+        return crawler.crawlDomain(homePage);
+    }
+}
@@ -0,0 +1,78 @@
+package ash.org.benchmarks;
+
+import ash.org.crawler.Crawler;
+import ash.org.crawler.FetchMode;
+import ash.org.crawler.HTMLScraper;
+import ash.org.domain.Site;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+//Whole crawls of a slow local site: sequential crawler vs platform and virtual thread fetch pools
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FetchModeBenchmark {
+
+    public enum Engine {
+        SEQUENTIAL, PLATFORM_THREADS, VIRTUAL_THREADS
+    }
+
+    @Param({"200"})
+    private int pages;
+
+    @Param({"20"})
+    private long latencyMillis;
+
+    @Param({"SEQUENTIAL", "PLATFORM_THREADS", "VIRTUAL_THREADS"})
+    private Engine engine;
+
+    private StubHttpServer server;
+    private URL homePage;
+    private Crawler crawler;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        server = new StubHttpServer(pages, latencyMillis);
+        homePage = server.getHomePage();
+
+        HTMLScraper scraper = new HTMLScraper(5000);
+        switch (engine) {
+            case SEQUENTIAL:
+                crawler = new Crawler(scraper, 1);
+                break;
+            case PLATFORM_THREADS:
+                crawler = new Crawler(scraper, 64);
+                break;
+            default:
+                crawler = Crawler.builder(scraper).workers(1024).fetchMode(FetchMode.VIRTUAL_THREADS).maxFetchesPerHost(64).build();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        server.close();
+    }
+
+    @Benchmark
+    public Site crawl() throws IOException {
+        return crawler.crawlDomain(homePage);
+    }
+}
@@ -0,0 +1,94 @@
+package ash.org.benchmarks;
+
+//Deterministic synthetic html pages for the benchmarks
+public final class FixturePages {
+
+    public enum Size {
+        SMALL(10, 5), MEDIUM(500, 50), HUGE(20000, 2000);
+
+        private final int links;
+        private final int assets;
+
+        Size(int links, int assets) {
+            this.links = links;
+            this.assets = assets;
+        }
+
+        public String page() {
+            return FixturePages.page(links, assets);
+        }
+    }
+
+    private FixturePages() {
+    }
+
+    public static String page(int links, int assets) {
+        StringBuilder html = new StringBuilder(links * 96 + assets * 64 + 512);
+        html.append("<!DOCTYPE html><html><head><title>Fixture</title>")
+                .append("<link rel=\"stylesheet\" type=\"text/css\" href=\"/static/site.css\">")
+                .append("<script src=\"/static/site.js\"></script>")
+                .append("<script>var nav = '<a href=\"/in-script\">';</script>")
+                .append("</head><body><div class=\"content\">");
+
+        for (int x = 0; x < links; x++) {
+            html.append("<p>Paragraph ").append(x).append(" of the fixture page ");
+            switch (x % 5) {
+                case 0:
+                    html.append("<a href=\"/section/").append(x % 50).append("/page-").append(x).append("\">relative</a>");
+                    break;
+                case 1:
+                    html.append("<a href=\"https://www.google.co.uk/section/").append(x % 50).append("?page=").append(x).append("\">absolute</a>");
+                    break;
+                case 2:
+                    html.append("<a href=\"/section/").append(x % 50).append("#anchor-").append(x).append("\">anchored</a>");
+                    break;
+                case 3:
+                    html.append("<a href=\"https://external-").append(x % 7).append(".example.com/\">external</a>");
+                    break;
+                default:
+                    html.append("<a href=\"/\">home</a>");
+            }
+            html.append("</p>\n");
+            if(assets > 0 && x % Math.max(1, links / assets) == 0){
+                html.append("<img src=\"/images/figure-").append(x).append(".png\" alt=\"figure\">\n");
+            }
+        }
+
+        return html.append("</div></body></html>").toString();
+    }
+
+    public static String[] hrefs(int count) {
+        String[] hrefs = new String[count];
+        for (int x = 0; x < count; x++) {
+            switch (x % 9) {
+                case 0:
+                    hrefs[x] = "/section/" + (x % 50) + "/page-" + x;
+                    break;
+                case 1:
+                    hrefs[x] = "https://www.google.co.uk/section/" + (x % 50) + "?page=" + x;
+                    break;
+                case 2:
+                    hrefs[x] = "http://www.google.co.uk/section/" + (x % 50) + "#anchor-" + x;
+                    break;
+                case 3:
+                    hrefs[x] = "https://external-" + (x % 7) + ".example.com/path";
+                    break;
+                case 4:
+                    hrefs[x] = "/section/" + (x % 50) + "/page-" + x + "?utm_source=nav#top";
+                    break;
+                case 5:
+                    hrefs[x] = "../section/" + (x % 50) + "/./page-" + x;
+                    break;
+                case 6:
+                    hrefs[x] = "//WWW.Google.co.uk/section/" + (x % 50);
+                    break;
+                case 7:
+                    hrefs[x] = "page-" + x;
+                    break;
+                default:
+                    hrefs[x] = "/";
+            }
+        }
+        return hrefs;
+    }
+}
@@ -0,0 +1,66 @@
+package ash.org.benchmarks;
+
+import ash.org.crawler.LinkNormalizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+//The href to crawlable link resolution on its own, over a mix of relative, absolute, external and decorated
+//hrefs, against resolving them with java.net.URI as a baseline
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LinkNormalizationBenchmark {
+
+    @Param({"100", "10000"})
+    private int hrefCount;
+
+    private LinkNormalizer linkNormalizer;
+    private String[] hrefs;
+    private URL url;
+
+    @Setup
+    public void setup() throws IOException {
+        linkNormalizer = new LinkNormalizer();
+        hrefs = FixturePages.hrefs(hrefCount);
+        url = new URL("https://www.google.co.uk/section/1/page-1");
+    }
+
+    @Benchmark
+    public Set<String> getLinks() {
+        return linkNormalizer.getLinks(url, Arrays.stream(hrefs));
+    }
+
+    @Benchmark
+    public Set<String> uriResolve() throws URISyntaxException {
+        URI base = url.toURI();
+        Set<String> links = new HashSet<>();
+        for (String href : hrefs) {
+            URI resolved = base.resolve(new URI(href)).normalize();
+            if(base.getHost().equalsIgnoreCase(resolved.getHost())){
+                links.add(resolved.getRawPath());
+            }
+        }
+        return links;
+    }
+}
@@ -0,0 +1,50 @@
+package ash.org.benchmarks;
+
+import ash.org.crawler.ExtractionMode;
+import ash.org.crawler.HTMLScraper;
+import ash.org.domain.PageDetails;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+//HTMLScraper.getPageAssets on small, medium and huge fixture pages
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScraperBenchmark {
+
+    @Param({"SMALL", "MEDIUM", "HUGE"})
+    private FixturePages.Size size;
+
+    @Param({"DOM", "STREAMING"})
+    private ExtractionMode mode;
+
+    private HTMLScraper scraper;
+    private URL url;
+
+    @Setup
+    public void setup() throws IOException {
+        scraper = new HTMLScraper(new CorpusHTMLParser(size.page()), mode);
+        url = new URL("https://www.google.co.uk/");
+    }
+
+    @Benchmark
+    public PageDetails getPageAssets() throws IOException {
+        return scraper.getPageAssets(url);
+    }
+}
@@ -0,0 +1,77 @@
+package ash.org.benchmarks;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+//Local synthetic site: the home page links to every page, each page links to its neighbours
+public class StubHttpServer implements AutoCloseable {
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final int pages;
+    private final long latencyMillis;
+
+    public StubHttpServer(int pages, long latencyMillis) throws IOException {
+        this.pages = pages;
+        this.latencyMillis = latencyMillis;
+        this.executor = Executors.newCachedThreadPool();
+        this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 1024);
+        this.server.createContext("/", this::handle);
+        this.server.setExecutor(executor);
+        this.server.start();
+    }
+
+    public URL getHomePage() throws IOException {
+        return new URL("http://localhost:" + server.getAddress().getPort() + "/");
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if(latencyMillis > 0){
+                Thread.sleep(latencyMillis);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        byte[] body = page(exchange.getRequestURI().getPath()).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "text/html; charset=utf-8");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private String page(String path) {
+        StringBuilder html = new StringBuilder("<html><head><link type=\"text/css\" href=\"/site.css\"></head><body>");
+        if("/".equals(path)){
+            for(int x = 0; x < pages; x++){
+                link(html, x);
+            }
+        } else if(path.startsWith("/page")){
+            int page = Integer.parseInt(path.substring("/page".length()));
+            link(html, (page + 1) % pages);
+            link(html, (page + pages - 1) % pages);
+            html.append("<a href=\"/\">home</a>");
+        }
+        return html.append("<img src=\"/logo.png\"><script src=\"/site.js\"></script></body></html>").toString();
+    }
+
+    private void link(StringBuilder html, int page) {
+        html.append("<a href=\"/page").append(page).append("\">page ").append(page).append("</a>");
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
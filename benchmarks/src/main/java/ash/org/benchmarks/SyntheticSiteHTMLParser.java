@@ -0,0 +1,70 @@
+package ash.org.benchmarks;
+
+import ash.org.crawler.HTMLParser;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+
+import java.io.IOException;
+import java.net.URL;
+
+//In-process fake site of a configurable number of pages. Page i links to its children in a tree of the
+//given fanout, its parent and a shared nav bar, so every page is reachable from the home page.
+public class SyntheticSiteHTMLParser extends HTMLParser {
+
+    private static final int NAV_LINKS = 10;
+    private static final String PAGE_PREFIX = "/page";
+
+    private final String[] pages;
+
+    public SyntheticSiteHTMLParser(int pageCount, int fanout) {
+        super(0);
+        pages = new String[pageCount];
+        for (int page = 0; page < pageCount; page++) {
+            pages[page] = render(page, pageCount, fanout);
+        }
+    }
+
+    @Override
+    public Document parse(URL url) throws IOException {
+        return Jsoup.parse(fetch(url), url.toString());
+    }
+
+    @Override
+    public String fetch(URL url) throws IOException {
+        String path = url.getPath();
+        if(path.isEmpty() || "/".equals(path)){
+            return pages[0];
+        }
+        if(path.startsWith(PAGE_PREFIX)){
+            int page = Integer.parseInt(path.substring(PAGE_PREFIX.length()));
+            if(page >= 0 && page < pages.length){
+                return pages[page];
+            }
+        }
+        throw new IOException("404 " + url);
+    }
+
+    private static String render(int page, int pageCount, int fanout) {
+        StringBuilder html = new StringBuilder("<html><head><title>Page ").append(page)
+                .append("</title><link type=\"text/css\" href=\"/site.css\"><script src=\"/site.js\"></script></head><body><nav>");
+        for (int nav = 1; nav <= NAV_LINKS && nav < pageCount; nav++) {
+            link(html, nav);
+        }
+        html.append("</nav><main>");
+        if(page > 0){
+            link(html, (page - 1) / fanout);
+        }
+        for (int child = page * fanout + 1; child <= page * fanout + fanout && child < pageCount; child++) {
+            link(html, child);
+        }
+        return html.append("<img src=\"/img/").append(page).append(".png\"></main></body></html>").toString();
+    }
+
+    private static void link(StringBuilder html, int page) {
+        if(page == 0){
+            html.append("<a href=\"/\">home</a>");
+        } else {
+            html.append("<a href=\"").append(PAGE_PREFIX).append(page).append("\">page ").append(page).append("</a>");
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package ash.org;
+
+import ash.org.crawler.AssetInventory;
+import ash.org.crawler.BinaryPageWriter;
+import ash.org.crawler.CrawlBudget;
+import ash.org.crawler.CrawlMetrics;
+import ash.org.crawler.DuplicatePolicy;
+import ash.org.crawler.ExtractionMode;
+import ash.org.crawler.Fetcher;
+import ash.org.crawler.HTMLParser;
+import ash.org.crawler.HTMLScraper;
+import ash.org.crawler.HttpClientFetcher;
+import ash.org.crawler.LinkGraphCollector;
+import ash.org.crawler.MetricsReporter;
+import ash.org.crawler.MultiSiteCrawler;
+import ash.org.crawler.NdjsonPageWriter;
+import ash.org.crawler.PageCache;
+import ash.org.crawler.PageWriter;
+import ash.org.crawler.PolitenessScheduler;
+import ash.org.crawler.SiteResult;
+import ash.org.crawler.Sitemaps;
+import ash.org.crawler.UrlScorer;
+import ash.org.domain.Page;
+
+import javax.management.JMException;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+public class App {
+
+    //Set to a file path to recrawl incrementally, reusing details of pages that have not changed
+    public static final String PAGE_CACHE_PROPERTY = "crawler.pageCache";
+    public static final long METRICS_REPORT_MILLIS = 30_000;
+    //ndjson (the default) or binary streams pages to stdout for PageReader, text prints them as before
+    public static final String OUTPUT_PROPERTY = "crawler.output";
+
+    //Set to a directory to write each site's pages to a file of its own rather than all of them to stdout
+    public static final String OUTPUT_DIRECTORY_PROPERTY = "crawler.outputDirectory";
+    //Per site budget, unlimited unless set
+    public static final String MAX_PAGES_PROPERTY = "crawler.maxPages";
+    public static final String MAX_SECONDS_PROPERTY = "crawler.maxSeconds";
+    public static final String MAX_DEPTH_PROPERTY = "crawler.maxDepth";
+    public static final String MAX_BYTES_PROPERTY = "crawler.maxBytes";
+    //Set to a directory to also save each site's link graph there, for LinkGraph.read
+    public static final String LINK_GRAPH_DIRECTORY_PROPERTY = "crawler.linkGraphDirectory";
+    //off (the default), mark or skip_links, see DuplicatePolicy
+    public static final String DUPLICATES_PROPERTY = "crawler.duplicates";
+    //breadth (the default) crawls each site level by level, links crawls shallow and often linked pages first,
+    //sitemap crawls shallow pages and those the site's sitemaps rank highest first, with crawler.sitemaps set
+    public static final String PRIORITY_PROPERTY = "crawler.priority";
+    //Set to true to start each site's crawl from the pages its sitemaps list as well as its home page
+    public static final String SITEMAPS_PROPERTY = "crawler.sitemaps";
+    //Set to true to check every css, image and script url a site uses once its crawl is done, printing the broken ones
+    public static final String CHECK_ASSETS_PROPERTY = "crawler.checkAssets";
+
+    //Every url given is crawled at once, sharing one pool of fetch workers
+    public static void main(String[] args) throws IOException {
+        String pageCacheFile = System.getProperty(PAGE_CACHE_PROPERTY);
+        PageCache pageCache = pageCacheFile == null ? null : PageCache.open(Paths.get(pageCacheFile));
+
+        HttpClientFetcher fetcher = new HttpClientFetcher(5000, 5000);
+        HTMLScraper scraper = new HTMLScraper(new HTMLParser(fetcher), ExtractionMode.DOM, pageCache);
+        List<URL> sites = new ArrayList<>();
+        for (String arg : args.length > 0 ? args : new String[]{"http://tomblomfield.com/"}) {
+            sites.add(new URL(arg));
+        }
+        String format = System.getProperty(OUTPUT_PROPERTY, "ndjson");
+        String outputDirectory = System.getProperty(OUTPUT_DIRECTORY_PROPERTY);
+        String linkGraphDirectory = System.getProperty(LINK_GRAPH_DIRECTORY_PROPERTY);
+        DuplicatePolicy duplicatePolicy = DuplicatePolicy.valueOf(System.getProperty(DUPLICATES_PROPERTY, "off").toUpperCase(Locale.ROOT));
+        Function<URL, UrlScorer> scorers = scorers(System.getProperty(PRIORITY_PROPERTY, "breadth"));
+        Sitemaps sitemaps = Boolean.getBoolean(SITEMAPS_PROPERTY) ? new Sitemaps(fetcher) : null;
+
+        registerMetrics();
+        try (MetricsReporter reporter = new MetricsReporter(CrawlMetrics.global(), METRICS_REPORT_MILLIS);
+             MultiSiteCrawler crawler = MultiSiteCrawler.builder(scraper).scheduler(new PolitenessScheduler(fetcher))
+                     .duplicatePolicy(duplicatePolicy).sitemaps(sitemaps).build();
+             PageWriter stdout = newOutput(format, new FilterOutputStream(System.out) {
+                 //Writers close their stream when done, which must not close stdout
+                 @Override
+                 public void close() throws IOException {
+                     flush();
+                 }
+             })) {
+            MultiSiteCrawler.SiteOutput output = outputDirectory == null
+                    ? site -> shared(stdout)
+                    : site -> newOutput(format, Files.newOutputStream(Paths.get(outputDirectory).resolve(fileName(site, format))));
+            MultiSiteCrawler.SiteOutput graphed = linkGraphDirectory == null
+                    ? output
+                    : site -> graphed(output.open(site), site, Paths.get(linkGraphDirectory).resolve(fileName(site, "graph")));
+            MultiSiteCrawler.SiteOutput checked = Boolean.getBoolean(CHECK_ASSETS_PROPERTY)
+                    ? site -> checked(graphed.open(site), site, fetcher)
+                    : graphed;
+            checkResults(crawler.crawl(sites, budget(), checked, scorers));
+        } finally {
+            if(pageCache != null){
+                pageCache.save();
+            }
+        }
+    }
+
+    private static CrawlBudget budget() {
+        Integer maxPages = Integer.getInteger(MAX_PAGES_PROPERTY);
+        Long maxSeconds = Long.getLong(MAX_SECONDS_PROPERTY);
+        Integer maxDepth = Integer.getInteger(MAX_DEPTH_PROPERTY);
+        Long maxBytes = Long.getLong(MAX_BYTES_PROPERTY);
+        CrawlBudget budget = new CrawlBudget(maxPages == null ? Integer.MAX_VALUE : maxPages,
+                maxSeconds == null ? Long.MAX_VALUE : TimeUnit.SECONDS.toMillis(maxSeconds));
+        if(maxDepth != null){
+            budget = budget.withMaxDepth(maxDepth);
+        }
+        return maxBytes == null ? budget : budget.withMaxBytes(maxBytes);
+    }
+
+    private static Function<URL, UrlScorer> scorers(String priority) {
+        switch (priority) {
+            case "breadth":
+                return site -> UrlScorer.BREADTH_FIRST;
+            case "links":
+                return site -> UrlScorer.byDepth().plus(UrlScorer.byInLinks());
+            case "sitemap":
+                //Each site's scorer keeps the priorities its own sitemaps give
+                return site -> UrlScorer.byDepth().plus(UrlScorer.bySitemapPriority());
+            default:
+                throw new IllegalArgumentException("Unknown crawl priority " + priority + ", expected breadth, links or sitemap");
+        }
+    }
+
+    //Every site gets to finish before a failure is reported
+    private static void checkResults(List<SiteResult> results) throws IOException {
+        List<SiteResult> failed = results.stream().filter(SiteResult::isFailed).collect(Collectors.toList());
+        if(!failed.isEmpty()){
+            throw new IOException(failed.size() + " of " + results.size() + " sites failed, first " + failed.get(0).getUrl(),
+                    failed.get(0).getError());
+        }
+    }
+
+    private static void registerMetrics() {
+        try {
+            CrawlMetrics.global().registerMBean("App");
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not register crawl metrics with JMX", e);
+        }
+    }
+
+    private static PageWriter newOutput(String format, OutputStream out) throws IOException {
+        switch (format) {
+            case "ndjson":
+                return new NdjsonPageWriter(out);
+            case "binary":
+                return new BinaryPageWriter(out);
+            case "text":
+                PrintStream printer = new PrintStream(out, false, "UTF-8");
+                return new PageWriter() {
+                    @Override
+                    public void write(Page page) {
+                        printer.println(page);
+                    }
+
+                    @Override
+                    public void close() {
+                        printer.close();
+                    }
+                };
+            default:
+                throw new IllegalArgumentException("Unknown output format " + format + ", expected ndjson, binary or text");
+        }
+    }
+
+    //Sites finish pages on their own threads, so writes to the one stream are serialised and only the run closes it
+    private static PageWriter shared(PageWriter output) {
+        return new PageWriter() {
+            @Override
+            public void write(Page page) throws IOException {
+                synchronized (output) {
+                    output.write(page);
+                }
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    //Passes pages on while building the site's link graph, saved once the site is done
+    private static PageWriter graphed(PageWriter output, URL site, Path file) {
+        LinkGraphCollector collector = new LinkGraphCollector(site);
+        return new PageWriter() {
+            @Override
+            public void write(Page page) throws IOException {
+                collector.onPage(page);
+                output.write(page);
+            }
+
+            @Override
+            public void close() throws IOException {
+                try (OutputStream out = Files.newOutputStream(file)) {
+                    collector.toGraph().write(out);
+                } finally {
+                    output.close();
+                }
+            }
+        };
+    }
+
+    //Passes pages on while taking an inventory of their assets, checked once the site is done. Broken assets go
+    //to stderr, leaving stdout to the pages.
+    private static PageWriter checked(PageWriter output, URL site, Fetcher fetcher) {
+        AssetInventory inventory = new AssetInventory();
+        return new PageWriter() {
+            @Override
+            public void write(Page page) throws IOException {
+                inventory.onPage(page);
+                output.write(page);
+            }
+
+            @Override
+            public void close() throws IOException {
+                try {
+                    inventory.check(fetcher);
+                    for (AssetInventory.Asset asset : inventory.getBroken()) {
+                        AssetInventory.AssetCheck check = asset.getCheck();
+                        System.err.println("site=" + site + " broken asset=" + asset.getKey() + " pages=" + asset.getPageCount()
+                                + (check.getError() == null ? " status=" + check.getStatusCode() : " error=" + check.getError()));
+                    }
+                } finally {
+                    output.close();
+                }
+            }
+        };
+    }
+
+    private static String fileName(URL site, String format) {
+        String extension = "binary".equals(format) ? ".bin" : "text".equals(format) ? ".txt" : "graph".equals(format) ? ".graph" : ".ndjson";
+        return (site.getPort() < 0 ? site.getHost() : site.getHost() + "_" + site.getPort()) + extension;
+    }
+}
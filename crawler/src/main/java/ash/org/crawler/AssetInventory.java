@@ -0,0 +1,327 @@
+package ash.org.crawler;
+
+import ash.org.domain.Page;
+import ash.org.domain.UrlKey;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+//Every distinct css, image and script url a crawl's pages use, with the pages using each. Asset srcs are
+//resolved against their page, so a stylesheet every page names in its own way is one entry, on whichever
+//host it lives. check then sends each asset one HEAD however many pages share it, from a pool of workers.
+//Like every PageListener it is called one page at a time and is not safe to share between crawls. Nothing
+//is synchronised, so check and the getters must only be called once the crawl adding pages has finished.
+public class AssetInventory implements PageListener {
+
+    public static final int DEFAULT_CHECK_WORKERS = 16;
+    public static final int DEFAULT_CHECKS_PER_HOST = 4;
+
+    private final Map<UrlKey, Integer> assetIds = new HashMap<>();
+    private final List<Asset> assets = new ArrayList<>();
+    private final Map<UrlKey, int[]> pageAssets = new HashMap<>();
+    private final List<UrlKey> pages = new ArrayList<>();
+
+    @Override
+    public void onPage(Page page) {
+        if(pageAssets.containsKey(page.getKey())){
+            return;
+        }
+        int pageId = pages.size();
+        pages.add(page.getKey());
+
+        int[] ids = new int[page.getPageDetails().getAssets().size()];
+        int count = 0;
+        for (String src : page.getPageDetails().getAssets()) {
+            URL url = resolve(page.getUrl(), src);
+            if(url == null){
+                continue;
+            }
+            Asset asset = asset(UrlKey.of(url));
+            //Two srcs can name the same asset, the page is counted once
+            if(asset.lastPage() != pageId){
+                asset.addPage(pageId);
+                ids[count++] = asset.id;
+            }
+        }
+        pageAssets.put(page.getKey(), Arrays.copyOf(ids, count));
+    }
+
+    //Only http and https assets are inventoried, data: urls and the like have nothing to check
+    private static URL resolve(URL page, String src) {
+        String trimmed = src.trim();
+        if(trimmed.isEmpty()){
+            return null;
+        }
+        try {
+            URL url = new URL(page, trimmed);
+            String protocol = url.getProtocol();
+            return "http".equals(protocol) || "https".equals(protocol) ? url : null;
+        } catch (MalformedURLException e) {
+            return null;
+        }
+    }
+
+    private Asset asset(UrlKey key) {
+        Integer id = assetIds.get(key);
+        if(id != null){
+            return assets.get(id);
+        }
+        Asset asset = new Asset(key, assets.size());
+        assetIds.put(key, asset.id);
+        assets.add(asset);
+        return asset;
+    }
+
+    public void check(Fetcher fetcher) throws IOException {
+        check(fetcher, DEFAULT_CHECK_WORKERS, DEFAULT_CHECKS_PER_HOST);
+    }
+
+    //Checks the assets not already checked, each once, returning when all are done. A failed check is
+    //recorded against its asset rather than thrown, only being interrupted ends the checks early.
+    public void check(Fetcher fetcher, int workers, int checksPerHost) throws IOException {
+        Objects.requireNonNull(fetcher);
+        HostLimiter hostLimiter = new HostLimiter(checksPerHost);
+        AtomicInteger threads = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "asset-check-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<?>> checks = new ArrayList<>();
+            for (Asset asset : assets) {
+                if(asset.getCheck() == null){
+                    checks.add(pool.submit(() -> {
+                        asset.check = check(fetcher, hostLimiter, asset.getKey());
+                        return null;
+                    }));
+                }
+            }
+            for (Future<?> check : checks) {
+                check.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted checking assets");
+        } catch (ExecutionException e) {
+            throw new IOException("Asset check failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static AssetCheck check(Fetcher fetcher, HostLimiter hostLimiter, UrlKey key) throws InterruptedIOException {
+        URL url;
+        try {
+            url = key.toURL();
+        } catch (MalformedURLException e) {
+            return new AssetCheck(e);
+        }
+        hostLimiter.acquire(url);
+        try {
+            FetchResponse response = fetcher.head(url);
+            if(response.getStatusCode() == 405 || response.getStatusCode() == 501){
+                //Servers that refuse HEAD still answer a GET
+                response = fetcher.fetch(url, Collections.emptyMap());
+            }
+            return new AssetCheck(response.getStatusCode(), contentLength(response), response.getContentType());
+        } catch (InterruptedIOException e) {
+            throw e;
+        } catch (IOException e) {
+            return new AssetCheck(e);
+        } finally {
+            hostLimiter.release(url);
+        }
+    }
+
+    private static long contentLength(FetchResponse response) {
+        String contentLength = response.header("Content-Length");
+        if(contentLength != null){
+            try {
+                return Long.parseLong(contentLength.trim());
+            } catch (NumberFormatException e) {
+                return AssetCheck.UNKNOWN_LENGTH;
+            }
+        }
+        return response.getBody().length > 0 && !response.isTruncated() ? response.getBody().length : AssetCheck.UNKNOWN_LENGTH;
+    }
+
+    public int size() {
+        return assets.size();
+    }
+
+    public List<Asset> getAssets() {
+        return Collections.unmodifiableList(assets);
+    }
+
+    public Asset getAsset(UrlKey key) {
+        Integer id = assetIds.get(key);
+        return id == null ? null : assets.get(id);
+    }
+
+    //The pages using the asset, in the order they were crawled
+    public List<UrlKey> getPages(UrlKey asset) {
+        Integer id = assetIds.get(asset);
+        if(id == null){
+            return Collections.emptyList();
+        }
+        Asset found = assets.get(id);
+        List<UrlKey> using = new ArrayList<>(found.pageCount);
+        for (int x = 0; x < found.pageCount; x++) {
+            using.add(pages.get(found.pages[x]));
+        }
+        return using;
+    }
+
+    public List<Asset> getAssets(UrlKey page) {
+        int[] ids = pageAssets.get(page);
+        if(ids == null){
+            return Collections.emptyList();
+        }
+        return Arrays.stream(ids).mapToObj(assets::get).collect(Collectors.toList());
+    }
+
+    //Checked assets that are missing, erroring or could not be fetched at all
+    public List<Asset> getBroken() {
+        return assets.stream()
+                .filter(asset -> asset.getCheck() != null && asset.getCheck().isBroken())
+                .collect(Collectors.toList());
+    }
+
+    //Total size of the checked assets the page uses whose size is known
+    public long getPageWeight(UrlKey page) {
+        long weight = 0;
+        for (Asset asset : getAssets(page)) {
+            AssetCheck check = asset.getCheck();
+            if(check != null && check.getContentLength() != AssetCheck.UNKNOWN_LENGTH){
+                weight += check.getContentLength();
+            }
+        }
+        return weight;
+    }
+
+    @Override
+    public String toString() {
+        return "AssetInventory{" +
+                "assets=" + assets.size() +
+                ", pages=" + pages.size() +
+                '}';
+    }
+
+    public static final class Asset {
+
+        private final UrlKey key;
+        private final int id;
+        private int[] pages = new int[4];
+        private int pageCount;
+        private volatile AssetCheck check;
+
+        private Asset(UrlKey key, int id) {
+            this.key = key;
+            this.id = id;
+        }
+
+        private int lastPage() {
+            return pageCount == 0 ? -1 : pages[pageCount - 1];
+        }
+
+        private void addPage(int pageId) {
+            if(pageCount == pages.length){
+                pages = Arrays.copyOf(pages, pageCount * 2);
+            }
+            pages[pageCount++] = pageId;
+        }
+
+        public UrlKey getKey() {
+            return key;
+        }
+
+        public int getPageCount() {
+            return pageCount;
+        }
+
+        //Null until checked
+        public AssetCheck getCheck() {
+            return check;
+        }
+
+        @Override
+        public String toString() {
+            return "Asset{" +
+                    "key=" + key +
+                    ", pages=" + pageCount +
+                    ", check=" + check +
+                    '}';
+        }
+    }
+
+    public static final class AssetCheck {
+
+        public static final long UNKNOWN_LENGTH = -1;
+
+        private final int statusCode;
+        private final long contentLength;
+        private final String contentType;
+        private final IOException error;
+
+        private AssetCheck(int statusCode, long contentLength, String contentType) {
+            this.statusCode = statusCode;
+            this.contentLength = contentLength;
+            this.contentType = contentType;
+            this.error = null;
+        }
+
+        private AssetCheck(IOException error) {
+            this.statusCode = 0;
+            this.contentLength = UNKNOWN_LENGTH;
+            this.contentType = null;
+            this.error = error;
+        }
+
+        //0 when the check failed without a response
+        public int getStatusCode() {
+            return statusCode;
+        }
+
+        public long getContentLength() {
+            return contentLength;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public IOException getError() {
+            return error;
+        }
+
+        public boolean isBroken() {
+            return error != null || statusCode >= 400;
+        }
+
+        @Override
+        public String toString() {
+            return "AssetCheck{" +
+                    "statusCode=" + statusCode +
+                    ", contentLength=" + contentLength +
+                    ", contentType='" + contentType + '\'' +
+                    (error == null ? "" : ", error=" + error) +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package ash.org.crawler;
+
+import ash.org.domain.InternedStringSet;
+import ash.org.domain.Page;
+import ash.org.domain.PageDetails;
+import ash.org.domain.StringPool;
+import ash.org.domain.UrlKey;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static ash.org.crawler.BinaryPageWriter.*;
+
+//Reads the stream BinaryPageWriter produces. The dictionary is rebuilt as a StringPool, so the pages read
+//back share their strings the same way the crawl's pages did. Version 1 streams are still read.
+public class BinaryPageReader implements PageReader {
+
+    private final DataInputStream in;
+    private final StringPool dictionary = new StringPool();
+    private final int version;
+    private boolean ended;
+
+    public BinaryPageReader(InputStream in) throws IOException {
+        this.in = new DataInputStream(in instanceof BufferedInputStream ? in : new BufferedInputStream(in));
+        byte[] magic = new byte[MAGIC.length];
+        this.in.readFully(magic);
+        for (int x = 0; x < MAGIC.length; x++) {
+            if(magic[x] != MAGIC[x]){
+                throw new IOException("Not a binary page stream");
+            }
+        }
+        version = this.in.readUnsignedByte();
+        if(version < 1 || version > VERSION){
+            throw new IOException("Unsupported binary page stream version " + version);
+        }
+    }
+
+    @Override
+    public Page read() throws IOException {
+        while (!ended) {
+            int record = in.read();
+            switch (record) {
+                case STRING:
+                    byte[] bytes = new byte[readVarint()];
+                    in.readFully(bytes);
+                    int expected = dictionary.size();
+                    if(dictionary.intern(new String(bytes, StandardCharsets.UTF_8)) != expected){
+                        throw new IOException("Duplicate dictionary string");
+                    }
+                    break;
+                case PAGE:
+                    URL url = new URL(string(readVarint()));
+                    InternedStringSet links = new InternedStringSet(dictionary, readIds());
+                    InternedStringSet assets = new InternedStringSet(dictionary, readIds());
+                    UrlKey duplicateOf = version == 1 ? null : duplicateOf(readVarint());
+                    return new Page(url, new PageDetails(links, assets), duplicateOf);
+                case END:
+                    ended = true;
+                    break;
+                case -1:
+                    throw new EOFException("Binary page stream ended without an end marker");
+                default:
+                    throw new IOException("Unknown record type " + record);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private List<String> readIds() throws IOException {
+        int count = readVarint();
+        String[] values = new String[count];
+        int id = 0;
+        for (int x = 0; x < count; x++) {
+            id += readVarint();
+            values[x] = string(id);
+        }
+        return Arrays.asList(values);
+    }
+
+    private UrlKey duplicateOf(int idPlusOne) throws IOException {
+        return idPlusOne == 0 ? null : UrlKey.of(new URL(string(idPlusOne - 1)));
+    }
+
+    private String string(int id) throws IOException {
+        if(id < 0 || id >= dictionary.size()){
+            throw new IOException("Reference to undefined string " + id);
+        }
+        return dictionary.get(id);
+    }
+
+    private int readVarint() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if((b & 0x80) == 0){
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+}
@@ -0,0 +1,104 @@
+package ash.org.crawler;
+
+import ash.org.domain.Page;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+//Compact page stream. Every distinct string is written once into a dictionary that grows as the stream
+//goes, and a page refers to its url, links and assets by dictionary id. Link and asset ids are sorted and
+//delta encoded as unsigned LEB128 varints, so the nav links shared across a site cost a byte or two per page.
+//
+//  stream := MAGIC VERSION record* END
+//  record := STRING varint(byteLength) utf8Bytes      defines the next dictionary id
+//          | PAGE varint(urlId) ids(links) ids(assets) varint(duplicateOfId + 1)
+//  ids    := varint(count) varint(firstId) varint(delta)*
+//
+//duplicateOfId + 1 is 0 for a page that is not a near duplicate. Version 1 streams have no duplicateOf.
+public class BinaryPageWriter implements PageWriter {
+
+    static final byte[] MAGIC = {'P', 'C', 'R', 'W'};
+    static final int VERSION = 2;
+    static final int END = 0;
+    static final int STRING = 1;
+    static final int PAGE = 2;
+
+    private final OutputStream out;
+    private final Map<String, Integer> dictionary = new HashMap<>();
+
+    public BinaryPageWriter(OutputStream out) throws IOException {
+        this.out = new BufferedOutputStream(out);
+        this.out.write(MAGIC);
+        this.out.write(VERSION);
+    }
+
+    @Override
+    public void write(Page page) throws IOException {
+        int urlId = define(page.getUrl().toString());
+        int[] links = define(page.getPageDetails().getLinks());
+        int[] assets = define(page.getPageDetails().getAssets());
+        int duplicateOf = page.isDuplicate() ? define(page.getDuplicateOf().toString()) + 1 : 0;
+
+        out.write(PAGE);
+        writeVarint(urlId);
+        writeIds(links);
+        writeIds(assets);
+        writeVarint(duplicateOf);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            out.write(END);
+        } finally {
+            out.close();
+        }
+    }
+
+    private int[] define(Collection<String> values) throws IOException {
+        int[] ids = new int[values.size()];
+        int count = 0;
+        for (String value : values) {
+            ids[count++] = define(value);
+        }
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    private int define(String value) throws IOException {
+        Integer id = dictionary.get(value);
+        if(id != null){
+            return id;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.write(STRING);
+        writeVarint(bytes.length);
+        out.write(bytes);
+        int defined = dictionary.size();
+        dictionary.put(value, defined);
+        return defined;
+    }
+
+    private void writeIds(int[] ids) throws IOException {
+        writeVarint(ids.length);
+        int previous = 0;
+        for (int id : ids) {
+            writeVarint(id - previous);
+            previous = id;
+        }
+    }
+
+    private void writeVarint(int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+}
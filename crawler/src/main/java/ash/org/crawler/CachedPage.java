@@ -0,0 +1,45 @@
+package ash.org.crawler;
+
+import ash.org.domain.PageDetails;
+
+import java.util.Objects;
+
+//What a previous crawl learned about a url: its HTTP validators and the details extracted from it
+public class CachedPage {
+
+    private final String eTag;
+    private final String lastModified;
+    private final PageDetails pageDetails;
+
+    public CachedPage(String eTag, String lastModified, PageDetails pageDetails) {
+        Objects.requireNonNull(pageDetails);
+        this.eTag = eTag;
+        this.lastModified = lastModified;
+        this.pageDetails = pageDetails;
+    }
+
+    public String getETag() {
+        return eTag;
+    }
+
+    public String getLastModified() {
+        return lastModified;
+    }
+
+    public PageDetails getPageDetails() {
+        return pageDetails;
+    }
+
+    public boolean hasValidators() {
+        return eTag != null || lastModified != null;
+    }
+
+    @Override
+    public String toString() {
+        return "CachedPage{" +
+                "eTag='" + eTag + '\'' +
+                ", lastModified='" + lastModified + '\'' +
+                ", pageDetails=" + pageDetails +
+                '}';
+    }
+}
@@ -0,0 +1,33 @@
+package ash.org.crawler;
+
+import ash.org.domain.Page;
+import ash.org.domain.UrlKey;
+
+import java.io.IOException;
+import java.util.List;
+
+//Moves link batches between crawl nodes and page batches up to the coordinator. A networked transport
+//binds the local endpoints to a listener and hands back stubs for the remote ones.
+public interface ClusterTransport {
+
+    void bindNode(String nodeId, NodeEndpoint node) throws IOException;
+
+    void bindCoordinator(CoordinatorEndpoint coordinator) throws IOException;
+
+    NodeEndpoint node(String nodeId) throws IOException;
+
+    CoordinatorEndpoint coordinator() throws IOException;
+
+    interface NodeEndpoint {
+
+        //Urls owned by the node, to be deduplicated and queued. Must not block on the crawl.
+        void receiveLinks(List<UrlKey> links) throws IOException;
+
+        NodeStatus status() throws IOException;
+    }
+
+    interface CoordinatorEndpoint {
+
+        void receivePages(String nodeId, List<Page> pages) throws IOException;
+    }
+}
@@ -0,0 +1,184 @@
+package ash.org.crawler;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+//Caps on how much of a site one crawl may take. Once a page, byte or time cap is reached no more pages
+//are started, the fetches already in flight are finished and the crawl ends with the pages it has.
+//Depth and path caps are applied by the frontier as links are offered, leaving the links past them out.
+//Either way the crawl reports which cap it hit. Immutable, each with method returns a copy.
+public final class CrawlBudget {
+
+    public static final CrawlBudget UNLIMITED = new CrawlBudget(Integer.MAX_VALUE, Long.MAX_VALUE);
+
+    private final int maxPages;
+    private final long maxMillis;
+    private final int maxDepth;
+    private final long maxBytes;
+    private final long deadlineEpochMillis;
+    private final List<PathCap> pathCaps;
+
+    public CrawlBudget(int maxPages, long maxMillis) {
+        this(maxPages, maxMillis, Integer.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE, Collections.emptyList());
+    }
+
+    private CrawlBudget(int maxPages, long maxMillis, int maxDepth, long maxBytes, long deadlineEpochMillis, List<PathCap> pathCaps) {
+        if(maxPages < 1){
+            throw new IllegalArgumentException("Must allow at least one page");
+        }
+        if(maxMillis < 1){
+            throw new IllegalArgumentException("Must allow the crawl some time");
+        }
+        if(maxDepth < 0){
+            throw new IllegalArgumentException("Depth can not be negative");
+        }
+        if(maxBytes < 1){
+            throw new IllegalArgumentException("Must allow at least one byte");
+        }
+        this.maxPages = maxPages;
+        this.maxMillis = maxMillis;
+        this.maxDepth = maxDepth;
+        this.maxBytes = maxBytes;
+        this.deadlineEpochMillis = deadlineEpochMillis;
+        this.pathCaps = pathCaps;
+    }
+
+    public static CrawlBudget maxPages(int maxPages) {
+        return UNLIMITED.withMaxPages(maxPages);
+    }
+
+    public static CrawlBudget maxTime(long duration, TimeUnit unit) {
+        return UNLIMITED.withMaxTime(duration, unit);
+    }
+
+    public CrawlBudget withMaxPages(int maxPages) {
+        return new CrawlBudget(maxPages, maxMillis, maxDepth, maxBytes, deadlineEpochMillis, pathCaps);
+    }
+
+    public CrawlBudget withMaxTime(long duration, TimeUnit unit) {
+        return new CrawlBudget(maxPages, unit.toMillis(duration), maxDepth, maxBytes, deadlineEpochMillis, pathCaps);
+    }
+
+    //Links from the home page are depth 1, a max depth of 0 crawls just the home page
+    public CrawlBudget withMaxDepth(int maxDepth) {
+        return new CrawlBudget(maxPages, maxMillis, maxDepth, maxBytes, deadlineEpochMillis, pathCaps);
+    }
+
+    //Response bytes downloaded across the crawl, a 304 from the page cache costs nothing
+    public CrawlBudget withMaxBytes(long maxBytes) {
+        return new CrawlBudget(maxPages, maxMillis, maxDepth, maxBytes, deadlineEpochMillis, pathCaps);
+    }
+
+    //Wall clock time after which no more pages are started, for crawls that must finish by a fixed time
+    public CrawlBudget withDeadline(Instant deadline) {
+        return new CrawlBudget(maxPages, maxMillis, maxDepth, maxBytes, deadline.toEpochMilli(), pathCaps);
+    }
+
+    //At most maxPages urls whose path, query included, matches the pattern. '*' matches any run of
+    //characters, everything else literally, so "/calendar/*" or "/search?*" tame endless url spaces.
+    public CrawlBudget withPathCap(String pattern, int maxPages) {
+        List<PathCap> caps = new ArrayList<>(pathCaps);
+        caps.add(new PathCap(pattern, maxPages));
+        return new CrawlBudget(this.maxPages, maxMillis, maxDepth, maxBytes, deadlineEpochMillis, Collections.unmodifiableList(caps));
+    }
+
+    public int getMaxPages() {
+        return maxPages;
+    }
+
+    public long getMaxMillis() {
+        return maxMillis;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public List<PathCap> getPathCaps() {
+        return pathCaps;
+    }
+
+    boolean isOutOfTime(long startNanos, long nowNanos) {
+        return nowNanos - startNanos >= TimeUnit.MILLISECONDS.toNanos(maxMillis)
+                || deadlineEpochMillis != Long.MAX_VALUE && System.currentTimeMillis() >= deadlineEpochMillis;
+    }
+
+    boolean isOutOfPages(int pages) {
+        return pages >= maxPages;
+    }
+
+    boolean isOutOfBytes(long bytes) {
+        return bytes >= maxBytes;
+    }
+
+    boolean hasByteLimit() {
+        return maxBytes != Long.MAX_VALUE;
+    }
+
+    @Override
+    public String toString() {
+        return "CrawlBudget{" +
+                "maxPages=" + maxPages +
+                ", maxMillis=" + maxMillis +
+                ", maxDepth=" + maxDepth +
+                ", maxBytes=" + maxBytes +
+                ", deadline=" + (deadlineEpochMillis == Long.MAX_VALUE ? "none" : Instant.ofEpochMilli(deadlineEpochMillis)) +
+                ", pathCaps=" + pathCaps +
+                '}';
+    }
+
+    public static final class PathCap {
+
+        private final String pattern;
+        private final int maxPages;
+        private final Pattern compiled;
+
+        private PathCap(String pattern, int maxPages) {
+            Objects.requireNonNull(pattern);
+            if(maxPages < 0){
+                throw new IllegalArgumentException("Path cap can not be negative");
+            }
+            this.pattern = pattern;
+            this.maxPages = maxPages;
+            this.compiled = compile(pattern);
+        }
+
+        //Also used for UrlScorer.byPattern, so both read patterns the same way
+        static Pattern compile(String pattern) {
+            StringBuilder regex = new StringBuilder();
+            int from = 0;
+            int star;
+            while ((star = pattern.indexOf('*', from)) >= 0) {
+                regex.append(Pattern.quote(pattern.substring(from, star))).append(".*");
+                from = star + 1;
+            }
+            return Pattern.compile(regex.append(Pattern.quote(pattern.substring(from))).toString(), Pattern.DOTALL);
+        }
+
+        public String getPattern() {
+            return pattern;
+        }
+
+        public int getMaxPages() {
+            return maxPages;
+        }
+
+        boolean matches(CharSequence path) {
+            return compiled.matcher(path).matches();
+        }
+
+        @Override
+        public String toString() {
+            return pattern + "=" + maxPages;
+        }
+    }
+}
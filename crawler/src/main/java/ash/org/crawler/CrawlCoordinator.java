@@ -0,0 +1,119 @@
+package ash.org.crawler;
+
+import ash.org.domain.Page;
+import ash.org.domain.Site;
+import ash.org.domain.UrlKey;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+//Seeds a distributed crawl on the node owning the home page, streams the pages the nodes send up to
+//the listener, and decides when the crawl is over. The crawl has ended once two consecutive probes of
+//every node return identical statuses, all idle, with every link and page batch sent also received:
+//a node only leaves idle by receiving a batch, which would have changed its counters between probes.
+public class CrawlCoordinator implements ClusterTransport.CoordinatorEndpoint {
+
+    public static final long PROBE_INTERVAL_MILLIS = 20;
+
+    private final HashRing ring;
+    private final ClusterTransport transport;
+    private final BlockingQueue<Page> received = new LinkedBlockingQueue<>();
+    private final AtomicLong pageBatchesReceived = new AtomicLong();
+
+    public CrawlCoordinator(HashRing ring, ClusterTransport transport) {
+        Objects.requireNonNull(ring);
+        Objects.requireNonNull(transport);
+        this.ring = ring;
+        this.transport = transport;
+    }
+
+    public Site crawlDomain(URL url) throws IOException {
+        Objects.requireNonNull(url, "You must supply a url to crawl");
+        SiteCollector siteCollector = new SiteCollector(url);
+        crawl(url, siteCollector);
+        return siteCollector.toSite();
+    }
+
+    public void crawl(URL url, PageListener listener) throws IOException {
+        Crawler.checkDomain(url);
+        Objects.requireNonNull(listener, "You must supply a listener for the crawled pages");
+
+        transport.bindCoordinator(this);
+        UrlKey seed = UrlKey.of(url);
+        transport.node(ring.ownerOf(seed)).receiveLinks(Collections.singletonList(seed));
+        long seedBatches = 1;
+
+        List<NodeStatus> previous = null;
+        while (true) {
+            deliver(listener);
+            List<NodeStatus> probe = probe();
+            if(probe.equals(previous) && isQuiescent(probe, seedBatches)){
+                break;
+            }
+            previous = probe;
+            awaitPages(listener);
+        }
+        deliver(listener);
+    }
+
+    @Override
+    public void receivePages(String nodeId, List<Page> pages) {
+        received.addAll(pages);
+        pageBatchesReceived.incrementAndGet();
+    }
+
+    private List<NodeStatus> probe() throws IOException {
+        List<NodeStatus> statuses = new ArrayList<>();
+        for (String nodeId : ring.getNodes()) {
+            NodeStatus status = transport.node(nodeId).status();
+            if(status.getFailure() != null){
+                throw new IOException("Crawl failed on node " + nodeId + ": " + status.getFailure());
+            }
+            statuses.add(status);
+        }
+        return statuses;
+    }
+
+    private boolean isQuiescent(List<NodeStatus> statuses, long seedBatches) {
+        long linksSent = seedBatches;
+        long linksReceived = 0;
+        long pagesSent = 0;
+        for (NodeStatus status : statuses) {
+            if(!status.isIdle()){
+                return false;
+            }
+            linksSent += status.getLinkBatchesSent();
+            linksReceived += status.getLinkBatchesReceived();
+            pagesSent += status.getPageBatchesSent();
+        }
+        return linksSent == linksReceived && pagesSent == pageBatchesReceived.get();
+    }
+
+    private void awaitPages(PageListener listener) throws InterruptedIOException {
+        try {
+            Page page = received.poll(PROBE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+            if(page != null){
+                listener.onPage(page);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while crawling");
+        }
+    }
+
+    private void deliver(PageListener listener) {
+        Page page;
+        while ((page = received.poll()) != null) {
+            listener.onPage(page);
+        }
+    }
+}
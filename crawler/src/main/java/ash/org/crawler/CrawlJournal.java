@@ -0,0 +1,32 @@
+package ash.org.crawler;
+
+import ash.org.domain.UrlKey;
+
+import java.io.IOException;
+
+//Records frontier progress so an interrupted crawl can be resumed. Claims come from the fetch workers.
+public interface CrawlJournal {
+
+    CrawlJournal NONE = new CrawlJournal() {
+        @Override
+        public void claimed(UrlKey key, int depth) {
+        }
+
+        @Override
+        public void completed(UrlKey key) {
+        }
+
+        @Override
+        public void checkpoint() {
+        }
+    };
+
+    //The url has been added to the visited set and is waiting to be fetched, depth is the links followed to find it
+    void claimed(UrlKey key, int depth) throws IOException;
+
+    //The page has been fetched and handed to the listener
+    void completed(UrlKey key) throws IOException;
+
+    //Makes everything recorded so far durable
+    void checkpoint() throws IOException;
+}
@@ -0,0 +1,191 @@
+package ash.org.crawler;
+
+import org.jsoup.HttpStatusException;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+//Counters and latency histograms for the hot path of a crawl. Everything records through striped adders
+//so the fetch workers never contend on a lock. Components default to one process wide instance.
+public class CrawlMetrics implements CrawlMetricsMXBean {
+
+    public static final String JMX_DOMAIN = "ash.org.crawler";
+
+    private static final CrawlMetrics GLOBAL = new CrawlMetrics();
+
+    private final LongAdder pagesCrawled = new LongAdder();
+    private final LongAdder bytesDownloaded = new LongAdder();
+    private final LongAdder linksOffered = new LongAdder();
+    private final LongAdder duplicateLinks = new LongAdder();
+    private final LongAdder duplicatePages = new LongAdder();
+    private final ConcurrentMap<String, LongAdder> errors = new ConcurrentHashMap<>();
+    private final LatencyHistogram fetchLatency = new LatencyHistogram();
+    private final LatencyHistogram parseLatency = new LatencyHistogram();
+    private final LatencyHistogram extractionLatency = new LatencyHistogram();
+    //Summed over every crawl running, each adds the change in its own frontier
+    private final LongAdder frontierSize = new LongAdder();
+
+    public static CrawlMetrics global() {
+        return GLOBAL;
+    }
+
+    public void recordFetch(long nanos, long bytes) {
+        fetchLatency.record(nanos);
+        bytesDownloaded.add(bytes);
+    }
+
+    public void recordParse(long nanos) {
+        parseLatency.record(nanos);
+    }
+
+    public void recordExtraction(long nanos) {
+        extractionLatency.record(nanos);
+    }
+
+    public void recordPageCrawled() {
+        pagesCrawled.increment();
+    }
+
+    public void recordLinkOffered(boolean duplicate) {
+        linksOffered.increment();
+        if(duplicate){
+            duplicateLinks.increment();
+        }
+    }
+
+    //A page whose text near duplicates one crawled before it
+    public void recordDuplicatePage() {
+        duplicatePages.increment();
+    }
+
+    public void recordError(Throwable error) {
+        errors.computeIfAbsent(errorType(error), type -> new LongAdder()).increment();
+    }
+
+    public void addFrontierSize(long change) {
+        frontierSize.add(change);
+    }
+
+    public LatencyHistogram getFetchLatency() {
+        return fetchLatency;
+    }
+
+    public LatencyHistogram getParseLatency() {
+        return parseLatency;
+    }
+
+    public LatencyHistogram getExtractionLatency() {
+        return extractionLatency;
+    }
+
+    @Override
+    public long getPagesCrawled() {
+        return pagesCrawled.sum();
+    }
+
+    @Override
+    public long getBytesDownloaded() {
+        return bytesDownloaded.sum();
+    }
+
+    @Override
+    public long getFrontierSize() {
+        return frontierSize.sum();
+    }
+
+    @Override
+    public long getLinksOffered() {
+        return linksOffered.sum();
+    }
+
+    @Override
+    public double getDedupHitRate() {
+        long offered = linksOffered.sum();
+        return offered == 0 ? 0 : duplicateLinks.sum() / (double) offered;
+    }
+
+    @Override
+    public long getDuplicatePages() {
+        return duplicatePages.sum();
+    }
+
+    @Override
+    public Map<String, Long> getErrorCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        errors.forEach((type, count) -> counts.put(type, count.sum()));
+        return counts;
+    }
+
+    @Override
+    public double getFetchMeanMillis() {
+        return fetchLatency.getMeanMillis();
+    }
+
+    @Override
+    public double getFetchP99Millis() {
+        return fetchLatency.getPercentileMillis(99);
+    }
+
+    @Override
+    public double getParseMeanMillis() {
+        return parseLatency.getMeanMillis();
+    }
+
+    @Override
+    public double getParseP99Millis() {
+        return parseLatency.getPercentileMillis(99);
+    }
+
+    @Override
+    public double getExtractionMeanMillis() {
+        return extractionLatency.getMeanMillis();
+    }
+
+    @Override
+    public double getExtractionP99Millis() {
+        return extractionLatency.getPercentileMillis(99);
+    }
+
+    //One line key=value summary, suited to grepping logs
+    @Override
+    public String getSummary() {
+        return String.format("pages=%d bytes=%d frontier=%d links=%d dedupHitRate=%.3f duplicatePages=%d"
+                        + " fetchP50Ms=%.1f fetchP99Ms=%.1f parseP50Ms=%.1f parseP99Ms=%.1f"
+                        + " extractP50Ms=%.1f extractP99Ms=%.1f errors=%s",
+                getPagesCrawled(), getBytesDownloaded(), getFrontierSize(), getLinksOffered(), getDedupHitRate(), getDuplicatePages(),
+                fetchLatency.getPercentileMillis(50), fetchLatency.getPercentileMillis(99),
+                parseLatency.getPercentileMillis(50), parseLatency.getPercentileMillis(99),
+                extractionLatency.getPercentileMillis(50), extractionLatency.getPercentileMillis(99),
+                getErrorCounts());
+    }
+
+    public ObjectName registerMBean(String name) throws JMException {
+        Objects.requireNonNull(name);
+        ObjectName objectName = objectName(name);
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        if(server.isRegistered(objectName)){
+            server.unregisterMBean(objectName);
+        }
+        server.registerMBean(this, objectName);
+        return objectName;
+    }
+
+    public static ObjectName objectName(String name) throws JMException {
+        return new ObjectName(JMX_DOMAIN + ":type=CrawlMetrics,name=" + ObjectName.quote(name));
+    }
+
+    private static String errorType(Throwable error) {
+        if(error instanceof HttpStatusException){
+            return "HTTP " + ((HttpStatusException) error).getStatusCode();
+        }
+        return error.getClass().getSimpleName();
+    }
+}
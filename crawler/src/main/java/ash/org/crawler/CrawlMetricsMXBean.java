@@ -0,0 +1,35 @@
+package ash.org.crawler;
+
+import java.util.Map;
+
+//Crawl metrics as exposed over JMX
+public interface CrawlMetricsMXBean {
+
+    long getPagesCrawled();
+
+    long getBytesDownloaded();
+
+    long getFrontierSize();
+
+    long getLinksOffered();
+
+    double getDedupHitRate();
+
+    long getDuplicatePages();
+
+    Map<String, Long> getErrorCounts();
+
+    double getFetchMeanMillis();
+
+    double getFetchP99Millis();
+
+    double getParseMeanMillis();
+
+    double getParseP99Millis();
+
+    double getExtractionMeanMillis();
+
+    double getExtractionP99Millis();
+
+    String getSummary();
+}
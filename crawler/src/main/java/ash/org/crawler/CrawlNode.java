@@ -0,0 +1,269 @@
+package ash.org.crawler;
+
+import ash.org.domain.Page;
+import ash.org.domain.StringPool;
+import ash.org.domain.UrlKey;
+import org.apache.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+//One member of a distributed crawl. Owns the dedup and frontier for the urls the ring assigns it, fetches
+//them, keeps its own links and forwards the rest in batches to their owners. Crawled pages go up to the
+//coordinator in batches. All crawl state lives on the dispatcher thread; a node serves a single crawl.
+public class CrawlNode implements ClusterTransport.NodeEndpoint, Closeable {
+
+    public static final int DEFAULT_BATCH_SIZE = 64;
+
+    private static final Logger LOG = Logger.getLogger(CrawlNode.class);
+
+    private static final long IDLE_POLL_MILLIS = 50;
+    private static final long BUSY_POLL_MILLIS = 10;
+
+    private final String nodeId;
+    private final HashRing ring;
+    private final ClusterTransport transport;
+    private final HTMLScraper HTMLScraper;
+    private final int workers;
+    private final CrawlScheduler scheduler;
+    private final int batchSize;
+
+    private final BlockingQueue<List<UrlKey>> inbox = new LinkedBlockingQueue<>();
+    private final Frontier frontier = new Frontier();
+    private final StringPool stringPool = new StringPool();
+    private final Map<String, Set<UrlKey>> outbound = new HashMap<>();
+    private final List<Page> pages = new ArrayList<>();
+    private final Thread dispatcher;
+
+    private long linkBatchesSent;
+    private long linkBatchesReceived;
+    private long pageBatchesSent;
+    private String failure;
+    private volatile NodeStatus status;
+
+    public CrawlNode(String nodeId, HashRing ring, ClusterTransport transport, HTMLScraper HTMLScraper, int workers) {
+        this(nodeId, ring, transport, HTMLScraper, workers, CrawlScheduler.UNSCHEDULED, DEFAULT_BATCH_SIZE);
+    }
+
+    public CrawlNode(String nodeId, HashRing ring, ClusterTransport transport, HTMLScraper HTMLScraper, int workers,
+                     CrawlScheduler scheduler, int batchSize) {
+        Objects.requireNonNull(nodeId);
+        Objects.requireNonNull(ring);
+        Objects.requireNonNull(transport);
+        Objects.requireNonNull(scheduler);
+        if(!ring.getNodes().contains(nodeId)){
+            throw new IllegalArgumentException("Node " + nodeId + " is not on the hash ring");
+        }
+        if(workers < 1){
+            throw new IllegalArgumentException("Must have at least one fetch worker");
+        }
+        if(batchSize < 1){
+            throw new IllegalArgumentException("Batch size must be at least one");
+        }
+        this.nodeId = nodeId;
+        this.ring = ring;
+        this.transport = transport;
+        this.HTMLScraper = HTMLScraper;
+        this.workers = workers;
+        this.scheduler = scheduler;
+        this.batchSize = batchSize;
+        this.status = new NodeStatus(nodeId, 0, 0, 0, true, null);
+        this.dispatcher = new Thread(this::dispatch, "crawl-node-" + nodeId);
+        this.dispatcher.setDaemon(true);
+    }
+
+    public void start() throws IOException {
+        transport.bindNode(nodeId, this);
+        dispatcher.start();
+    }
+
+    @Override
+    public void receiveLinks(List<UrlKey> links) {
+        inbox.add(new ArrayList<>(links));
+    }
+
+    @Override
+    public NodeStatus status() {
+        return status;
+    }
+
+    @Override
+    public void close() {
+        dispatcher.interrupt();
+        try {
+            dispatcher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void dispatch() {
+        ExecutorService executor = FetchMode.PLATFORM_THREADS.newExecutor(workers);
+        CompletionService<Page> fetches = new ExecutorCompletionService<>(executor);
+        int inFlight = 0;
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                List<UrlKey> batch;
+                while ((batch = inbox.poll()) != null) {
+                    accept(batch);
+                }
+
+                UrlKey next;
+                while (inFlight < workers && (next = frontier.poll()) != null) {
+                    UrlKey key = next;
+                    fetches.submit(() -> fetch(key.toURL()));
+                    inFlight++;
+                }
+
+                if(inFlight == 0){
+                    //Nothing left locally, so push out everything buffered before reporting idle
+                    flush();
+                    publish(true);
+                    batch = inbox.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                    if(batch != null){
+                        accept(batch);
+                    }
+                    continue;
+                }
+
+                Future<Page> fetched = fetches.poll(BUSY_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if(fetched != null){
+                    inFlight--;
+                    handle(fetched);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Page fetch(URL url) throws IOException {
+        if(!scheduler.isAllowed(url)){
+            return null;
+        }
+        try {
+            return new Page(url, scheduler.fetch(url, () -> HTMLScraper.getPageAssets(url)).intern(stringPool));
+        } catch (IOException e) {
+            //Only interrupts and fatal errors fail the node, a page that cannot be fetched is just left out
+            if(e instanceof InterruptedIOException && !(e instanceof SocketTimeoutException)){
+                throw e;
+            }
+            LOG.warn("fetch failed url=" + url + " error=" + e);
+            return null;
+        }
+    }
+
+    private void accept(List<UrlKey> batch) {
+        linkBatchesReceived++;
+        for (UrlKey key : batch) {
+            offer(key);
+        }
+        publish(false);
+    }
+
+    private void handle(Future<Page> fetched) throws InterruptedException {
+        Page page;
+        try {
+            page = fetched.get();
+        } catch (ExecutionException e) {
+            fail(e.getCause());
+            return;
+        }
+        if(page == null){
+            return;
+        }
+
+        String origin = UrlKey.origin(page.getUrl());
+        for (String link : page.getPageDetails().getLinks()) {
+            UrlKey key = UrlKey.fromOrigin(origin, link);
+            String owner = ring.ownerOf(key);
+            if(nodeId.equals(owner)){
+                offer(key);
+            } else {
+                Set<UrlKey> forward = outbound.computeIfAbsent(owner, o -> new LinkedHashSet<>());
+                forward.add(key);
+                if(forward.size() >= batchSize){
+                    sendLinks(owner);
+                }
+            }
+        }
+
+        pages.add(page);
+        if(pages.size() >= batchSize){
+            sendPages();
+        }
+    }
+
+    private void offer(UrlKey key) {
+        try {
+            frontier.offer(key);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void flush() {
+        for (String owner : new ArrayList<>(outbound.keySet())) {
+            sendLinks(owner);
+        }
+        if(!pages.isEmpty()){
+            sendPages();
+        }
+    }
+
+    private void sendLinks(String owner) {
+        Set<UrlKey> links = outbound.remove(owner);
+        if(links == null || links.isEmpty()){
+            return;
+        }
+        try {
+            transport.node(owner).receiveLinks(new ArrayList<>(links));
+            linkBatchesSent++;
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    private void sendPages() {
+        try {
+            transport.coordinator().receivePages(nodeId, Collections.unmodifiableList(new ArrayList<>(pages)));
+            pageBatchesSent++;
+        } catch (IOException e) {
+            fail(e);
+        }
+        pages.clear();
+    }
+
+    private void fail(Throwable cause) {
+        if(failure == null){
+            failure = cause.toString();
+        }
+        publish(false);
+    }
+
+    private void publish(boolean idle) {
+        status = new NodeStatus(nodeId, linkBatchesSent, linkBatchesReceived, pageBatchesSent, idle, failure);
+    }
+}
@@ -0,0 +1,23 @@
+package ash.org.crawler;
+
+//How a budgeted crawl ended
+public enum CrawlOutcome {
+
+    //Every reachable page was crawled
+    COMPLETE,
+
+    //Stopped with pages left in the frontier because the page budget ran out
+    PAGE_LIMIT,
+
+    //Stopped with pages left in the frontier because the time budget ran out
+    TIME_LIMIT,
+
+    //Stopped with pages left in the frontier because the byte budget ran out
+    BYTE_LIMIT,
+
+    //Ran to the end, but links deeper than the max depth were left out
+    DEPTH_LIMIT,
+
+    //Ran to the end, but links past a path cap were left out
+    PATH_LIMIT
+}
@@ -0,0 +1,48 @@
+package ash.org.crawler;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.List;
+
+//Decides whether and when the crawler may fetch a url. Called from the fetch workers.
+public interface CrawlScheduler {
+
+    CrawlScheduler UNSCHEDULED = new CrawlScheduler() {
+        @Override
+        public boolean isAllowed(URL url) {
+            return true;
+        }
+
+        @Override
+        public <T> T fetch(URL url, Fetch<T> fetch) throws IOException {
+            return fetch.fetch();
+        }
+    };
+
+    boolean isAllowed(URL url) throws IOException;
+
+    //Runs the fetch once the host is ready for it, retrying or failing as the scheduler sees fit
+    <T> T fetch(URL url, Fetch<T> fetch) throws IOException;
+
+    //A fetch whose time says nothing about how the host is coping, such as a sitemap parsed as it streams in.
+    //It waits its turn like any other, but is left out of the scheduler's view of the host's latency.
+    default <T> T fetchUntimed(URL url, Fetch<T> fetch) throws IOException {
+        return fetch(url, fetch);
+    }
+
+    //How long a fetch of the url would now wait for its host, 0 when the host is ready. Lets a pool shared by
+    //many sites run other sites' fetches meanwhile rather than hold a worker waiting. Must not block.
+    default long getWaitNanos(URL url) {
+        return 0;
+    }
+
+    //The sitemaps the site's robots.txt names, or null when the scheduler does not read robots.txt itself
+    default List<String> getSitemaps(URL site) throws IOException {
+        return null;
+    }
+
+    @FunctionalInterface
+    interface Fetch<T> {
+        T fetch() throws IOException;
+    }
+}
@@ -0,0 +1,615 @@
+package ash.org.crawler;
+
+import ash.org.domain.Page;
+import ash.org.domain.PageDetails;
+import ash.org.domain.Site;
+import ash.org.domain.StringPool;
+import ash.org.domain.UrlKey;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+public class Crawler {
+
+    public static final int DEFAULT_WORKERS = 8;
+    public static final int CHECKPOINT_INTERVAL = 500;
+
+    private static final Logger LOG = Logger.getLogger(Crawler.class);
+    //How often the crawl looks for new sitemap pages while none of its fetches finish
+    private static final long SEEDING_POLL_MILLIS = 20;
+
+    private final HTMLScraper HTMLScraper;
+    private final int workers;
+    private final FetchMode fetchMode;
+    private final HostLimiter hostLimiter;
+    private final CrawlScheduler scheduler;
+    private final Supplier<VisitedUrlSet> visitedUrls;
+    private final CrawlMetrics metrics;
+    private final ParseStage parseStage;
+    private final DuplicatePolicy duplicatePolicy;
+    private final Sitemaps sitemaps;
+
+    public Crawler(int timeout) {
+        this(new HTMLScraper(timeout));
+    }
+
+    public Crawler(HTMLScraper HTMLScraper){
+        this(HTMLScraper, DEFAULT_WORKERS);
+    }
+
+    public Crawler(HTMLScraper HTMLScraper, int workers){
+        this(builder(HTMLScraper).workers(workers));
+    }
+
+    private Crawler(Builder builder){
+        if(builder.workers < 1){
+            throw new IllegalArgumentException("Must have at least one fetch worker");
+        }
+        this.HTMLScraper = builder.HTMLScraper;
+        this.workers = builder.workers;
+        this.fetchMode = builder.fetchMode;
+        this.hostLimiter = new HostLimiter(builder.maxFetchesPerHost == 0 ? builder.workers : builder.maxFetchesPerHost);
+        this.scheduler = builder.scheduler;
+        this.visitedUrls = builder.visitedUrls;
+        this.metrics = builder.metrics;
+        this.parseStage = builder.parseStage;
+        this.duplicatePolicy = builder.duplicatePolicy;
+        this.sitemaps = builder.sitemaps;
+    }
+
+    //For everything past the scraper and the number of workers, each setting left out keeps its default
+    public static Builder builder(HTMLScraper HTMLScraper){
+        return new Builder(HTMLScraper);
+    }
+
+    public static final class Builder {
+
+        private final HTMLScraper HTMLScraper;
+        private int workers = DEFAULT_WORKERS;
+        private FetchMode fetchMode = FetchMode.PLATFORM_THREADS;
+        //0 allows as many fetches to a host as there are workers
+        private int maxFetchesPerHost;
+        private CrawlScheduler scheduler = CrawlScheduler.UNSCHEDULED;
+        private Supplier<VisitedUrlSet> visitedUrls = HeapVisitedUrlSet::new;
+        private CrawlMetrics metrics = CrawlMetrics.global();
+        private ParseStage parseStage = ParseStage.INLINE;
+        private DuplicatePolicy duplicatePolicy = DuplicatePolicy.OFF;
+        private Sitemaps sitemaps;
+
+        private Builder(HTMLScraper HTMLScraper) {
+            this.HTMLScraper = HTMLScraper;
+        }
+
+        public Builder workers(int workers) {
+            this.workers = workers;
+            return this;
+        }
+
+        public Builder fetchMode(FetchMode fetchMode) {
+            this.fetchMode = Objects.requireNonNull(fetchMode);
+            return this;
+        }
+
+        public Builder maxFetchesPerHost(int maxFetchesPerHost) {
+            if(maxFetchesPerHost < 1){
+                throw new IllegalArgumentException("Must allow at least one fetch per host");
+            }
+            this.maxFetchesPerHost = maxFetchesPerHost;
+            return this;
+        }
+
+        public Builder scheduler(CrawlScheduler scheduler) {
+            this.scheduler = Objects.requireNonNull(scheduler);
+            return this;
+        }
+
+        //Called once per crawl and the set closed when the crawl ends, pass an OffHeapVisitedUrlSet factory
+        //for crawls too big to dedup on the heap
+        public Builder visitedUrls(Supplier<VisitedUrlSet> visitedUrls) {
+            this.visitedUrls = Objects.requireNonNull(visitedUrls);
+            return this;
+        }
+
+        public Builder metrics(CrawlMetrics metrics) {
+            this.metrics = Objects.requireNonNull(metrics);
+            return this;
+        }
+
+        public Builder parseStage(ParseStage parseStage) {
+            this.parseStage = Objects.requireNonNull(parseStage);
+            return this;
+        }
+
+        public Builder duplicatePolicy(DuplicatePolicy duplicatePolicy) {
+            this.duplicatePolicy = Objects.requireNonNull(duplicatePolicy);
+            return this;
+        }
+
+        //When set, the frontier is seeded with the site's sitemap pages once the home page is crawled
+        public Builder sitemaps(Sitemaps sitemaps) {
+            this.sitemaps = sitemaps;
+            return this;
+        }
+
+        public Crawler build() {
+            return new Crawler(this);
+        }
+    }
+
+    public Site crawlDomain(URL url) throws IOException {
+        Objects.requireNonNull(url, "You must supply a url to crawl");
+        SiteCollector siteCollector = new SiteCollector(url);
+        crawl(url, siteCollector);
+        return siteCollector.toSite();
+    }
+
+    //The pages crawled before the budget ran out, crawl with a SiteCollector to also learn which cap was hit
+    public Site crawlDomain(URL url, CrawlBudget budget) throws IOException {
+        Objects.requireNonNull(url, "You must supply a url to crawl");
+        SiteCollector siteCollector = new SiteCollector(url);
+        crawl(url, siteCollector, budget);
+        return siteCollector.toSite();
+    }
+
+    public void crawl(URL url, PageListener listener) throws IOException {
+        crawl(url, listener, CrawlJournal.NONE, CrawlBudget.UNLIMITED, UrlScorer.BREADTH_FIRST, null);
+    }
+
+    //Crawls until the site runs out of pages or the budget runs out, whichever comes first
+    public CrawlOutcome crawl(URL url, PageListener listener, CrawlBudget budget) throws IOException {
+        return crawl(url, listener, budget, UrlScorer.BREADTH_FIRST);
+    }
+
+    //Crawls the best scoring urls first, so a budget that runs out leaves the least valuable pages uncrawled
+    public CrawlOutcome crawl(URL url, PageListener listener, CrawlBudget budget, UrlScorer scorer) throws IOException {
+        return crawl(url, listener, budget, scorer, null);
+    }
+
+    //Runs the crawl's fetches on the given executor rather than a pool of its own, so many crawls can share one.
+    //The executor is left running when the crawl ends.
+    CrawlOutcome crawl(URL url, PageListener listener, CrawlBudget budget, UrlScorer scorer, Executor fetchExecutor) throws IOException {
+        Objects.requireNonNull(budget, "You must supply a crawl budget");
+        Objects.requireNonNull(scorer, "You must supply a url scorer");
+        return crawl(url, listener, CrawlJournal.NONE, budget, scorer, fetchExecutor);
+    }
+
+    //Crawls while journaling progress to the directory, so the crawl can be picked up by resume after a crash
+    public void crawl(URL url, PageListener listener, Path checkpointDirectory) throws IOException {
+        crawl(url, listener, CrawlBudget.UNLIMITED, checkpointDirectory);
+    }
+
+    public CrawlOutcome crawl(URL url, PageListener listener, CrawlBudget budget, Path checkpointDirectory) throws IOException {
+        checkDomain(url);
+        Objects.requireNonNull(budget, "You must supply a crawl budget");
+        Objects.requireNonNull(checkpointDirectory, "You must supply a checkpoint directory");
+        try (FileCrawlJournal journal = FileCrawlJournal.create(checkpointDirectory, url)) {
+            return crawl(url, listener, journal, budget, UrlScorer.BREADTH_FIRST, null);
+        }
+    }
+
+    //Carries on a checkpointed crawl, streaming only the pages not completed before it stopped
+    public void resume(Path checkpointDirectory, PageListener listener) throws IOException {
+        resume(checkpointDirectory, listener, CrawlBudget.UNLIMITED);
+    }
+
+    //The budget starts afresh for the resumed run, counting only the pages crawled since resuming. Urls keep the
+    //depths they were journaled with, so a max depth carries on where the first run left off.
+    public CrawlOutcome resume(Path checkpointDirectory, PageListener listener, CrawlBudget budget) throws IOException {
+        Objects.requireNonNull(checkpointDirectory, "You must supply a checkpoint directory");
+        Objects.requireNonNull(listener, "You must supply a listener for the crawled pages");
+        Objects.requireNonNull(budget, "You must supply a crawl budget");
+        try (FileCrawlJournal journal = FileCrawlJournal.open(checkpointDirectory);
+             VisitedUrlSet visited = visitedUrls.get()) {
+            Frontier frontier = new Frontier(journal, visited, budget);
+            journal.restore(frontier);
+            //Duplicates are only found among the pages crawled since resuming
+            SimHashIndex duplicates = duplicatePolicy == DuplicatePolicy.OFF ? null : new SimHashIndex();
+            AtomicLong bytes = budget.hasByteLimit() ? new AtomicLong() : null;
+            return getPages(frontier, listener, journal, new StringPool(), budget, System.nanoTime(), 0, bytes, duplicates, null, null);
+        }
+    }
+
+    private CrawlOutcome crawl(URL url, PageListener listener, CrawlJournal journal, CrawlBudget budget, UrlScorer scorer,
+                               Executor fetchExecutor) throws IOException {
+        checkDomain(url);
+        Objects.requireNonNull(listener, "You must supply a listener for the crawled pages");
+
+        try (VisitedUrlSet visited = visitedUrls.get()) {
+            return crawl(url, listener, journal, new Frontier(journal, visited, budget, scorer), budget, fetchExecutor);
+        }
+    }
+
+    private CrawlOutcome crawl(URL url, PageListener listener, CrawlJournal journal, Frontier frontier, CrawlBudget budget,
+                               Executor fetchExecutor) throws IOException {
+        long start = System.nanoTime();
+        frontier.visit(url);
+        if(!scheduler.isAllowed(url)){
+            journal.completed(UrlKey.of(url));
+            return CrawlOutcome.COMPLETE;
+        }
+        StringPool stringPool = new StringPool();
+        //Only counted when capped, counting needs the raw response rather than getPageAssets
+        AtomicLong bytes = budget.hasByteLimit() ? new AtomicLong() : null;
+        SimHashIndex duplicates = duplicatePolicy == DuplicatePolicy.OFF ? null : new SimHashIndex();
+        Page homePage = getHomePage(url, stringPool, bytes, fetchExecutor);
+
+        if(LOG.isDebugEnabled()){
+            LOG.debug("home page url=" + url + " links=" + homePage.getPageDetails().getLinks());
+        }
+
+        homePage = expand(homePage, frontier, 1, duplicates);
+        listener.onPage(homePage);
+        journal.completed(homePage.getKey());
+        FutureTask<Integer> seeding = sitemaps == null ? null : new FutureTask<>(() -> seedFromSitemaps(url, frontier, budget, start));
+
+        return getPages(frontier, listener, journal, stringPool, budget, start, 1, bytes, duplicates, fetchExecutor, seeding);
+    }
+
+    //Sitemap pages are queued as if linked from the home page, their priority passed on to the scorer. Runs on a
+    //fetch worker alongside the crawl of the home page's links. Seeding stops once the frontier holds one page
+    //more than the budget has left, or the time runs out, as the crawl could never get to the rest. The page over
+    //leaves the crawl ending on PAGE_LIMIT rather than COMPLETE.
+    private int seedFromSitemaps(URL url, Frontier frontier, CrawlBudget budget, long start) throws IOException {
+        int listed = sitemaps.seed(url, scheduler, (key, priority) -> {
+            metrics.recordLinkOffered(!frontier.offer(key, 1, priority));
+            return !budget.isOutOfPages(frontier.size()) && !budget.isOutOfTime(start, System.nanoTime());
+        });
+        LOG.info("sitemaps seeded url=" + url + " pages=" + listed + " queued=" + frontier.size());
+        return listed;
+    }
+
+    //A shared executor bounds every fetch of the crawl, the home page included
+    private Page getHomePage(URL url, StringPool stringPool, AtomicLong bytes, Executor fetchExecutor) throws IOException {
+        if(fetchExecutor == null){
+            return getPage(url, stringPool, bytes);
+        }
+        FutureTask<Page> homePage = new FutureTask<>(() -> getPage(url, stringPool, bytes));
+        fetchExecutor.execute(homePage);
+        return takeFetched(homePage);
+    }
+
+    static void checkDomain(URL url) {
+        Objects.requireNonNull(url, "You must supply a url to crawl");
+        String host = url.getAuthority();
+        String urlString = url.toString();
+        if(!urlString.endsWith(host) && !urlString.endsWith(host + "/") ){
+            throw new IllegalArgumentException("Must give main domain as the url to crawl");
+        }
+    }
+
+    //Seeding, when given, is started on the fetch executor and stopped should the crawl end before it does
+    private CrawlOutcome getPages(Frontier frontier, PageListener listener, CrawlJournal journal, StringPool stringPool,
+                                  CrawlBudget budget, long start, int crawled, AtomicLong bytes, SimHashIndex duplicates,
+                                  Executor fetchExecutor, FutureTask<Integer> seeding) throws IOException {
+        ExecutorService ownExecutor = fetchExecutor == null ? fetchMode.newExecutor(workers) : null;
+        Executor executor = fetchExecutor == null ? ownExecutor : fetchExecutor;
+        ExecutorService parseExecutor = parseStage.isInline() ? null : parseStage.newExecutor();
+        try {
+            if(seeding != null){
+                executor.execute(seeding);
+            }
+            if(parseExecutor == null){
+                CompletionService<Page> pages = new ExecutorCompletionService<>(executor);
+                return getPages(frontier, listener, journal, pages, workers, budget, start, crawled, bytes, seeding,
+                        next -> pages.submit(() -> fetchAndExtract(next, frontier, journal, stringPool, bytes, duplicates)));
+            } else {
+                CompletionService<Page> pages = new ExecutorCompletionService<>(parseExecutor);
+                Semaphore handOff = parseStage.newHandOff();
+                return getPages(frontier, listener, journal, pages, workers + parseStage.capacity(), budget, start, crawled, bytes,
+                        seeding, next -> executor.execute(() -> fetchThenHandOff(next, frontier, journal, stringPool, bytes, duplicates, pages, handOff)));
+            }
+        } finally {
+            if(seeding != null){
+                seeding.cancel(true);
+            }
+            if(ownExecutor != null){
+                ownExecutor.shutdownNow();
+            }
+            if(parseExecutor != null){
+                parseExecutor.shutdownNow();
+            }
+        }
+    }
+
+    //Pages in flight count against the page budget, so it is never overshot. The byte budget is only known
+    //once pages arrive, so it can be overshot by the pages in flight when it runs out.
+    private CrawlOutcome getPages(Frontier frontier, PageListener listener, CrawlJournal journal, CompletionService<Page> pages,
+                                  int maxInFlight, CrawlBudget budget, long start, int crawled, AtomicLong bytes,
+                                  Future<Integer> seeding, Consumer<Frontier.Queued> submit) throws IOException {
+        //The crawl's share of the shared frontier gauge, taken back out when it ends
+        long reportedSize = 0;
+        try {
+            int inFlight = 0;
+            int completed = 0;
+            CrawlOutcome outcome = CrawlOutcome.COMPLETE;
+            //Seeding is checked before the frontier, so pages it queued just before finishing are never missed
+            boolean seedingBefore;
+            while ((seedingBefore = isSeeding(seeding, outcome)) || (!frontier.isEmpty() && outcome == CrawlOutcome.COMPLETE) || inFlight > 0) {
+                Frontier.Queued next;
+                while (inFlight < maxInFlight && outcome == CrawlOutcome.COMPLETE && !frontier.isEmpty()) {
+                    if(budget.isOutOfPages(crawled + inFlight)){
+                        outcome = CrawlOutcome.PAGE_LIMIT;
+                    } else if(bytes != null && budget.isOutOfBytes(bytes.get())){
+                        outcome = CrawlOutcome.BYTE_LIMIT;
+                    } else if(budget.isOutOfTime(start, System.nanoTime())){
+                        outcome = CrawlOutcome.TIME_LIMIT;
+                    } else if((next = frontier.pollQueued()) != null){
+                        submit.accept(next);
+                        inFlight++;
+                    }
+                }
+                Page page;
+                if(seedingBefore && outcome == CrawlOutcome.COMPLETE){
+                    //Sitemap pages are still arriving, so come back to the frontier now and then rather than wait on a fetch
+                    Future<Page> fetched = pollFetched(pages);
+                    if(fetched == null){
+                        continue;
+                    }
+                    page = takeFetched(fetched);
+                } else if(inFlight == 0){
+                    break;
+                } else {
+                    page = takeFetched(pages);
+                }
+                inFlight--;
+                long size = frontier.size();
+                metrics.addFrontierSize(size - reportedSize);
+                reportedSize = size;
+                if(page == null){
+                    //Disallowed by robots.txt or failed to fetch, already marked completed by the worker
+                    continue;
+                }
+                crawled++;
+                listener.onPage(page);
+                journal.completed(page.getKey());
+                if(++completed % CHECKPOINT_INTERVAL == 0){
+                    journal.checkpoint();
+                }
+            }
+            if(seeding != null && seeding.isDone() && !seeding.isCancelled()){
+                //Passes on a journal failure while seeding
+                takeFetched(seeding);
+            }
+            if(outcome == CrawlOutcome.COMPLETE && frontier.getDroppedByDepth() > 0){
+                outcome = CrawlOutcome.DEPTH_LIMIT;
+            } else if(outcome == CrawlOutcome.COMPLETE && frontier.getDroppedByPathCap() > 0){
+                outcome = CrawlOutcome.PATH_LIMIT;
+            }
+            if(outcome != CrawlOutcome.COMPLETE && LOG.isInfoEnabled()){
+                LOG.info("crawl stopped early outcome=" + outcome + " pages=" + crawled + " unvisited=" + frontier.size());
+            }
+            return outcome;
+        } finally {
+            metrics.addFrontierSize(-reportedSize);
+        }
+    }
+
+    private Page fetchAndExtract(Frontier.Queued next, Frontier frontier, CrawlJournal journal, StringPool stringPool,
+                                 AtomicLong bytes, SimHashIndex duplicates) throws IOException {
+        URL linkUrl = next.key.toURL();
+        if(!scheduler.isAllowed(linkUrl)){
+            journal.completed(next.key);
+            return null;
+        }
+        Page page;
+        try {
+            page = getPage(linkUrl, stringPool, bytes);
+        } catch (IOException e) {
+            return skip(next, journal, e);
+        }
+        return expand(page, frontier, next.depth + 1, duplicates);
+    }
+
+    //A page that fails to fetch or is not html only loses that page: the error is already counted, so the url
+    //is marked completed and the crawl goes on. Interrupts still end the crawl.
+    private static Page skip(Frontier.Queued next, CrawlJournal journal, IOException e) throws IOException {
+        if(e instanceof InterruptedIOException && !(e instanceof SocketTimeoutException)){
+            throw e;
+        }
+        journal.completed(next.key);
+        return null;
+    }
+
+    //Runs on a fetch worker: downloads the page, then waits for room in the parse stage before handing it on.
+    //Failures are handed on too, so every url submitted comes back through the parse stage's completions.
+    private void fetchThenHandOff(Frontier.Queued next, Frontier frontier, CrawlJournal journal, StringPool stringPool,
+                                  AtomicLong bytes, SimHashIndex duplicates, CompletionService<Page> pages, Semaphore handOff) {
+        Callable<Page> extract;
+        try {
+            URL linkUrl = next.key.toURL();
+            if(scheduler.isAllowed(linkUrl)){
+                long start = System.nanoTime();
+                FetchResponse response = fetchResponse(linkUrl);
+                if(bytes != null){
+                    bytes.addAndGet(response.getBody().length);
+                }
+                extract = () -> {
+                    Page page;
+                    try {
+                        page = extractPage(linkUrl, response, start, stringPool);
+                    } catch (IOException e) {
+                        return skip(next, journal, e);
+                    }
+                    return expand(page, frontier, next.depth + 1, duplicates);
+                };
+            } else {
+                journal.completed(next.key);
+                extract = () -> null;
+            }
+        } catch (IOException e) {
+            extract = () -> skip(next, journal, e);
+        } catch (RuntimeException e) {
+            extract = () -> {
+                throw e;
+            };
+        }
+
+        try {
+            handOff.acquire();
+        } catch (InterruptedException e) {
+            //Only happens when the crawl is shutting down
+            Thread.currentThread().interrupt();
+            return;
+        }
+        Callable<Page> stage = extract;
+        pages.submit(() -> {
+            try {
+                return stage.call();
+            } finally {
+                handOff.release();
+            }
+        });
+    }
+
+    private Page takeFetched(CompletionService<Page> fetches) throws IOException {
+        try {
+            return takeFetched(fetches.take());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while crawling");
+        }
+    }
+
+    private static boolean isSeeding(Future<Integer> seeding, CrawlOutcome outcome) {
+        return seeding != null && !seeding.isDone() && outcome == CrawlOutcome.COMPLETE;
+    }
+
+    private Future<Page> pollFetched(CompletionService<Page> fetches) throws IOException {
+        try {
+            return fetches.poll(SEEDING_POLL_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while crawling");
+        }
+    }
+
+    private <T> T takeFetched(Future<T> fetch) throws IOException {
+        try {
+            return fetch.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while crawling");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if(cause instanceof IOException){
+                throw (IOException) cause;
+            }
+            if(cause instanceof RuntimeException){
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    //Marks the page when it near duplicates one already crawled, then offers its links unless duplicates are not expanded.
+    //Pages race to the index, so of two duplicates crawled at once either may end up the one marked.
+    private Page expand(Page page, Frontier frontier, int depth, SimHashIndex duplicates) throws IOException {
+        if(duplicates != null){
+            UrlKey original = duplicates.findOrAdd(page.getPageDetails().getFingerprint(), page.getKey());
+            if(original != null){
+                metrics.recordDuplicatePage();
+                if(LOG.isDebugEnabled()){
+                    LOG.debug("near duplicate url=" + page.getUrl() + " of=" + original);
+                }
+                page = new Page(page.getUrl(), page.getPageDetails(), original);
+                if(duplicatePolicy == DuplicatePolicy.SKIP_LINKS){
+                    return page;
+                }
+            }
+        }
+        addLinksToFrontier(page, frontier, depth);
+        return page;
+    }
+
+    private void addLinksToFrontier(Page page, Frontier frontier, int depth) throws IOException {
+        String origin = UrlKey.origin(page.getUrl());
+
+        for (String link : page.getPageDetails().getLinks()) {
+            metrics.recordLinkOffered(!frontier.offer(UrlKey.fromOrigin(origin, link), depth));
+        }
+    }
+
+    //Pages keep their links and assets as ids into the crawl's string pool rather than their own sets
+    private Page getPage(URL url, StringPool stringPool) throws IOException {
+        Objects.requireNonNull(url, "You must supply a url to crawl");
+        long start = System.nanoTime();
+        PageDetails pageDetails;
+        hostLimiter.acquire(url);
+        try {
+            pageDetails = scheduler.fetch(url, () -> HTMLScraper.getPageAssets(url));
+        } catch (IOException | RuntimeException e) {
+            failed(url, e);
+            throw e;
+        } finally {
+            hostLimiter.release(url);
+        }
+        return crawled(url, pageDetails, start, stringPool);
+    }
+
+    //With a byte budget pages are fetched and extracted in two steps, so the size of each response can be counted
+    private Page getPage(URL url, StringPool stringPool, AtomicLong bytes) throws IOException {
+        if(bytes == null){
+            return getPage(url, stringPool);
+        }
+        long start = System.nanoTime();
+        FetchResponse response = fetchResponse(url);
+        bytes.addAndGet(response.getBody().length);
+        return extractPage(url, response, start, stringPool);
+    }
+
+    private FetchResponse fetchResponse(URL url) throws IOException {
+        hostLimiter.acquire(url);
+        try {
+            return scheduler.fetch(url, () -> HTMLScraper.fetch(url));
+        } catch (IOException | RuntimeException e) {
+            failed(url, e);
+            throw e;
+        } finally {
+            hostLimiter.release(url);
+        }
+    }
+
+    private Page extractPage(URL url, FetchResponse response, long start, StringPool stringPool) throws IOException {
+        PageDetails pageDetails;
+        try {
+            pageDetails = HTMLScraper.extract(url, response);
+        } catch (IOException | RuntimeException e) {
+            failed(url, e);
+            throw e;
+        }
+        return crawled(url, pageDetails, start, stringPool);
+    }
+
+    private Page crawled(URL url, PageDetails pageDetails, long start, StringPool stringPool) {
+        metrics.recordPageCrawled();
+        if(LOG.isDebugEnabled()){
+            LOG.debug("crawled url=" + url + " links=" + pageDetails.getLinks().size() + " assets=" + pageDetails.getAssets().size()
+                    + " millis=" + (System.nanoTime() - start) / 1_000_000);
+        }
+        return new Page(url, pageDetails.intern(stringPool));
+    }
+
+    private void failed(URL url, Exception e) {
+        metrics.recordError(e);
+        LOG.warn("fetch failed url=" + url + " error=" + e);
+    }
+
+}
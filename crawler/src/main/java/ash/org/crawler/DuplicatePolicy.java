@@ -0,0 +1,11 @@
+package ash.org.crawler;
+
+//What a crawl does with a page whose text is a near duplicate, by SimHash, of a page it crawled before
+public enum DuplicatePolicy {
+    //Duplicates are not looked for
+    OFF,
+    //Duplicates are crawled as usual and marked with the page they duplicate
+    MARK,
+    //Duplicates are marked and their links are not followed, pruning print views, tag listings and the like
+    SKIP_LINKS
+}
@@ -0,0 +1,10 @@
+package ash.org.crawler;
+
+public enum ExtractionMode {
+
+    //Parse each page into a jsoup Document and query it per tag
+    DOM,
+
+    //Tokenize the raw html once with the StreamingExtractor, no DOM is built
+    STREAMING
+}
@@ -0,0 +1,243 @@
+package ash.org.crawler;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+//Fixed pool of workers shared by many crawls. Each crawl submits through its own lane, and workers take
+//one task from each lane with work waiting in turn, so a site with a deep frontier can not starve the rest.
+//A lane can be given the time its host still wants left between fetches, and holds its tasks until then so
+//a site with a long crawl delay does not tie up workers sleeping. Such a lane lets one task go at a time: the
+//next waits until that one has taken its slot from the host, told through onReserved, or has finished. Else
+//every idle worker would see the host ready at once, and all but one would sleep out a delay each.
+public class FairWorkerPool implements Closeable {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition ready = lock.newCondition();
+    //Lanes with tasks waiting, in the order they will next be served
+    private final Queue<Lane> readyLanes = new ArrayDeque<>();
+    private final List<Thread> workers = new ArrayList<>();
+    //The task from a held back lane each worker is running, if any
+    private final ThreadLocal<Released> running = new ThreadLocal<>();
+    private boolean closed;
+
+    public FairWorkerPool(int threads) {
+        if(threads < 1){
+            throw new IllegalArgumentException("Must have at least one worker");
+        }
+        for (int x = 0; x < threads; x++) {
+            Thread worker = new Thread(this::work, "crawl-worker-" + x);
+            worker.setDaemon(true);
+            workers.add(worker);
+        }
+        workers.forEach(Thread::start);
+    }
+
+    public Lane newLane(String name) {
+        Objects.requireNonNull(name);
+        return new Lane(name, null);
+    }
+
+    //waitNanos says how long until the lane's host is ready for another fetch, it is called holding the pool's lock
+    public Lane newLane(String name, LongSupplier waitNanos) {
+        Objects.requireNonNull(name);
+        Objects.requireNonNull(waitNanos);
+        return new Lane(name, waitNanos);
+    }
+
+    public int getWorkers() {
+        return workers.size();
+    }
+
+    //Stops the workers, interrupting the tasks still running and dropping the ones queued
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            readyLanes.forEach(lane -> lane.tasks.clear());
+            readyLanes.clear();
+            ready.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        workers.forEach(Thread::interrupt);
+    }
+
+    private void work() {
+        Runnable task;
+        while ((task = next()) != null) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                //Tasks report their own failures, typically through a future, one must not take the worker down
+            }
+            //Clears an interrupt aimed at a task that has finished so it does not leak into the next one
+            Thread.interrupted();
+        }
+    }
+
+    private Runnable next() {
+        lock.lock();
+        try {
+            while (!closed) {
+                //The first lane in turn whose host is ready, or else how long until the soonest one is
+                long soonest = Long.MAX_VALUE;
+                for (Iterator<Lane> lanes = readyLanes.iterator(); lanes.hasNext(); ) {
+                    Lane lane = lanes.next();
+                    if(lane.unreserved > 0){
+                        //Its last task has not taken its slot yet, so the host's wait is not up to date
+                        continue;
+                    }
+                    long wait = lane.waitNanos == null ? 0 : lane.waitNanos.getAsLong();
+                    if(wait > 0){
+                        soonest = Math.min(soonest, wait);
+                        continue;
+                    }
+                    lanes.remove();
+                    Runnable task = lane.tasks.poll();
+                    if(lane.tasks.isEmpty()){
+                        lane.waiting = false;
+                    } else {
+                        readyLanes.add(lane);
+                    }
+                    if(lane.waitNanos == null){
+                        return task;
+                    }
+                    lane.unreserved++;
+                    return new Released(lane, task);
+                }
+                if(soonest == Long.MAX_VALUE){
+                    ready.awaitUninterruptibly();
+                } else {
+                    try {
+                        ready.awaitNanos(soonest);
+                    } catch (InterruptedException e) {
+                        //close interrupts the workers, which the loop sees through closed
+                    }
+                }
+            }
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //A task let go from a lane that holds back its tasks, until it takes its slot or finishes
+    private final class Released implements Runnable {
+
+        private final Lane lane;
+        private final Runnable task;
+        private boolean settled;
+
+        private Released(Lane lane, Runnable task) {
+            this.lane = lane;
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            running.set(this);
+            try {
+                task.run();
+            } finally {
+                running.remove();
+                settle();
+            }
+        }
+
+        private void settle() {
+            lock.lock();
+            try {
+                if(!settled){
+                    settled = true;
+                    lane.unreserved--;
+                    ready.signal();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    //One crawl's queue of tasks within the pool
+    public class Lane implements Executor {
+
+        private final String name;
+        //Null for a lane that lets its tasks go as soon as a worker is free
+        private final LongSupplier waitNanos;
+        private final Queue<Runnable> tasks = new ArrayDeque<>();
+        private boolean waiting;
+        private int unreserved;
+
+        private Lane(String name, LongSupplier waitNanos) {
+            this.name = name;
+            this.waitNanos = waitNanos;
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            Objects.requireNonNull(task);
+            lock.lock();
+            try {
+                if(closed){
+                    throw new RejectedExecutionException("Worker pool is closed");
+                }
+                tasks.add(task);
+                if(!waiting){
+                    waiting = true;
+                    readyLanes.add(this);
+                }
+                ready.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        //Called from a task of this lane once it holds its slot with the host, so the lane can let the next one
+        //go when the host is ready again rather than once this one finishes. Does nothing from any other thread.
+        public void onReserved() {
+            Released released = running.get();
+            if(released != null && released.lane == this){
+                released.settle();
+            }
+        }
+
+        //Drops the tasks not yet started, for when the crawl they belong to has given up on them
+        public void clear() {
+            lock.lock();
+            try {
+                tasks.clear();
+                if(waiting){
+                    waiting = false;
+                    readyLanes.remove(this);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public int getQueued() {
+            lock.lock();
+            try {
+                return tasks.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "Lane{" + name + '}';
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package ash.org.crawler;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public enum FetchMode {
+
+    PLATFORM_THREADS {
+        @Override
+        public ExecutorService newExecutor(int workers) {
+            return Executors.newFixedThreadPool(workers);
+        }
+    },
+
+    //One virtual thread per fetch where the JDK has them (21+), otherwise an unbounded platform pool
+    VIRTUAL_THREADS {
+        @Override
+        public ExecutorService newExecutor(int workers) {
+            if(VIRTUAL_EXECUTOR_FACTORY == null){
+                return Executors.newCachedThreadPool();
+            }
+            try {
+                return (ExecutorService) VIRTUAL_EXECUTOR_FACTORY.invoke(null);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Unable to create virtual thread executor", e);
+            }
+        }
+    };
+
+    private static final Method VIRTUAL_EXECUTOR_FACTORY = findVirtualExecutorFactory();
+
+    public abstract ExecutorService newExecutor(int workers);
+
+    public static boolean virtualThreadsSupported() {
+        return VIRTUAL_EXECUTOR_FACTORY != null;
+    }
+
+    private static Method findVirtualExecutorFactory() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
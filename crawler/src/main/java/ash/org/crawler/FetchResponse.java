@@ -0,0 +1,119 @@
+package ash.org.crawler;
+
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
+import java.nio.charset.UnsupportedCharsetException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+//Status, headers and decoded body bytes of a fetched url. The body may be short of what the server sent,
+//see ResponseLimits: cut off at the byte cap, or empty when the content was not text.
+public class FetchResponse {
+
+    private final URL url;
+    private final int statusCode;
+    private final Map<String, List<String>> headers;
+    private final byte[] body;
+    private final String sniffedContentType;
+    private final boolean truncated;
+
+    public FetchResponse(URL url, int statusCode, Map<String, List<String>> headers, byte[] body) {
+        this(url, statusCode, headers, body, null, false);
+    }
+
+    //The sniffed content type stands in for a missing Content-Type header
+    public FetchResponse(URL url, int statusCode, Map<String, List<String>> headers, byte[] body, String sniffedContentType, boolean truncated) {
+        Objects.requireNonNull(url);
+        Objects.requireNonNull(headers);
+        Objects.requireNonNull(body);
+        this.url = url;
+        this.statusCode = statusCode;
+        this.headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        this.headers.putAll(headers);
+        this.body = body;
+        this.sniffedContentType = sniffedContentType;
+        this.truncated = truncated;
+    }
+
+    public URL getUrl() {
+        return url;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    //First value of the header, names are case insensitive
+    public String header(String name) {
+        List<String> values = headers.getOrDefault(name, Collections.emptyList());
+        return values.isEmpty() ? null : values.get(0);
+    }
+
+    public byte[] getBody() {
+        return body;
+    }
+
+    public String getContentType() {
+        String contentType = header("Content-Type");
+        return contentType == null ? sniffedContentType : contentType;
+    }
+
+    //True when the body was cut off at the response byte cap
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    //The types jsoup would parse: text/*, application/xml and application/*+xml. Unknown types count as text.
+    public static boolean isText(String contentType) {
+        if(contentType == null){
+            return true;
+        }
+        String mimeType = contentType.toLowerCase(Locale.ROOT);
+        return mimeType.startsWith("text/") || mimeType.startsWith("application/xml") || mimeType.matches("application/\\w+\\+xml.*");
+    }
+
+    //Charset named by the Content-Type header, or null when the header doesn't say
+    public String getCharset() {
+        String contentType = getContentType();
+        if(contentType == null){
+            return null;
+        }
+        for (String parameter : contentType.split(";")) {
+            String trimmed = parameter.trim();
+            if(trimmed.toLowerCase(Locale.ROOT).startsWith("charset=")){
+                String charset = trimmed.substring("charset=".length()).replace("\"", "").trim();
+                try {
+                    return Charset.isSupported(charset) ? charset : null;
+                } catch (IllegalCharsetNameException e) {
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+
+    public String getBodyAsString() {
+        String charset = getCharset();
+        try {
+            return new String(body, charset == null ? StandardCharsets.UTF_8 : Charset.forName(charset));
+        } catch (UnsupportedCharsetException e) {
+            return new String(body, StandardCharsets.UTF_8);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "FetchResponse{" +
+                "url=" + url +
+                ", statusCode=" + statusCode +
+                ", bytes=" + body.length +
+                (truncated ? ", truncated" : "") +
+                '}';
+    }
+}
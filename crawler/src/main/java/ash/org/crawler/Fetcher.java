@@ -0,0 +1,34 @@
+package ash.org.crawler;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Collections;
+import java.util.Map;
+
+//Downloads the raw bytes of a url, leaving parsing to the HTMLParser
+public interface Fetcher {
+
+    FetchResponse fetch(URL url, Map<String, String> requestHeaders) throws IOException;
+
+    //Status and headers without the body, a plain fetch for fetchers that can not ask for less
+    default FetchResponse head(URL url) throws IOException {
+        return fetch(url, Collections.emptyMap());
+    }
+
+    //Hands the decoded body to the reader as it downloads, whatever its size or type, for bodies too big to hold
+    //such as sitemaps. The response passed along has the status and headers but no body. Fetchers that can not
+    //stream read the body with a plain fetch first.
+    default <T> T stream(URL url, BodyReader<T> reader) throws IOException {
+        FetchResponse response = fetch(url, Collections.emptyMap());
+        try (InputStream body = new ByteArrayInputStream(response.getBody())) {
+            return reader.read(response, body);
+        }
+    }
+
+    @FunctionalInterface
+    interface BodyReader<T> {
+        T read(FetchResponse response, InputStream body) throws IOException;
+    }
+}
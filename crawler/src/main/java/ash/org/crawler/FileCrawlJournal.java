@@ -0,0 +1,225 @@
+package ash.org.crawler;
+
+import ash.org.domain.UrlKey;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+//Disk backed crawl journal: an append-only log of claimed and completed urls plus a compact index
+//holding the state as of the last compaction. Each record is one line, "<type> <url>", claims also carry
+//the depth the url was found at as "C <depth> <url>". Claims without a depth count as depth 0. A torn last line
+//left by a crash is ignored, and replaying records twice is harmless, so the log can always be replayed
+//on top of the index. Pages handed to the listener after the last checkpoint are crawled again on resume.
+public class FileCrawlJournal implements CrawlJournal, Closeable {
+
+    public static final String INDEX_FILE = "frontier.index";
+    public static final String LOG_FILE = "frontier.log";
+
+    private static final char HOME = 'H';
+    private static final char CLAIMED = 'C';
+    private static final char COMPLETED = 'D';
+
+    private final Path directory;
+    private final URL homePage;
+    //Claimed urls in claim order, with their depths
+    private Map<UrlKey, Integer> claimed;
+    private Set<UrlKey> completed;
+    private FileChannel logChannel;
+    private Writer log;
+
+    private FileCrawlJournal(Path directory, URL homePage, Map<UrlKey, Integer> claimed, Set<UrlKey> completed) {
+        this.directory = directory;
+        this.homePage = homePage;
+        this.claimed = claimed;
+        this.completed = completed;
+    }
+
+    public static FileCrawlJournal create(Path directory, URL homePage) throws IOException {
+        Objects.requireNonNull(directory);
+        Objects.requireNonNull(homePage);
+        Files.createDirectories(directory);
+        FileCrawlJournal journal = new FileCrawlJournal(directory, homePage, new LinkedHashMap<>(), new HashSet<>());
+        journal.compact();
+        return journal;
+    }
+
+    public static FileCrawlJournal open(Path directory) throws IOException {
+        Objects.requireNonNull(directory);
+        Path index = directory.resolve(INDEX_FILE);
+        if(!Files.exists(index)){
+            throw new IOException("No crawl checkpoint in " + directory);
+        }
+
+        Replay replay = new Replay();
+        replay.read(index);
+        replay.read(directory.resolve(LOG_FILE));
+        if(replay.homePage == null){
+            throw new IOException("Crawl checkpoint in " + directory + " has no home page");
+        }
+
+        FileCrawlJournal journal = new FileCrawlJournal(directory, replay.homePage, replay.claimed, replay.completed);
+        journal.compact();
+        return journal;
+    }
+
+    public URL getHomePage() {
+        return homePage;
+    }
+
+    //Re-queues everything claimed but not completed, in the order it was claimed
+    public void restore(Frontier frontier) {
+        claimed.forEach((key, depth) -> frontier.restore(key, depth, !completed.contains(key)));
+        claimed = null;
+        completed = null;
+    }
+
+    @Override
+    public synchronized void claimed(UrlKey key, int depth) throws IOException {
+        append(CLAIMED, depth + " " + key);
+    }
+
+    @Override
+    public synchronized void completed(UrlKey key) throws IOException {
+        append(COMPLETED, key.toString());
+    }
+
+    @Override
+    public synchronized void checkpoint() throws IOException {
+        log.flush();
+        logChannel.force(false);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if(log != null){
+            checkpoint();
+            log.close();
+            log = null;
+        }
+    }
+
+    //Rewrites the index from the loaded state and starts a fresh log
+    private void compact() throws IOException {
+        Path index = directory.resolve(INDEX_FILE);
+        Path tempIndex = directory.resolve(INDEX_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(tempIndex, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+             Writer writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), -1))) {
+            writeRecord(writer, HOME, homePage.toString());
+            for (Map.Entry<UrlKey, Integer> claim : claimed.entrySet()) {
+                UrlKey key = claim.getKey();
+                if(completed.contains(key)){
+                    writeRecord(writer, COMPLETED, key.toString());
+                } else {
+                    writeRecord(writer, CLAIMED, claim.getValue() + " " + key);
+                }
+            }
+            writer.flush();
+            channel.force(true);
+        }
+        Files.move(tempIndex, index, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        logChannel = FileChannel.open(directory.resolve(LOG_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        log = new BufferedWriter(Channels.newWriter(logChannel, StandardCharsets.UTF_8.newEncoder(), -1));
+    }
+
+    private void append(char type, String record) throws IOException {
+        writeRecord(log, type, record);
+    }
+
+    private static void writeRecord(Writer writer, char type, String record) throws IOException {
+        writer.write(type);
+        writer.write(' ');
+        writer.write(record);
+        writer.write('\n');
+    }
+
+    private static class Replay {
+
+        private URL homePage;
+        private final Map<UrlKey, Integer> claimed = new LinkedHashMap<>();
+        private final Set<UrlKey> completed = new HashSet<>();
+
+        void read(Path file) throws IOException {
+            if(!Files.exists(file)){
+                return;
+            }
+            boolean lastLineComplete = endsWithNewLine(file);
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                String line = reader.readLine();
+                while (line != null) {
+                    String next = reader.readLine();
+                    if(next != null || lastLineComplete){
+                        apply(line);
+                    }
+                    line = next;
+                }
+            }
+        }
+
+        private void apply(String line) throws IOException {
+            if(line.length() < 3 || line.charAt(1) != ' '){
+                throw new IOException("Corrupt crawl checkpoint record: " + line);
+            }
+            String record = line.substring(2);
+            switch (line.charAt(0)) {
+                case HOME:
+                    homePage = new URL(record);
+                    break;
+                case CLAIMED:
+                    //Urls start with their scheme, so a leading digit is a depth
+                    int space = record.indexOf(' ');
+                    int depth = 0;
+                    if(space > 0 && Character.isDigit(record.charAt(0))){
+                        depth = parseDepth(record.substring(0, space), line);
+                        record = record.substring(space + 1);
+                    }
+                    claimed.put(UrlKey.of(new URL(record)), depth);
+                    break;
+                case COMPLETED:
+                    UrlKey key = UrlKey.of(new URL(record));
+                    claimed.putIfAbsent(key, 0);
+                    completed.add(key);
+                    break;
+                default:
+                    throw new IOException("Corrupt crawl checkpoint record: " + line);
+            }
+        }
+
+        private static int parseDepth(String depth, String line) throws IOException {
+            try {
+                return Integer.parseInt(depth);
+            } catch (NumberFormatException e) {
+                throw new IOException("Corrupt crawl checkpoint record: " + line);
+            }
+        }
+
+        private static boolean endsWithNewLine(Path file) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                long size = channel.size();
+                if(size == 0){
+                    return true;
+                }
+                ByteBuffer last = ByteBuffer.allocate(1);
+                channel.read(last, size - 1);
+                return last.get(0) == '\n';
+            }
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package ash.org.crawler;
+
+import ash.org.domain.UrlKey;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//Queue of urls still to crawl, safe to be fed from many fetch workers. Breadth first by default, or highest
+//score first under a UrlScorer: one queue per score, polled from the top score down, first in first out
+//within a score. A further link to a queued url rescores it, and when that raises its score it is queued
+//again under the new one, the copy left behind being skipped when it comes up.
+//Links deeper than the budget's max depth, or past one of its path caps, are turned away as they are offered.
+public class Frontier {
+
+    private final UrlScorer scorer;
+    //Index is the score, breadth first needs just the one
+    private final Queue<Queued>[] buckets;
+    //Scored urls still queued, by key, holding the entry that is current
+    private final ConcurrentMap<UrlKey, Queued> pending;
+    //ConcurrentLinkedQueue.size walks the whole queue, so the length is tracked alongside it
+    private final AtomicInteger queued = new AtomicInteger();
+    private final VisitedUrlSet visited;
+    private final CrawlJournal journal;
+    private final CrawlBudget budget;
+    //Urls admitted so far under each of the budget's path caps, in the same order
+    private final AtomicInteger[] pathCounts;
+    private final AtomicInteger droppedByDepth = new AtomicInteger();
+    private final AtomicInteger droppedByPathCap = new AtomicInteger();
+
+    public Frontier() {
+        this(CrawlJournal.NONE);
+    }
+
+    public Frontier(CrawlJournal journal) {
+        this(journal, new HeapVisitedUrlSet());
+    }
+
+    public Frontier(CrawlJournal journal, VisitedUrlSet visited) {
+        this(journal, visited, CrawlBudget.UNLIMITED);
+    }
+
+    public Frontier(CrawlJournal journal, VisitedUrlSet visited, CrawlBudget budget) {
+        this(journal, visited, budget, UrlScorer.BREADTH_FIRST);
+    }
+
+    @SuppressWarnings("unchecked")
+    public Frontier(CrawlJournal journal, VisitedUrlSet visited, CrawlBudget budget, UrlScorer scorer) {
+        Objects.requireNonNull(journal);
+        Objects.requireNonNull(visited);
+        Objects.requireNonNull(budget);
+        Objects.requireNonNull(scorer);
+        this.scorer = scorer;
+        this.buckets = new Queue[isScored() ? UrlScorer.MAX_SCORE + 1 : 1];
+        for (int x = 0; x < buckets.length; x++) {
+            buckets[x] = new ConcurrentLinkedQueue<>();
+        }
+        this.pending = isScored() ? new ConcurrentHashMap<>() : null;
+        this.journal = journal;
+        this.visited = visited;
+        this.budget = budget;
+        this.pathCounts = new AtomicInteger[budget.getPathCaps().size()];
+        for (int x = 0; x < pathCounts.length; x++) {
+            pathCounts[x] = new AtomicInteger();
+        }
+    }
+
+    public boolean visit(URL url) throws IOException {
+        Objects.requireNonNull(url);
+        UrlKey key = UrlKey.of(url);
+        if(visited.add(key)){
+            journal.claimed(key, 0);
+            return true;
+        }
+        return false;
+    }
+
+    public boolean offer(URL url) throws IOException {
+        Objects.requireNonNull(url);
+        return offer(UrlKey.of(url));
+    }
+
+    public boolean offer(UrlKey key) throws IOException {
+        return offer(key, 0);
+    }
+
+    //Depth is the number of links followed from the home page to reach the url
+    public boolean offer(UrlKey key, int depth) throws IOException {
+        if(depth > budget.getMaxDepth()){
+            if(visited.contains(key)){
+                //A link back to a page already found, such as the home page, is not something the cap cut off
+                if(isScored()){
+                    addInLink(key);
+                }
+            } else {
+                //Not marked visited, a shorter path to the same url may still turn up
+                droppedByDepth.incrementAndGet();
+            }
+            return false;
+        }
+        if(!visited.add(key)){
+            if(isScored()){
+                addInLink(key);
+            }
+            return false;
+        }
+        if(!withinPathCaps(key)){
+            //Stays visited, the cap only fills up so it would be turned away again
+            droppedByPathCap.incrementAndGet();
+            return false;
+        }
+        journal.claimed(key, depth);
+        enqueue(key, depth);
+        return true;
+    }
+
+    //A url listed in the site's sitemaps, the scorer told its priority before it is scored
+    public boolean offer(UrlKey key, int depth, double sitemapPriority) throws IOException {
+        scorer.onSitemapPriority(key, sitemapPriority);
+        return offer(key, depth);
+    }
+
+    //Reloads a url from a checkpoint without journaling it again, at the depth it was journaled with
+    public void restore(UrlKey key, int depth, boolean pending) {
+        if(visited.add(key) && pending){
+            enqueue(key, depth);
+        }
+    }
+
+    private void enqueue(UrlKey key, int depth) {
+        queued.incrementAndGet();
+        if(!isScored()){
+            buckets[0].add(new Queued(key, depth, 0, 1));
+            return;
+        }
+        Queued entry = new Queued(key, depth, score(key, depth, 1), 1);
+        pending.put(key, entry);
+        buckets[entry.score].add(entry);
+    }
+
+    private void addInLink(UrlKey key) {
+        Queued[] raised = new Queued[1];
+        pending.computeIfPresent(key, (k, entry) -> {
+            entry.inLinks++;
+            int score = score(key, entry.depth, entry.inLinks);
+            if(score <= entry.score){
+                return entry;
+            }
+            raised[0] = new Queued(key, entry.depth, score, entry.inLinks);
+            return raised[0];
+        });
+        if(raised[0] != null){
+            buckets[raised[0].score].add(raised[0]);
+        }
+    }
+
+    private int score(UrlKey key, int depth, int inLinks) {
+        return Math.max(0, Math.min(UrlScorer.MAX_SCORE, scorer.score(key, depth, inLinks)));
+    }
+
+    private boolean isScored() {
+        return scorer != UrlScorer.BREADTH_FIRST;
+    }
+
+    public UrlKey poll() {
+        Queued next = pollQueued();
+        return next == null ? null : next.key;
+    }
+
+    Queued pollQueued() {
+        for (int score = buckets.length - 1; score >= 0; score--) {
+            Queued next;
+            while ((next = buckets[score].poll()) != null) {
+                //A url whose score was raised stays behind in its old queue, only its current entry counts
+                if(!isScored() || pending.remove(next.key, next)){
+                    queued.decrementAndGet();
+                    return next;
+                }
+            }
+        }
+        return null;
+    }
+
+    private boolean withinPathCaps(UrlKey key) {
+        if(pathCounts.length == 0){
+            return true;
+        }
+        String path = key.getPath();
+        List<CrawlBudget.PathCap> caps = budget.getPathCaps();
+        for (int x = 0; x < pathCounts.length; x++) {
+            CrawlBudget.PathCap cap = caps.get(x);
+            if(cap.matches(path) && pathCounts[x].incrementAndGet() > cap.getMaxPages()){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean isEmpty() {
+        return queued.get() == 0;
+    }
+
+    public int size() {
+        return queued.get();
+    }
+
+    public int visitedCount() {
+        return visited.size();
+    }
+
+    //Offers turned away for being too deep, a crawl that had any did not reach the whole site
+    public int getDroppedByDepth() {
+        return droppedByDepth.get();
+    }
+
+    public int getDroppedByPathCap() {
+        return droppedByPathCap.get();
+    }
+
+    //A queued url with the depth it was found at and the score it is queued under
+    static final class Queued {
+
+        final UrlKey key;
+        final int depth;
+        final int score;
+        //Only changed under the pending map's lock for the key
+        int inLinks;
+
+        Queued(UrlKey key, int depth, int score, int inLinks) {
+            this.key = key;
+            this.depth = depth;
+            this.score = score;
+            this.inLinks = inLinks;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package ash.org.crawler;
+
+import org.jsoup.HttpStatusException;
+import org.jsoup.Jsoup;
+import org.jsoup.UnsupportedMimeTypeException;
+import org.jsoup.nodes.Document;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+//Fetches pages through a Fetcher and parses the downloaded bytes with jsoup
+public class HTMLParser {
+
+    public static final int NOT_MODIFIED = 304;
+
+    private final Fetcher fetcher;
+    private final CrawlMetrics metrics;
+
+    public HTMLParser(int timeout) {
+        this(new HttpClientFetcher(timeout, timeout));
+    }
+
+    public HTMLParser(Fetcher fetcher) {
+        this(fetcher, CrawlMetrics.global());
+    }
+
+    public HTMLParser(Fetcher fetcher, CrawlMetrics metrics) {
+        Objects.requireNonNull(metrics);
+        this.fetcher = fetcher;
+        this.metrics = metrics;
+    }
+
+    public Document parse(URL url) throws IOException {
+        Objects.requireNonNull(url);
+        return parseResponse(fetchResponse(url));
+    }
+
+    public Document parseResponse(FetchResponse response) {
+        long start = System.nanoTime();
+        Document document;
+        try {
+            document = Jsoup.parse(new ByteArrayInputStream(response.getBody()), response.getCharset(), response.getUrl().toString());
+        } catch (IOException e) {
+            //Only thrown by the underlying stream, which here is an in memory array
+            throw new UncheckedIOException(e);
+        }
+        metrics.recordParse(System.nanoTime() - start);
+        return document;
+    }
+
+    public String fetch(URL url) throws IOException {
+        return fetchResponse(url).getBodyAsString();
+    }
+
+    //Downloads the page without parsing it, failing on the same statuses and content types parse does
+    public FetchResponse fetchResponse(URL url) throws IOException {
+        Objects.requireNonNull(url);
+        return checkResponse(timedFetch(url, Collections.emptyMap()));
+    }
+
+    //Conditional GET, the response is a 304 with no body when the page still matches the validators
+    public FetchResponse fetchIfModified(URL url, String eTag, String lastModified) throws IOException {
+        Objects.requireNonNull(url);
+        Map<String, String> headers = new HashMap<>();
+        if(eTag != null){
+            headers.put("If-None-Match", eTag);
+        }
+        if(lastModified != null){
+            headers.put("If-Modified-Since", lastModified);
+        }
+        FetchResponse response = timedFetch(url, headers);
+        return response.getStatusCode() == NOT_MODIFIED ? response : checkResponse(response);
+    }
+
+    private FetchResponse timedFetch(URL url, Map<String, String> headers) throws IOException {
+        long start = System.nanoTime();
+        FetchResponse response = fetcher.fetch(url, headers);
+        metrics.recordFetch(System.nanoTime() - start, response.getBody().length);
+        return response;
+    }
+
+    //Same rules jsoup applied when it fetched pages itself: errors and non text content fail the fetch
+    private FetchResponse checkResponse(FetchResponse response) throws IOException {
+        int status = response.getStatusCode();
+        String url = response.getUrl().toString();
+        if(ThrottledException.isThrottled(status)){
+            throw new ThrottledException(status, url, retryAfterMillis(response.header("Retry-After")));
+        }
+        if(status < 200 || status >= 400){
+            throw new HttpStatusException("HTTP error fetching URL", status, url);
+        }
+
+        String contentType = response.getContentType();
+        if(!FetchResponse.isText(contentType)){
+            throw new UnsupportedMimeTypeException("Unhandled content type. Must be text/*, application/xml, or application/xhtml+xml", contentType, url);
+        }
+        return response;
+    }
+
+    //Only the delta-seconds form of Retry-After is honoured, dates are treated as absent
+    private long retryAfterMillis(String retryAfter) {
+        if(retryAfter == null){
+            return 0;
+        }
+        try {
+            return Math.max(0, Long.parseLong(retryAfter.trim()) * 1000);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package ash.org.crawler;
+
+import ash.org.domain.PageDetails;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+
+import static java.util.stream.Collectors.toSet;
+
+public class HTMLScraper {
+
+    public static final String LINK_TAG = "link";
+    public static final String IMG_TAG = "img";
+    public static final String SCRIPT_TAG = "script";
+    public static final String ANCHOR_TAG = "a";
+
+    public static final String TYPE_ATTR = "type";
+    public static final String HREF_ATTR = "href";
+    public static final String SRC_ATTR = "src";
+
+    public static final String HTTPS_PREFIX = "https://";
+    public static final String HTTP_PREFIX = "http://";
+
+    public static final String TYPE_CSS = "text/css";
+    private final HTMLParser htmlParser;
+    private final ExtractionMode extractionMode;
+    private final PageCache pageCache;
+    private final CrawlMetrics metrics;
+    private final LinkNormalizer linkNormalizer = new LinkNormalizer();
+
+    public HTMLScraper(int timeout){
+        this(new HTMLParser(timeout));
+    }
+
+    public HTMLScraper(HTMLParser htmlParser){
+        this(htmlParser, ExtractionMode.DOM);
+    }
+
+    public HTMLScraper(HTMLParser htmlParser, ExtractionMode extractionMode){
+        this(htmlParser, extractionMode, null);
+    }
+
+    //With a cache, pages are fetched conditionally and unchanged pages reuse their cached details
+    public HTMLScraper(HTMLParser htmlParser, ExtractionMode extractionMode, PageCache pageCache){
+        this(htmlParser, extractionMode, pageCache, CrawlMetrics.global());
+    }
+
+    public HTMLScraper(HTMLParser htmlParser, ExtractionMode extractionMode, PageCache pageCache, CrawlMetrics metrics){
+        Objects.requireNonNull(extractionMode);
+        Objects.requireNonNull(metrics);
+        this.htmlParser = htmlParser;
+        this.extractionMode = extractionMode;
+        this.pageCache = pageCache;
+        this.metrics = metrics;
+    }
+
+
+    public PageDetails getPageAssets(URL url) throws IOException {
+        if(pageCache != null){
+            return getCachedPageAssets(url);
+        }
+        if(extractionMode == ExtractionMode.STREAMING){
+            return getStreamedPageAssets(url);
+        }
+
+        return getPageAssets(url, htmlParser.parse(url));
+    }
+
+    private PageDetails getCachedPageAssets(URL url) throws IOException {
+        return extract(url, fetch(url));
+    }
+
+    //The I/O bound half of getPageAssets, for crawls that fetch and extract on separate pools
+    public FetchResponse fetch(URL url) throws IOException {
+        Objects.requireNonNull(url);
+        if(pageCache == null){
+            return htmlParser.fetchResponse(url);
+        }
+        CachedPage cachedPage = pageCache.get(url);
+        return cachedPage == null
+                ? htmlParser.fetchIfModified(url, null, null)
+                : htmlParser.fetchIfModified(url, cachedPage.getETag(), cachedPage.getLastModified());
+    }
+
+    //The CPU bound half of getPageAssets, turning a fetched response into the page's details
+    public PageDetails extract(URL url, FetchResponse response) throws IOException {
+        Objects.requireNonNull(url);
+        Objects.requireNonNull(response);
+        if(pageCache == null){
+            if(extractionMode == ExtractionMode.STREAMING){
+                return getStreamedPageAssets(url, response.getBodyAsString());
+            }
+            return getPageAssets(url, htmlParser.parseResponse(response));
+        }
+
+        if(response.getStatusCode() == HTMLParser.NOT_MODIFIED){
+            CachedPage cachedPage = pageCache.get(url);
+            if(cachedPage == null){
+                throw new IOException("Not modified response for uncached URL " + url);
+            }
+            return cachedPage.getPageDetails();
+        }
+
+        PageDetails pageDetails = getPageAssets(url, response.getBodyAsString());
+        CachedPage fetchedPage = new CachedPage(response.header("ETag"), response.header("Last-Modified"), pageDetails);
+        if(fetchedPage.hasValidators()){
+            pageCache.put(url, fetchedPage);
+        }
+        return pageDetails;
+    }
+
+    private PageDetails getPageAssets(URL url, String html) {
+        if(extractionMode == ExtractionMode.STREAMING){
+            return getStreamedPageAssets(url, html);
+        }
+        long start = System.nanoTime();
+        Document parse = Jsoup.parse(html, url.toString());
+        metrics.recordParse(System.nanoTime() - start);
+        return getPageAssets(url, parse);
+    }
+
+    private PageDetails getPageAssets(URL url, Document parse) {
+        long start = System.nanoTime();
+        Set<String> links = getLinks(url, parse);
+        Set<String> assets = getAssets(parse);
+        Element body = parse.body();
+        long fingerprint = body == null ? SimHash.NONE : SimHash.of(body.text());
+        metrics.recordExtraction(System.nanoTime() - start);
+        return new PageDetails(links, assets, fingerprint);
+    }
+
+    private PageDetails getStreamedPageAssets(URL url) throws IOException {
+        return getStreamedPageAssets(url, htmlParser.fetch(url));
+    }
+
+    //Streaming has no separate parse, the whole single pass counts as extraction
+    private PageDetails getStreamedPageAssets(URL url, String html) {
+        long start = System.nanoTime();
+        StreamingExtractor.Extraction extraction = StreamingExtractor.extract(html);
+
+        Set<String> links = linkNormalizer.getLinks(url, extraction.getHrefs().stream());
+        metrics.recordExtraction(System.nanoTime() - start);
+        return new PageDetails(links, extraction.getAssets(), extraction.getFingerprint());
+    }
+
+    private Set<String> getAssets(Document parse) {
+        //Get CSS, Images, JS
+
+        Set<String> assets = new HashSet<>();
+        assets.addAll(getCssLinks(parse));
+        assets.addAll(getImgLinks(parse));
+        assets.addAll(getJavascript(parse));
+
+        return assets;
+    }
+
+    private Set<String> getJavascript(Document parse) {
+        return parse.getElementsByTag(SCRIPT_TAG).stream()
+                .filter(element -> element.hasAttr(SRC_ATTR))
+                .map(element -> element.attr(SRC_ATTR))
+                .collect(toSet());
+    }
+
+    private Set<String> getImgLinks(Document parse) {
+        return parse.getElementsByTag(IMG_TAG).stream()
+                .map(element -> element.attr(SRC_ATTR))
+                .collect(toSet());
+    }
+
+    private Set<String> getCssLinks(Document parse){
+        return parse.getElementsByTag(LINK_TAG).stream()
+                .filter(element -> element.hasAttr(TYPE_ATTR))
+                .filter(element -> TYPE_CSS.equals(element.attr(TYPE_ATTR)))
+                .map(element -> element.attr(HREF_ATTR))
+                .collect(toSet());
+    }
+
+    private Set<String> getLinks(URL url, Document parse) {
+        return linkNormalizer.getLinks(url, parse.getElementsByTag(ANCHOR_TAG).stream()
+                .map(link -> link.attr(HREF_ATTR)));
+    }
+}
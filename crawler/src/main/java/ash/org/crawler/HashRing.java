@@ -0,0 +1,58 @@
+package ash.org.crawler;
+
+import ash.org.domain.UrlKey;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+//Consistent hash of canonical urls onto crawl nodes. Each node sits at many virtual points on the ring
+//so partitions stay even, and adding or removing a node only moves the urls next to its points.
+public class HashRing {
+
+    public static final int DEFAULT_VIRTUAL_NODES = 128;
+
+    private static final HashFunction HASH = Hashing.murmur3_128();
+
+    private final NavigableMap<Long, String> ring = new TreeMap<>();
+    private final List<String> nodes;
+
+    public HashRing(Collection<String> nodeIds) {
+        this(nodeIds, DEFAULT_VIRTUAL_NODES);
+    }
+
+    public HashRing(Collection<String> nodeIds, int virtualNodes) {
+        if(nodeIds.isEmpty()){
+            throw new IllegalArgumentException("Must have at least one crawl node");
+        }
+        if(virtualNodes < 1){
+            throw new IllegalArgumentException("Must have at least one virtual node per crawl node");
+        }
+        for (String nodeId : nodeIds) {
+            for (int x = 0; x < virtualNodes; x++) {
+                ring.put(hash(nodeId + "#" + x), nodeId);
+            }
+        }
+        this.nodes = Collections.unmodifiableList(new ArrayList<>(nodeIds));
+    }
+
+    public String ownerOf(UrlKey key) {
+        Map.Entry<Long, String> owner = ring.ceilingEntry(hash(key.toString()));
+        return owner == null ? ring.firstEntry().getValue() : owner.getValue();
+    }
+
+    public List<String> getNodes() {
+        return nodes;
+    }
+
+    private static long hash(String value) {
+        return HASH.hashString(value, StandardCharsets.UTF_8).asLong();
+    }
+}
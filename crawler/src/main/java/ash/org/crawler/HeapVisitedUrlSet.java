@@ -0,0 +1,29 @@
+package ash.org.crawler;
+
+import ash.org.domain.UrlKey;
+
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+//Visited urls held as keys on the heap, exact and fast for crawls that comfortably fit in memory
+public class HeapVisitedUrlSet implements VisitedUrlSet {
+
+    private final Set<UrlKey> visited = ConcurrentHashMap.newKeySet();
+
+    @Override
+    public boolean add(UrlKey key) {
+        Objects.requireNonNull(key);
+        return visited.add(key);
+    }
+
+    @Override
+    public boolean contains(UrlKey key) {
+        return visited.contains(key);
+    }
+
+    @Override
+    public int size() {
+        return visited.size();
+    }
+}
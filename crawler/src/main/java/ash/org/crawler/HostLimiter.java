@@ -0,0 +1,45 @@
+package ash.org.crawler;
+
+import java.io.InterruptedIOException;
+import java.net.URL;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+
+//Caps the number of fetches in flight against any one host
+public class HostLimiter {
+
+    private final int permitsPerHost;
+    private final ConcurrentMap<String, Semaphore> hosts = new ConcurrentHashMap<>();
+
+    public HostLimiter(int permitsPerHost) {
+        if(permitsPerHost < 1){
+            throw new IllegalArgumentException("Must allow at least one fetch per host");
+        }
+        this.permitsPerHost = permitsPerHost;
+    }
+
+    public void acquire(URL url) throws InterruptedIOException {
+        try {
+            semaphore(url).acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting to fetch " + url);
+        }
+    }
+
+    public void release(URL url) {
+        semaphore(url).release();
+    }
+
+    public int availablePermits(URL url) {
+        return semaphore(url).availablePermits();
+    }
+
+    private Semaphore semaphore(URL url) {
+        Objects.requireNonNull(url);
+        return hosts.computeIfAbsent(url.getHost().toLowerCase(Locale.ROOT), host -> new Semaphore(permitsPerHost));
+    }
+}
@@ -0,0 +1,229 @@
+package ash.org.crawler;
+
+import org.brotli.dec.BrotliInputStream;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+//Fetcher on the JDK HttpClient: one client per fetcher, so connections (and their TLS sessions) are pooled
+//and kept alive across fetches, with HTTP/2 multiplexing to hosts that support it.
+//The read timeout covers the wait for the response headers and then every wait for more of the body, the
+//HttpClient's own timeout stops at the headers so a watchdog closes bodies that stall for longer.
+public class HttpClientFetcher implements Fetcher {
+
+    public static final String USER_AGENT = "page-crawler";
+    public static final String ACCEPT_ENCODING = "gzip, deflate, br";
+
+    //One thread for every fetcher, it only ever closes streams
+    private static final ScheduledExecutorService WATCHDOG = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "fetch-watchdog");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final HttpClient httpClient;
+    private final Duration readTimeout;
+    private final ResponseLimits responseLimits;
+
+    //Timeouts of zero or less mean no timeout
+    public HttpClientFetcher(int connectTimeoutMillis, int readTimeoutMillis) {
+        this(connectTimeoutMillis, readTimeoutMillis, ResponseLimits.DEFAULT);
+    }
+
+    public HttpClientFetcher(int connectTimeoutMillis, int readTimeoutMillis, ResponseLimits responseLimits) {
+        Objects.requireNonNull(responseLimits);
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NORMAL);
+        if(connectTimeoutMillis > 0){
+            builder.connectTimeout(Duration.ofMillis(connectTimeoutMillis));
+        }
+        this.httpClient = builder.build();
+        this.readTimeout = readTimeoutMillis > 0 ? Duration.ofMillis(readTimeoutMillis) : null;
+        this.responseLimits = responseLimits;
+    }
+
+    @Override
+    public FetchResponse fetch(URL url, Map<String, String> requestHeaders) throws IOException {
+        Objects.requireNonNull(url);
+        HttpRequest.Builder request = newRequest(url).GET();
+        requestHeaders.forEach(request::header);
+
+        HttpResponse<InputStream> response = send(url, request.build());
+        //The body is streamed from the socket, so what the limits leave unread is never downloaded
+        return responseLimits.read(response.uri().toURL(), response.statusCode(), response.headers().map(), body(url, response));
+    }
+
+    @Override
+    public FetchResponse head(URL url) throws IOException {
+        Objects.requireNonNull(url);
+        HttpResponse<InputStream> response = send(url, newRequest(url).method("HEAD", HttpRequest.BodyPublishers.noBody()).build());
+        response.body().close();
+        return new FetchResponse(response.uri().toURL(), response.statusCode(), response.headers().map(), new byte[0]);
+    }
+
+    @Override
+    public <T> T stream(URL url, BodyReader<T> reader) throws IOException {
+        Objects.requireNonNull(url);
+        HttpResponse<InputStream> response = send(url, newRequest(url).GET().build());
+        try (InputStream body = body(url, response)) {
+            return reader.read(new FetchResponse(response.uri().toURL(), response.statusCode(), response.headers().map(), new byte[0]), body);
+        }
+    }
+
+    private HttpRequest.Builder newRequest(URL url) throws IOException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(toURI(url))
+                .header("User-Agent", USER_AGENT)
+                .header("Accept-Encoding", ACCEPT_ENCODING);
+        if(readTimeout != null){
+            request.timeout(readTimeout);
+        }
+        return request;
+    }
+
+    private HttpResponse<InputStream> send(URL url, HttpRequest request) throws IOException {
+        try {
+            return httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        } catch (HttpTimeoutException e) {
+            SocketTimeoutException timeout = new SocketTimeoutException("Timed out fetching " + url);
+            timeout.initCause(e);
+            throw timeout;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted fetching " + url);
+        }
+    }
+
+    //The decoded body under the read timeout, closed here if decoding can not even start
+    private InputStream body(URL url, HttpResponse<InputStream> response) throws IOException {
+        InputStream body = readTimeout == null ? response.body() : new WatchedInputStream(response.body(), url, readTimeout.toNanos());
+        try {
+            return decode(body, response.headers().firstValue("Content-Encoding").orElse(""));
+        } catch (IOException | RuntimeException e) {
+            body.close();
+            throw e;
+        }
+    }
+
+    private InputStream decode(InputStream body, String contentEncoding) throws IOException {
+        switch (contentEncoding.trim().toLowerCase(Locale.ROOT)) {
+            case "gzip":
+            case "x-gzip":
+                return new GZIPInputStream(body);
+            case "deflate":
+                return new InflaterInputStream(body);
+            case "br":
+                return new BrotliInputStream(body);
+            default:
+                return body;
+        }
+    }
+
+    //Closed by the watchdog once no byte has arrived for the timeout, which ends a read blocked on the socket
+    private static final class WatchedInputStream extends FilterInputStream {
+
+        private final URL url;
+        private final long timeoutNanos;
+        private volatile long lastReadNanos = System.nanoTime();
+        private volatile boolean timedOut;
+        private volatile boolean closed;
+        private volatile ScheduledFuture<?> check;
+
+        WatchedInputStream(InputStream in, URL url, long timeoutNanos) {
+            super(in);
+            this.url = url;
+            this.timeoutNanos = timeoutNanos;
+            schedule(timeoutNanos);
+        }
+
+        private void schedule(long delayNanos) {
+            check = WATCHDOG.schedule(this::check, delayNanos, TimeUnit.NANOSECONDS);
+        }
+
+        private void check() {
+            if(closed){
+                return;
+            }
+            long idle = System.nanoTime() - lastReadNanos;
+            if(idle < timeoutNanos){
+                schedule(timeoutNanos - idle);
+                return;
+            }
+            timedOut = true;
+            try {
+                in.close();
+            } catch (IOException e) {
+                //Closing is all that is wanted, the reader sees the timeout
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            try {
+                return afterRead(super.read());
+            } catch (IOException e) {
+                throw timedOut ? timeout(e) : e;
+            }
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            try {
+                return afterRead(super.read(b, off, len));
+            } catch (IOException e) {
+                throw timedOut ? timeout(e) : e;
+            }
+        }
+
+        private int afterRead(int result) throws IOException {
+            if(timedOut){
+                throw timeout(null);
+            }
+            lastReadNanos = System.nanoTime();
+            return result;
+        }
+
+        private SocketTimeoutException timeout(IOException cause) {
+            SocketTimeoutException timeout = new SocketTimeoutException("Timed out reading " + url);
+            timeout.initCause(cause);
+            return timeout;
+        }
+
+        @Override
+        public void close() throws IOException {
+            closed = true;
+            ScheduledFuture<?> pending = check;
+            if(pending != null){
+                pending.cancel(false);
+            }
+            super.close();
+        }
+    }
+
+    private static java.net.URI toURI(URL url) throws IOException {
+        try {
+            return url.toURI();
+        } catch (URISyntaxException e) {
+            throw new IOException("Invalid url " + url, e);
+        }
+    }
+}
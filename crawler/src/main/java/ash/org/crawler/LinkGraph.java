@@ -0,0 +1,284 @@
+package ash.org.crawler;
+
+import ash.org.domain.UrlKey;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+//Immutable link graph of a crawled site. Every url seen, crawled or only linked to, is a node with an int
+//id, the home page being 0. Out links and in links are held CSR style: one offsets array per direction
+//indexing into one flat array of sorted target ids, so a lookup is two array reads and a copy of the range.
+//Depths are shortest link paths from the home page, worked out once by a breadth first search.
+//
+//  stream := MAGIC VERSION varint(nodeCount) node* ids*      one ids per node, its out links
+//  node   := varint(byteLength) utf8Bytes crawled
+//  ids    := varint(count) varint(firstId) varint(delta)*
+public final class LinkGraph {
+
+    public static final int NOT_FOUND = -1;
+    public static final int UNREACHABLE = -1;
+    public static final int HOME = 0;
+
+    static final byte[] MAGIC = {'P', 'C', 'L', 'G'};
+    static final int VERSION = 1;
+
+    private final UrlKey[] keys;
+    private final BitSet crawled;
+    private final Map<UrlKey, Integer> ids;
+    private final int[] outOffsets;
+    private final int[] outLinks;
+    private final int[] inOffsets;
+    private final int[] inLinks;
+    private final int[] depths;
+
+    //Out links of each node sorted and without repeats, the in links and depths are derived from them
+    LinkGraph(UrlKey[] keys, BitSet crawled, int[] outOffsets, int[] outLinks) {
+        this.keys = keys;
+        this.crawled = crawled;
+        this.outOffsets = outOffsets;
+        this.outLinks = outLinks;
+        this.ids = new HashMap<>(keys.length * 2);
+        for (int id = 0; id < keys.length; id++) {
+            ids.put(keys[id], id);
+        }
+
+        //Counting sort of the edges by target, visiting sources in order leaves each in list sorted
+        int nodes = keys.length;
+        inOffsets = new int[nodes + 1];
+        for (int target : outLinks) {
+            inOffsets[target + 1]++;
+        }
+        for (int id = 0; id < nodes; id++) {
+            inOffsets[id + 1] += inOffsets[id];
+        }
+        inLinks = new int[outLinks.length];
+        int[] next = Arrays.copyOf(inOffsets, nodes);
+        for (int source = 0; source < nodes; source++) {
+            for (int edge = outOffsets[source]; edge < outOffsets[source + 1]; edge++) {
+                inLinks[next[outLinks[edge]]++] = source;
+            }
+        }
+        depths = depths();
+    }
+
+    private int[] depths() {
+        int[] depths = new int[keys.length];
+        Arrays.fill(depths, UNREACHABLE);
+        if(keys.length == 0){
+            return depths;
+        }
+        int[] queue = new int[keys.length];
+        int head = 0;
+        int tail = 0;
+        depths[HOME] = 0;
+        queue[tail++] = HOME;
+        while (head < tail) {
+            int node = queue[head++];
+            for (int edge = outOffsets[node]; edge < outOffsets[node + 1]; edge++) {
+                int target = outLinks[edge];
+                if(depths[target] == UNREACHABLE){
+                    depths[target] = depths[node] + 1;
+                    queue[tail++] = target;
+                }
+            }
+        }
+        return depths;
+    }
+
+    public int size() {
+        return keys.length;
+    }
+
+    public int getEdgeCount() {
+        return outLinks.length;
+    }
+
+    public int idOf(UrlKey key) {
+        Integer id = ids.get(key);
+        return id == null ? NOT_FOUND : id;
+    }
+
+    public UrlKey getKey(int id) {
+        return keys[id];
+    }
+
+    //False for urls only known from links to them, left out by the crawl's budget
+    public boolean isCrawled(int id) {
+        return crawled.get(id);
+    }
+
+    public int[] getOutLinks(int id) {
+        return Arrays.copyOfRange(outLinks, outOffsets[id], outOffsets[id + 1]);
+    }
+
+    public int[] getInLinks(int id) {
+        return Arrays.copyOfRange(inLinks, inOffsets[id], inOffsets[id + 1]);
+    }
+
+    public int getOutDegree(int id) {
+        return outOffsets[id + 1] - outOffsets[id];
+    }
+
+    public int getInDegree(int id) {
+        return inOffsets[id + 1] - inOffsets[id];
+    }
+
+    //Fewest links to follow from the home page, or UNREACHABLE
+    public int getDepth(int id) {
+        return depths[id];
+    }
+
+    //The pages that link to the url, empty when it is not in the graph
+    public List<UrlKey> getLinksTo(UrlKey key) {
+        int id = idOf(key);
+        return id == NOT_FOUND ? Collections.emptyList() : keys(inLinks, inOffsets[id], inOffsets[id + 1]);
+    }
+
+    public List<UrlKey> getLinksFrom(UrlKey key) {
+        int id = idOf(key);
+        return id == NOT_FOUND ? Collections.emptyList() : keys(outLinks, outOffsets[id], outOffsets[id + 1]);
+    }
+
+    public int getDepth(UrlKey key) {
+        int id = idOf(key);
+        return id == NOT_FOUND ? UNREACHABLE : depths[id];
+    }
+
+    //One shortest chain of pages from the home page to the url, both included, empty when there is none.
+    //Walks back along in links one depth shallower each step, so needs nothing stored beyond the depths.
+    public List<UrlKey> getPathTo(UrlKey key) {
+        int id = idOf(key);
+        if(id == NOT_FOUND || depths[id] == UNREACHABLE){
+            return Collections.emptyList();
+        }
+        UrlKey[] path = new UrlKey[depths[id] + 1];
+        for (int node = id; ; ) {
+            path[depths[node]] = keys[node];
+            if(node == HOME){
+                return Arrays.asList(path);
+            }
+            for (int edge = inOffsets[node]; ; edge++) {
+                if(depths[inLinks[edge]] == depths[node] - 1){
+                    node = inLinks[edge];
+                    break;
+                }
+            }
+        }
+    }
+
+    private List<UrlKey> keys(int[] links, int from, int to) {
+        List<UrlKey> keys = new ArrayList<>(to - from);
+        for (int edge = from; edge < to; edge++) {
+            keys.add(this.keys[links[edge]]);
+        }
+        return keys;
+    }
+
+    public void write(OutputStream stream) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(stream)) {
+            out.write(MAGIC);
+            out.write(VERSION);
+            writeVarint(out, keys.length);
+            for (int id = 0; id < keys.length; id++) {
+                byte[] bytes = keys[id].toString().getBytes(StandardCharsets.UTF_8);
+                writeVarint(out, bytes.length);
+                out.write(bytes);
+                out.write(crawled.get(id) ? 1 : 0);
+            }
+            for (int id = 0; id < keys.length; id++) {
+                writeVarint(out, getOutDegree(id));
+                int previous = 0;
+                for (int edge = outOffsets[id]; edge < outOffsets[id + 1]; edge++) {
+                    writeVarint(out, outLinks[edge] - previous);
+                    previous = outLinks[edge];
+                }
+            }
+        }
+    }
+
+    public static LinkGraph read(InputStream stream) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(stream))) {
+            byte[] magic = new byte[MAGIC.length];
+            in.readFully(magic);
+            if(!Arrays.equals(magic, MAGIC)){
+                throw new IOException("Not a link graph");
+            }
+            int version = in.readUnsignedByte();
+            if(version != VERSION){
+                throw new IOException("Unsupported link graph version " + version);
+            }
+
+            int nodes = readVarint(in);
+            UrlKey[] keys = new UrlKey[nodes];
+            BitSet crawled = new BitSet(nodes);
+            for (int id = 0; id < nodes; id++) {
+                byte[] bytes = new byte[readVarint(in)];
+                in.readFully(bytes);
+                keys[id] = UrlKey.of(new URL(new String(bytes, StandardCharsets.UTF_8)));
+                crawled.set(id, in.readUnsignedByte() != 0);
+            }
+
+            int[] outOffsets = new int[nodes + 1];
+            int[] outLinks = new int[16];
+            for (int id = 0; id < nodes; id++) {
+                int count = readVarint(in);
+                int edges = outOffsets[id];
+                if(edges + count > outLinks.length){
+                    outLinks = Arrays.copyOf(outLinks, Math.max(edges + count, outLinks.length * 2));
+                }
+                int target = 0;
+                for (int x = 0; x < count; x++) {
+                    target += readVarint(in);
+                    if(target >= nodes){
+                        throw new IOException("Link to undefined node " + target);
+                    }
+                    outLinks[edges + x] = target;
+                }
+                outOffsets[id + 1] = edges + count;
+            }
+            return new LinkGraph(keys, crawled, outOffsets, Arrays.copyOf(outLinks, outOffsets[nodes]));
+        }
+    }
+
+    private static void writeVarint(OutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarint(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if((b & 0x80) == 0){
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    @Override
+    public String toString() {
+        return "LinkGraph{" +
+                "nodes=" + keys.length +
+                ", edges=" + outLinks.length +
+                ", crawled=" + crawled.cardinality() +
+                '}';
+    }
+}
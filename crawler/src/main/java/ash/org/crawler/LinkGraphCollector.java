@@ -0,0 +1,103 @@
+package ash.org.crawler;
+
+import ash.org.domain.Page;
+import ash.org.domain.UrlKey;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+//Builds a crawl's LinkGraph as the pages arrive. Urls get ids as they are first seen, as a page or as a
+//link, and each page's links are appended to one flat edge list, which toGraph sorts into CSR arrays.
+//Like every PageListener it is called one page at a time, it is not safe to share between crawls.
+public class LinkGraphCollector implements PageListener {
+
+    private final Map<UrlKey, Integer> ids = new HashMap<>();
+    private final List<UrlKey> keys = new ArrayList<>();
+    private final BitSet crawled = new BitSet();
+    private int[] sources = new int[1024];
+    private int[] targets = new int[1024];
+    private int edges;
+    private int[] scratch = new int[64];
+
+    public LinkGraphCollector(URL domain) {
+        Objects.requireNonNull(domain);
+        idOf(UrlKey.of(domain));
+    }
+
+    @Override
+    public void onPage(Page page) {
+        int source = idOf(page.getKey());
+        if(crawled.get(source)){
+            return;
+        }
+        crawled.set(source);
+
+        String pageOrigin = UrlKey.origin(page.getUrl());
+        int count = 0;
+        for (String link : page.getPageDetails().getLinks()) {
+            if(count == scratch.length){
+                scratch = Arrays.copyOf(scratch, count * 2);
+            }
+            scratch[count++] = idOf(UrlKey.fromOrigin(pageOrigin, link));
+        }
+        //Two links can name the same url, an edge is kept once
+        Arrays.sort(scratch, 0, count);
+        for (int x = 0; x < count; x++) {
+            if(x == 0 || scratch[x] != scratch[x - 1]){
+                addEdge(source, scratch[x]);
+            }
+        }
+    }
+
+    public LinkGraph toGraph() {
+        int nodes = keys.size();
+        //Counting sort by source, each page's edges were added together and already sorted
+        int[] offsets = new int[nodes + 1];
+        for (int edge = 0; edge < edges; edge++) {
+            offsets[sources[edge] + 1]++;
+        }
+        for (int id = 0; id < nodes; id++) {
+            offsets[id + 1] += offsets[id];
+        }
+        int[] links = new int[edges];
+        int[] next = Arrays.copyOf(offsets, nodes);
+        for (int edge = 0; edge < edges; edge++) {
+            links[next[sources[edge]]++] = targets[edge];
+        }
+        return new LinkGraph(keys.toArray(new UrlKey[0]), (BitSet) crawled.clone(), offsets, links);
+    }
+
+    private int idOf(UrlKey key) {
+        Integer id = ids.get(key);
+        if(id == null){
+            id = keys.size();
+            ids.put(key, id);
+            keys.add(key);
+        }
+        return id;
+    }
+
+    private void addEdge(int source, int target) {
+        if(edges == sources.length){
+            sources = Arrays.copyOf(sources, edges * 2);
+            targets = Arrays.copyOf(targets, edges * 2);
+        }
+        sources[edges] = source;
+        targets[edges] = target;
+        edges++;
+    }
+
+    @Override
+    public String toString() {
+        return "LinkGraphCollector{" +
+                "nodes=" + keys.size() +
+                ", edges=" + edges +
+                '}';
+    }
+}
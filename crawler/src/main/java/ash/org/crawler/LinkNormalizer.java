@@ -0,0 +1,288 @@
+package ash.org.crawler;
+
+import java.net.URL;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Stream;
+
+//Turns the raw anchor hrefs of a page into the set of internal, host relative links to crawl.
+//Each href is resolved against the page as RFC 3986 section 5 describes, in one pass over its chars:
+//scheme and host compared without case, http and https treated as the same site, default ports
+//dropped, dot segments removed and the fragment, plus the query unless kept, cut off. Hrefs to other
+//hosts or other schemes, same document references and the home page are left out.
+public class LinkNormalizer {
+
+    //Whether links keep their query, dropped by default so ?utm_source style variants crawl once
+    public enum QueryPolicy {
+        DROP,
+        KEEP
+    }
+
+    private static final String HTTP = "http";
+    private static final String HTTPS = "https";
+
+    private final QueryPolicy queryPolicy;
+
+    public LinkNormalizer() {
+        this(QueryPolicy.DROP);
+    }
+
+    public LinkNormalizer(QueryPolicy queryPolicy) {
+        Objects.requireNonNull(queryPolicy);
+        this.queryPolicy = queryPolicy;
+    }
+
+    public Set<String> getLinks(URL url, Stream<String> hrefs) {
+        Resolver resolver = resolver(url);
+        Set<String> links = new HashSet<>();
+        hrefs.forEach(href -> {
+            String link = resolver.resolve(href);
+            if(link != null){
+                links.add(link);
+            }
+        });
+        return links;
+    }
+
+    //Works out the page's host, port and directory once for all the hrefs on it. Not thread safe.
+    public Resolver resolver(URL url) {
+        Objects.requireNonNull(url);
+        return new Resolver(url, queryPolicy == QueryPolicy.KEEP);
+    }
+
+    public static class Resolver {
+
+        private final String scheme;
+        private final String host;
+        private final int port;
+        private final String path;
+        private final String directory;
+        private final boolean keepQuery;
+        //Scratch space each link is built in, so the only allocation per link is the result
+        private char[] buffer = new char[128];
+
+        private Resolver(URL url, boolean keepQuery) {
+            this.scheme = url.getProtocol().toLowerCase(Locale.ROOT);
+            this.host = url.getHost().toLowerCase(Locale.ROOT);
+            this.port = effectivePort(url.getProtocol(), url.getPort());
+            this.path = url.getPath().isEmpty() ? "/" : url.getPath();
+            this.directory = path.substring(0, path.lastIndexOf('/') + 1);
+            this.keepQuery = keepQuery;
+        }
+
+        //The host relative link for the href, or null when it is not one to crawl
+        public String resolve(String href) {
+            if(href == null){
+                return null;
+            }
+            int start = 0;
+            int end = href.length();
+            while (start < end && isWhitespace(href.charAt(start))) {
+                start++;
+            }
+            while (end > start && isWhitespace(href.charAt(end - 1))) {
+                end--;
+            }
+
+            int fragment = indexOf(href, '#', start, end);
+            int referenceEnd = fragment < 0 ? end : fragment;
+            int query = indexOf(href, '?', start, referenceEnd);
+            int pathEnd = query < 0 ? referenceEnd : query;
+
+            int pathStart = start;
+            int schemeEnd = schemeEnd(href, start, pathEnd);
+            if(schemeEnd >= 0){
+                if(!isScheme(href, start, schemeEnd, HTTP) && !isScheme(href, start, schemeEnd, HTTPS)){
+                    //mailto:, javascript:, tel: and the like
+                    return null;
+                }
+                pathStart = schemeEnd + 1;
+                if(!href.startsWith("//", pathStart)){
+                    //http:path is legal but means nothing to a browser, treat it as broken
+                    return null;
+                }
+            }
+
+            boolean hasAuthority = href.startsWith("//", pathStart);
+            if(hasAuthority){
+                int authorityStart = pathStart + 2;
+                int authorityEnd = indexOf(href, '/', authorityStart, pathEnd);
+                if(authorityEnd < 0){
+                    authorityEnd = pathEnd;
+                }
+                String scheme = schemeEnd < 0 ? this.scheme : isScheme(href, start, schemeEnd, HTTP) ? HTTP : HTTPS;
+                if(!isSameSite(href, authorityStart, authorityEnd, scheme)){
+                    return null;
+                }
+                pathStart = authorityEnd;
+            } else if(pathStart == pathEnd && (query < 0 || !keepQuery)){
+                //Only a fragment or a dropped query, a reference back to this page
+                return null;
+            }
+
+            int length = 0;
+            if(pathStart == pathEnd){
+                length = hasAuthority ? append(length, '/') : append(length, path, 0, path.length());
+            } else if(href.charAt(pathStart) != '/'){
+                //Relative path, merged with the directory of the page
+                length = append(length, directory, 0, directory.length());
+            }
+            length = append(length, href, pathStart, pathEnd);
+            length = removeDotSegments(length);
+            if(keepQuery && query >= 0){
+                length = append(length, href, query, referenceEnd);
+            }
+
+            if(length == 1 && buffer[0] == '/'){
+                //The home page, where every crawl starts
+                return null;
+            }
+            if(length == href.length() && sameAsHref(href, length)){
+                //Already normal, as most links are
+                return href;
+            }
+            return new String(buffer, 0, length);
+        }
+
+        private boolean isSameSite(String href, int authorityStart, int authorityEnd, String scheme) {
+            int hostStart = indexOf(href, '@', authorityStart, authorityEnd) + 1;
+            if(hostStart == 0){
+                hostStart = authorityStart;
+            }
+            int hostEnd = indexOf(href, ':', hostStart, authorityEnd);
+            int hrefPort = -1;
+            if(hostEnd < 0){
+                hostEnd = authorityEnd;
+            } else if(hostEnd + 1 < authorityEnd){
+                hrefPort = parsePort(href, hostEnd + 1, authorityEnd);
+                if(hrefPort < 0){
+                    return false;
+                }
+            }
+            if(hostEnd - hostStart != host.length() || !href.regionMatches(true, hostStart, host, 0, host.length())){
+                return false;
+            }
+            return effectivePort(scheme, hrefPort) == port;
+        }
+
+        //RFC 3986 section 5.2.4, in place, over a path that starts with '/'
+        private int removeDotSegments(int length) {
+            int write = 0;
+            int read = 0;
+            while (read < length) {
+                int segmentStart = read + 1;
+                int segmentEnd = segmentStart;
+                while (segmentEnd < length && buffer[segmentEnd] != '/') {
+                    segmentEnd++;
+                }
+                int segmentLength = segmentEnd - segmentStart;
+                boolean last = segmentEnd == length;
+                boolean dot = segmentLength == 1 && buffer[segmentStart] == '.';
+                boolean dotDot = segmentLength == 2 && buffer[segmentStart] == '.' && buffer[segmentStart + 1] == '.';
+                if(dot || dotDot){
+                    if(dotDot){
+                        while (write > 0 && buffer[--write] != '/') {
+                        }
+                    }
+                    if(last){
+                        buffer[write++] = '/';
+                    }
+                } else {
+                    System.arraycopy(buffer, read, buffer, write, segmentLength + 1);
+                    write += segmentLength + 1;
+                }
+                read = segmentEnd;
+            }
+            return write;
+        }
+
+        private boolean sameAsHref(String href, int length) {
+            for (int x = 0; x < length; x++) {
+                if(buffer[x] != href.charAt(x)){
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private int append(int length, char c) {
+            ensureCapacity(length + 1);
+            buffer[length] = c;
+            return length + 1;
+        }
+
+        private int append(int length, String s, int from, int to) {
+            ensureCapacity(length + to - from);
+            s.getChars(from, to, buffer, length);
+            return length + to - from;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if(capacity > buffer.length){
+                char[] grown = new char[Math.max(capacity, buffer.length * 2)];
+                System.arraycopy(buffer, 0, grown, 0, buffer.length);
+                buffer = grown;
+            }
+        }
+    }
+
+    //The end of a leading "scheme:", or -1 when the href has none and is relative
+    private static int schemeEnd(String href, int start, int end) {
+        if(start >= end || !isAsciiLetter(href.charAt(start))){
+            return -1;
+        }
+        for (int x = start + 1; x < end; x++) {
+            char c = href.charAt(x);
+            if(c == ':'){
+                return x;
+            }
+            if(!isAsciiLetter(c) && !(c >= '0' && c <= '9') && c != '+' && c != '-' && c != '.'){
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isScheme(String href, int start, int end, String scheme) {
+        return end - start == scheme.length() && href.regionMatches(true, start, scheme, 0, scheme.length());
+    }
+
+    //Default ports collapse to -1 so http://host:80 and http://host match, and http and https of a host share a site
+    private static int effectivePort(String scheme, int port) {
+        if(port == 80 && HTTP.equalsIgnoreCase(scheme) || port == 443 && HTTPS.equalsIgnoreCase(scheme)){
+            return -1;
+        }
+        return port;
+    }
+
+    private static int parsePort(String href, int start, int end) {
+        int port = 0;
+        for (int x = start; x < end; x++) {
+            char c = href.charAt(x);
+            if(c < '0' || c > '9' || port > 65535){
+                return -1;
+            }
+            port = port * 10 + (c - '0');
+        }
+        return port > 65535 ? -1 : port;
+    }
+
+    private static int indexOf(String s, char c, int from, int to) {
+        for (int x = from; x < to; x++) {
+            if(s.charAt(x) == c){
+                return x;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isAsciiLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f';
+    }
+}
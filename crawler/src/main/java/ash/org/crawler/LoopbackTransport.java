@@ -0,0 +1,40 @@
+package ash.org.crawler;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+//Runs a whole cluster inside one JVM by calling the bound endpoints directly
+public class LoopbackTransport implements ClusterTransport {
+
+    private final ConcurrentMap<String, NodeEndpoint> nodes = new ConcurrentHashMap<>();
+    private volatile CoordinatorEndpoint coordinator;
+
+    @Override
+    public void bindNode(String nodeId, NodeEndpoint node) {
+        nodes.put(nodeId, node);
+    }
+
+    @Override
+    public void bindCoordinator(CoordinatorEndpoint coordinator) {
+        this.coordinator = coordinator;
+    }
+
+    @Override
+    public NodeEndpoint node(String nodeId) throws IOException {
+        NodeEndpoint node = nodes.get(nodeId);
+        if(node == null){
+            throw new IOException("No crawl node bound for " + nodeId);
+        }
+        return node;
+    }
+
+    @Override
+    public CoordinatorEndpoint coordinator() throws IOException {
+        CoordinatorEndpoint bound = coordinator;
+        if(bound == null){
+            throw new IOException("No coordinator bound");
+        }
+        return bound;
+    }
+}
@@ -0,0 +1,42 @@
+package ash.org.crawler;
+
+import org.apache.log4j.Logger;
+
+import java.io.Closeable;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+//Logs a metrics summary at a fixed period, and once more when closed
+public class MetricsReporter implements Closeable {
+
+    private static final Logger LOG = Logger.getLogger(MetricsReporter.class);
+
+    private final CrawlMetrics metrics;
+    private final ScheduledExecutorService executor;
+
+    public MetricsReporter(CrawlMetrics metrics, long periodMillis) {
+        Objects.requireNonNull(metrics);
+        if(periodMillis < 1){
+            throw new IllegalArgumentException("Reporting period must be positive");
+        }
+        this.metrics = metrics;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "crawl-metrics-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleAtFixedRate(this::report, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void report() {
+        LOG.info("crawl metrics " + metrics.getSummary());
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        report();
+    }
+}
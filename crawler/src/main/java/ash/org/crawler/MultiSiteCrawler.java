@@ -0,0 +1,238 @@
+package ash.org.crawler;
+
+import org.apache.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+//Crawls many sites at once on one bounded pool of fetch workers. Each site keeps its own frontier, budget
+//and output, and the pool serves the sites round robin, so the whole run takes about as long as the
+//slowest site rather than the sum of them all.
+public class MultiSiteCrawler implements Closeable {
+
+    public static final int DEFAULT_POOL_SIZE = 32;
+    //Sites beyond this wait for one to finish, each running site holds a thread waiting on its fetches
+    public static final int MAX_CONCURRENT_SITES = 256;
+
+    private static final Logger LOG = Logger.getLogger(MultiSiteCrawler.class);
+
+    private final HTMLScraper HTMLScraper;
+    private final int fetchesPerSite;
+    private final CrawlScheduler scheduler;
+    private final CrawlMetrics metrics;
+    private final DuplicatePolicy duplicatePolicy;
+    private final Sitemaps sitemaps;
+    private final FairWorkerPool pool;
+
+    public MultiSiteCrawler(HTMLScraper HTMLScraper) {
+        this(builder(HTMLScraper));
+    }
+
+    private MultiSiteCrawler(Builder builder) {
+        if(builder.fetchesPerSite < 1){
+            throw new IllegalArgumentException("Must allow at least one fetch per site");
+        }
+        this.HTMLScraper = builder.HTMLScraper;
+        this.fetchesPerSite = builder.fetchesPerSite;
+        this.scheduler = builder.scheduler;
+        this.metrics = builder.metrics;
+        this.duplicatePolicy = builder.duplicatePolicy;
+        this.sitemaps = builder.sitemaps;
+        this.pool = new FairWorkerPool(builder.poolSize);
+    }
+
+    //Each setting left out keeps its default
+    public static Builder builder(HTMLScraper HTMLScraper) {
+        return new Builder(HTMLScraper);
+    }
+
+    public static final class Builder {
+
+        private final HTMLScraper HTMLScraper;
+        private int poolSize = DEFAULT_POOL_SIZE;
+        private int fetchesPerSite = Crawler.DEFAULT_WORKERS;
+        private CrawlScheduler scheduler = CrawlScheduler.UNSCHEDULED;
+        private CrawlMetrics metrics = CrawlMetrics.global();
+        private DuplicatePolicy duplicatePolicy = DuplicatePolicy.OFF;
+        private Sitemaps sitemaps;
+
+        private Builder(HTMLScraper HTMLScraper) {
+            this.HTMLScraper = HTMLScraper;
+        }
+
+        //Fetch workers shared by all the sites
+        public Builder poolSize(int poolSize) {
+            this.poolSize = poolSize;
+            return this;
+        }
+
+        //Fetches one site may have waiting on the pool at once
+        public Builder fetchesPerSite(int fetchesPerSite) {
+            this.fetchesPerSite = fetchesPerSite;
+            return this;
+        }
+
+        public Builder scheduler(CrawlScheduler scheduler) {
+            this.scheduler = Objects.requireNonNull(scheduler);
+            return this;
+        }
+
+        public Builder metrics(CrawlMetrics metrics) {
+            this.metrics = Objects.requireNonNull(metrics);
+            return this;
+        }
+
+        public Builder duplicatePolicy(DuplicatePolicy duplicatePolicy) {
+            this.duplicatePolicy = Objects.requireNonNull(duplicatePolicy);
+            return this;
+        }
+
+        //When set, each site's frontier is seeded from its sitemaps, see Crawler
+        public Builder sitemaps(Sitemaps sitemaps) {
+            this.sitemaps = sitemaps;
+            return this;
+        }
+
+        public MultiSiteCrawler build() {
+            return new MultiSiteCrawler(this);
+        }
+    }
+
+    //Opens where one site's pages go, closed once that site's crawl ends
+    @FunctionalInterface
+    public interface SiteOutput {
+
+        PageWriter open(URL site) throws IOException;
+    }
+
+    //Crawls every site, each within the budget, returning a result per site in the order given.
+    //A site failing does not stop the others.
+    public List<SiteResult> crawl(List<URL> sites, CrawlBudget budget, SiteOutput output) throws IOException {
+        return crawl(sites, budget, output, site -> UrlScorer.BREADTH_FIRST);
+    }
+
+    //As crawl, ordering each site's frontier with the scorer given for it
+    public List<SiteResult> crawl(List<URL> sites, CrawlBudget budget, SiteOutput output, Function<URL, UrlScorer> scorers) throws IOException {
+        Objects.requireNonNull(sites, "You must supply the sites to crawl");
+        Objects.requireNonNull(budget, "You must supply a crawl budget");
+        Objects.requireNonNull(output, "You must supply the output for each site");
+        Objects.requireNonNull(scorers, "You must supply the scorer for each site");
+        sites.forEach(Crawler::checkDomain);
+        if(sites.isEmpty()){
+            return new ArrayList<>();
+        }
+
+        ExecutorService siteThreads = Executors.newFixedThreadPool(Math.min(sites.size(), MAX_CONCURRENT_SITES));
+        List<Future<SiteResult>> running = new ArrayList<>();
+        try {
+            for (URL site : sites) {
+                running.add(siteThreads.submit(() -> crawlSite(site, budget, output, scorers)));
+            }
+            List<SiteResult> results = new ArrayList<>();
+            for (Future<SiteResult> site : running) {
+                results.add(site.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while crawling");
+        } catch (ExecutionException e) {
+            //crawlSite turns a site's failures into its result, so only errors get here
+            Throwable cause = e.getCause();
+            if(cause instanceof IOException){
+                throw (IOException) cause;
+            }
+            if(cause instanceof RuntimeException){
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        } finally {
+            siteThreads.shutdownNow();
+        }
+    }
+
+    private SiteResult crawlSite(URL site, CrawlBudget budget, SiteOutput output, Function<URL, UrlScorer> scorers) throws IOException {
+        //Tasks wait in the lane while the scheduler spaces the site's fetches, leaving the workers to other sites
+        FairWorkerPool.Lane lane = pool.newLane(site.getHost(), () -> scheduler.getWaitNanos(site));
+        Crawler crawler = Crawler.builder(HTMLScraper).workers(fetchesPerSite).scheduler(new LaneScheduler(scheduler, lane))
+                .metrics(metrics).duplicatePolicy(duplicatePolicy).sitemaps(sitemaps).build();
+        int[] pages = new int[1];
+        long start = System.nanoTime();
+        SiteResult result;
+        try (PageWriter writer = output.open(site)) {
+            CrawlOutcome outcome = crawler.crawl(site, page -> {
+                pages[0]++;
+                writer.onPage(page);
+            }, budget, scorers.apply(site), lane);
+            result = new SiteResult(site, outcome, null, pages[0], elapsedMillis(start));
+        } catch (IOException | RuntimeException e) {
+            result = new SiteResult(site, null, e, pages[0], elapsedMillis(start));
+        } finally {
+            lane.clear();
+        }
+        LOG.info(result);
+        return result;
+    }
+
+    private static long elapsedMillis(long start) {
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    @Override
+    public void close() {
+        pool.close();
+    }
+
+    //Tells the site's lane once each fetch is past the scheduler, so the lane lets its next task go
+    private static final class LaneScheduler implements CrawlScheduler {
+
+        private final CrawlScheduler scheduler;
+        private final FairWorkerPool.Lane lane;
+
+        private LaneScheduler(CrawlScheduler scheduler, FairWorkerPool.Lane lane) {
+            this.scheduler = scheduler;
+            this.lane = lane;
+        }
+
+        @Override
+        public boolean isAllowed(URL url) throws IOException {
+            return scheduler.isAllowed(url);
+        }
+
+        @Override
+        public <T> T fetch(URL url, Fetch<T> fetch) throws IOException {
+            return scheduler.fetch(url, () -> {
+                lane.onReserved();
+                return fetch.fetch();
+            });
+        }
+
+        @Override
+        public <T> T fetchUntimed(URL url, Fetch<T> fetch) throws IOException {
+            return scheduler.fetchUntimed(url, () -> {
+                lane.onReserved();
+                return fetch.fetch();
+            });
+        }
+
+        @Override
+        public long getWaitNanos(URL url) {
+            return scheduler.getWaitNanos(url);
+        }
+
+        @Override
+        public List<String> getSitemaps(URL site) throws IOException {
+            return scheduler.getSitemaps(site);
+        }
+    }
+}
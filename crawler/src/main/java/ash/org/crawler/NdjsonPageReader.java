@@ -0,0 +1,181 @@
+package ash.org.crawler;
+
+import ash.org.domain.InternedStringSet;
+import ash.org.domain.Page;
+import ash.org.domain.PageDetails;
+import ash.org.domain.StringPool;
+import ash.org.domain.UrlKey;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+//Reads the lines NdjsonPageWriter produces. Understands just enough json for that shape: an object of
+//string and string array fields, anything else is a format error.
+public class NdjsonPageReader implements PageReader {
+
+    private final BufferedReader in;
+    private final StringPool stringPool = new StringPool();
+    private String line;
+    private int position;
+    private int lineNumber;
+
+    public NdjsonPageReader(InputStream in) {
+        this.in = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public Page read() throws IOException {
+        do {
+            line = in.readLine();
+            lineNumber++;
+            if(line == null){
+                return null;
+            }
+        } while (line.trim().isEmpty());
+        position = 0;
+
+        String url = null;
+        List<String> links = Collections.emptyList();
+        List<String> assets = Collections.emptyList();
+        String duplicateOf = null;
+
+        expect('{');
+        if(!consume('}')){
+            do {
+                String field = readString();
+                expect(':');
+                switch (field) {
+                    case "url":
+                        url = readString();
+                        break;
+                    case "links":
+                        links = readArray();
+                        break;
+                    case "assets":
+                        assets = readArray();
+                        break;
+                    case "duplicateOf":
+                        duplicateOf = readString();
+                        break;
+                    default:
+                        skipValue();
+                }
+            } while (consume(','));
+            expect('}');
+        }
+        if(url == null){
+            throw error("page has no url");
+        }
+        return new Page(new URL(url), new PageDetails(new InternedStringSet(stringPool, links), new InternedStringSet(stringPool, assets)),
+                duplicateOf == null ? null : UrlKey.of(new URL(duplicateOf)));
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private List<String> readArray() throws IOException {
+        List<String> values = new ArrayList<>();
+        expect('[');
+        if(consume(']')){
+            return values;
+        }
+        do {
+            values.add(readString());
+        } while (consume(','));
+        expect(']');
+        return values;
+    }
+
+    private void skipValue() throws IOException {
+        skipWhitespace();
+        if(position < line.length() && line.charAt(position) == '['){
+            readArray();
+        } else {
+            readString();
+        }
+    }
+
+    private String readString() throws IOException {
+        expect('"');
+        StringBuilder value = new StringBuilder();
+        while (position < line.length()) {
+            char c = line.charAt(position++);
+            if(c == '"'){
+                return value.toString();
+            }
+            if(c != '\\'){
+                value.append(c);
+                continue;
+            }
+            if(position >= line.length()){
+                break;
+            }
+            char escaped = line.charAt(position++);
+            switch (escaped) {
+                case 'n':
+                    value.append('\n');
+                    break;
+                case 'r':
+                    value.append('\r');
+                    break;
+                case 't':
+                    value.append('\t');
+                    break;
+                case 'b':
+                    value.append('\b');
+                    break;
+                case 'f':
+                    value.append('\f');
+                    break;
+                case 'u':
+                    if(position + 4 > line.length()){
+                        throw error("truncated unicode escape");
+                    }
+                    try {
+                        value.append((char) Integer.parseInt(line.substring(position, position + 4), 16));
+                    } catch (NumberFormatException e) {
+                        throw error("bad unicode escape");
+                    }
+                    position += 4;
+                    break;
+                default:
+                    value.append(escaped);
+            }
+        }
+        throw error("unterminated string");
+    }
+
+    private void expect(char c) throws IOException {
+        if(!consume(c)){
+            throw error("expected '" + c + "'");
+        }
+    }
+
+    private boolean consume(char c) {
+        skipWhitespace();
+        if(position < line.length() && line.charAt(position) == c){
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private void skipWhitespace() {
+        while (position < line.length() && Character.isWhitespace(line.charAt(position))) {
+            position++;
+        }
+    }
+
+    private IOException error(String message) {
+        return new IOException("Malformed page on line " + lineNumber + " at column " + (position + 1) + ": " + message);
+    }
+}
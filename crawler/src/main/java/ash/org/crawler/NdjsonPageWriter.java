@@ -0,0 +1,85 @@
+package ash.org.crawler;
+
+import ash.org.domain.Page;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+
+//One json object per line: {"url":"...","links":[...],"assets":[...]}, plus "duplicateOf":"..." for near duplicates
+public class NdjsonPageWriter implements PageWriter {
+
+    private final Writer out;
+
+    public NdjsonPageWriter(OutputStream out) {
+        this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void write(Page page) throws IOException {
+        out.write("{\"url\":");
+        writeString(page.getUrl().toString());
+        out.write(",\"links\":");
+        writeArray(page.getPageDetails().getLinks());
+        out.write(",\"assets\":");
+        writeArray(page.getPageDetails().getAssets());
+        if(page.isDuplicate()){
+            out.write(",\"duplicateOf\":");
+            writeString(page.getDuplicateOf().toString());
+        }
+        out.write("}\n");
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void writeArray(Collection<String> values) throws IOException {
+        out.write('[');
+        boolean first = true;
+        for (String value : values) {
+            if(!first){
+                out.write(',');
+            }
+            writeString(value);
+            first = false;
+        }
+        out.write(']');
+    }
+
+    private void writeString(String value) throws IOException {
+        out.write('"');
+        for (int x = 0; x < value.length(); x++) {
+            char c = value.charAt(x);
+            switch (c) {
+                case '"':
+                    out.write("\\\"");
+                    break;
+                case '\\':
+                    out.write("\\\\");
+                    break;
+                case '\n':
+                    out.write("\\n");
+                    break;
+                case '\r':
+                    out.write("\\r");
+                    break;
+                case '\t':
+                    out.write("\\t");
+                    break;
+                default:
+                    if(c < 0x20){
+                        out.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.write(c);
+                    }
+            }
+        }
+        out.write('"');
+    }
+}
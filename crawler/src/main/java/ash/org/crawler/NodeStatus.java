@@ -0,0 +1,79 @@
+package ash.org.crawler;
+
+import java.util.Objects;
+
+//Snapshot of a crawl node's message counters, which the coordinator compares across probes to detect the end of a crawl
+public final class NodeStatus {
+
+    private final String nodeId;
+    private final long linkBatchesSent;
+    private final long linkBatchesReceived;
+    private final long pageBatchesSent;
+    private final boolean idle;
+    private final String failure;
+
+    public NodeStatus(String nodeId, long linkBatchesSent, long linkBatchesReceived, long pageBatchesSent, boolean idle, String failure) {
+        Objects.requireNonNull(nodeId);
+        this.nodeId = nodeId;
+        this.linkBatchesSent = linkBatchesSent;
+        this.linkBatchesReceived = linkBatchesReceived;
+        this.pageBatchesSent = pageBatchesSent;
+        this.idle = idle;
+        this.failure = failure;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public long getLinkBatchesSent() {
+        return linkBatchesSent;
+    }
+
+    public long getLinkBatchesReceived() {
+        return linkBatchesReceived;
+    }
+
+    public long getPageBatchesSent() {
+        return pageBatchesSent;
+    }
+
+    public boolean isIdle() {
+        return idle;
+    }
+
+    //Null unless a fetch on the node failed
+    public String getFailure() {
+        return failure;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        NodeStatus that = (NodeStatus) o;
+        return linkBatchesSent == that.linkBatchesSent &&
+                linkBatchesReceived == that.linkBatchesReceived &&
+                pageBatchesSent == that.pageBatchesSent &&
+                idle == that.idle &&
+                nodeId.equals(that.nodeId) &&
+                Objects.equals(failure, that.failure);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(nodeId, linkBatchesSent, linkBatchesReceived, pageBatchesSent, idle, failure);
+    }
+
+    @Override
+    public String toString() {
+        return "NodeStatus{" +
+                "nodeId='" + nodeId + '\'' +
+                ", linkBatchesSent=" + linkBatchesSent +
+                ", linkBatchesReceived=" + linkBatchesReceived +
+                ", pageBatchesSent=" + pageBatchesSent +
+                ", idle=" + idle +
+                ", failure='" + failure + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,322 @@
+package ash.org.crawler;
+
+import ash.org.domain.UrlKey;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//Visited urls kept outside the heap as 128 bit murmur3 fingerprints in open addressed tables, either in
+//direct buffers or memory mapped files, so a crawl of tens of millions of urls adds nothing for the GC to trace.
+//The table is split into independently locked segments that double when they pass 70% load. An optional
+//Bloom filter per segment answers most misses without probing the table, which saves page faults when mapped.
+//Two urls colliding on all 128 bits would be treated as one, which is not a practical concern at crawl scale.
+public class OffHeapVisitedUrlSet implements VisitedUrlSet {
+
+    private static final HashFunction FINGERPRINT = Hashing.murmur3_128();
+    private static final int SEGMENT_BITS = 6;
+    private static final int SEGMENTS = 1 << SEGMENT_BITS;
+    private static final int SLOT_BYTES = 16;
+    private static final int MIN_SEGMENT_SLOTS = 1 << 10;
+    private static final int MAX_SEGMENT_SLOTS = 1 << 26;
+    private static final double MAX_LOAD = 0.7;
+    private static final int BLOOM_BITS_PER_URL = 10;
+    private static final int BLOOM_HASHES = 7;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final BufferAllocator allocator;
+    private final AtomicInteger size = new AtomicInteger();
+
+    private OffHeapVisitedUrlSet(BufferAllocator allocator, long expectedUrls, boolean bloomFilter) {
+        if(expectedUrls < 0){
+            throw new IllegalArgumentException("Expected urls can not be negative");
+        }
+        this.allocator = allocator;
+        long perSegment = expectedUrls / SEGMENTS + 1;
+        int slots = slotsFor(perSegment);
+        int bloomBits = bloomFilter ? powerOfTwoAtLeast(Math.max(64, perSegment * BLOOM_BITS_PER_URL), 1 << 30) : 0;
+        for (int x = 0; x < SEGMENTS; x++) {
+            segments[x] = new Segment(x, slots, bloomBits);
+        }
+    }
+
+    public static OffHeapVisitedUrlSet direct(long expectedUrls, boolean bloomFilter) {
+        return new OffHeapVisitedUrlSet(new DirectAllocator(), expectedUrls, bloomFilter);
+    }
+
+    //Backs the tables with files in the directory, which are deleted again when the set is closed
+    public static OffHeapVisitedUrlSet mapped(Path directory, long expectedUrls, boolean bloomFilter) throws IOException {
+        Objects.requireNonNull(directory);
+        Files.createDirectories(directory);
+        try {
+            return new OffHeapVisitedUrlSet(new MappedAllocator(directory), expectedUrls, bloomFilter);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Override
+    public boolean add(UrlKey key) {
+        Objects.requireNonNull(key);
+        long[] fingerprint = fingerprint(key);
+        if(segment(fingerprint).add(fingerprint[0], fingerprint[1])){
+            size.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean contains(UrlKey key) {
+        if(key == null){
+            return false;
+        }
+        long[] fingerprint = fingerprint(key);
+        return segment(fingerprint).contains(fingerprint[0], fingerprint[1]);
+    }
+
+    @Override
+    public int size() {
+        return size.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        allocator.close();
+    }
+
+    private Segment segment(long[] fingerprint) {
+        return segments[(int) (fingerprint[0] >>> (64 - SEGMENT_BITS))];
+    }
+
+    //All zero marks an empty slot, so that one fingerprint is nudged to a value no url produces on its own
+    private static long[] fingerprint(UrlKey key) {
+        ByteBuffer hash = ByteBuffer.wrap(FINGERPRINT.hashString(key.toString(), StandardCharsets.UTF_8).asBytes());
+        long high = hash.getLong();
+        long low = hash.getLong();
+        if(high == 0 && low == 0){
+            low = 1;
+        }
+        return new long[]{high, low};
+    }
+
+    private static int slotsFor(long urls) {
+        return powerOfTwoAtLeast(Math.max(MIN_SEGMENT_SLOTS, (long) Math.ceil(urls / MAX_LOAD)), MAX_SEGMENT_SLOTS);
+    }
+
+    private static int powerOfTwoAtLeast(long value, int max) {
+        int power = 1;
+        while (power < value && power < max) {
+            power <<= 1;
+        }
+        return power;
+    }
+
+    private final class Segment {
+
+        private final int index;
+        private final ByteBuffer bloom;
+        private final int bloomMask;
+        private ByteBuffer table;
+        private int mask;
+        private int count;
+        private int resizeAt;
+        private int generation;
+
+        Segment(int index, int slots, int bloomBits) {
+            this.index = index;
+            this.bloom = bloomBits == 0 ? null : allocator.allocate("bloom-" + index, bloomBits / 8);
+            this.bloomMask = bloomBits - 1;
+            allocateTable(slots);
+        }
+
+        synchronized boolean add(long high, long low) {
+            boolean maybePresent = bloom == null || mightContain(high, low);
+            int slot = (int) low & mask;
+            while (true) {
+                int offset = slot * SLOT_BYTES;
+                long slotHigh = table.getLong(offset);
+                long slotLow = table.getLong(offset + 8);
+                if(slotHigh == 0 && slotLow == 0){
+                    break;
+                }
+                if(maybePresent && slotHigh == high && slotLow == low){
+                    return false;
+                }
+                slot = (slot + 1) & mask;
+            }
+
+            put(table, mask, high, low);
+            if(bloom != null){
+                setBloomBits(high, low);
+            }
+            if(++count > resizeAt){
+                grow();
+            }
+            return true;
+        }
+
+        synchronized boolean contains(long high, long low) {
+            if(bloom != null && !mightContain(high, low)){
+                return false;
+            }
+            int slot = (int) low & mask;
+            while (true) {
+                int offset = slot * SLOT_BYTES;
+                long slotHigh = table.getLong(offset);
+                long slotLow = table.getLong(offset + 8);
+                if(slotHigh == 0 && slotLow == 0){
+                    return false;
+                }
+                if(slotHigh == high && slotLow == low){
+                    return true;
+                }
+                slot = (slot + 1) & mask;
+            }
+        }
+
+        private void grow() {
+            int slots = mask + 1;
+            if(slots >= MAX_SEGMENT_SLOTS){
+                if(count >= slots - 1){
+                    throw new IllegalStateException("Visited url set is full");
+                }
+                return;
+            }
+            ByteBuffer old = table;
+            String oldName = tableName();
+            allocateTable(slots * 2);
+            for (int offset = 0; offset < slots * SLOT_BYTES; offset += SLOT_BYTES) {
+                long high = old.getLong(offset);
+                long low = old.getLong(offset + 8);
+                if(high != 0 || low != 0){
+                    put(table, mask, high, low);
+                }
+            }
+            allocator.release(oldName);
+        }
+
+        private void allocateTable(int slots) {
+            generation++;
+            table = allocator.allocate(tableName(), (long) slots * SLOT_BYTES);
+            mask = slots - 1;
+            resizeAt = slots >= MAX_SEGMENT_SLOTS ? slots - 1 : (int) (slots * MAX_LOAD);
+        }
+
+        private String tableName() {
+            return "visited-" + index + "-" + generation;
+        }
+
+        private void put(ByteBuffer into, int intoMask, long high, long low) {
+            int slot = (int) low & intoMask;
+            while (into.getLong(slot * SLOT_BYTES) != 0 || into.getLong(slot * SLOT_BYTES + 8) != 0) {
+                slot = (slot + 1) & intoMask;
+            }
+            into.putLong(slot * SLOT_BYTES, high);
+            into.putLong(slot * SLOT_BYTES + 8, low);
+        }
+
+        //Double hashing over the two fingerprint halves gives the k bloom positions
+        private boolean mightContain(long high, long low) {
+            for (int x = 0; x < BLOOM_HASHES; x++) {
+                int bit = (int) ((low + x * (high | 1)) & bloomMask);
+                if((bloom.getLong((bit >>> 6) << 3) & (1L << bit)) == 0){
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void setBloomBits(long high, long low) {
+            for (int x = 0; x < BLOOM_HASHES; x++) {
+                int bit = (int) ((low + x * (high | 1)) & bloomMask);
+                int offset = (bit >>> 6) << 3;
+                bloom.putLong(offset, bloom.getLong(offset) | (1L << bit));
+            }
+        }
+    }
+
+    private interface BufferAllocator {
+
+        //Returns a zeroed buffer of the given size
+        ByteBuffer allocate(String name, long bytes);
+
+        void release(String name);
+
+        void close() throws IOException;
+    }
+
+    private static class DirectAllocator implements BufferAllocator {
+
+        @Override
+        public ByteBuffer allocate(String name, long bytes) {
+            return ByteBuffer.allocateDirect((int) bytes);
+        }
+
+        @Override
+        public void release(String name) {
+            //Freed by the buffer's cleaner once unreachable
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    //Mapped buffers can not be unmapped explicitly, so released files are deleted and their pages reclaimed
+    //by the OS once the old mapping is collected
+    private static class MappedAllocator implements BufferAllocator {
+
+        private final Path directory;
+        private final Set<String> files = ConcurrentHashMap.newKeySet();
+
+        MappedAllocator(Path directory) {
+            this.directory = directory;
+        }
+
+        @Override
+        public ByteBuffer allocate(String name, long bytes) {
+            try (RandomAccessFile file = new RandomAccessFile(file(name).toFile(), "rw")) {
+                files.add(name);
+                file.setLength(0);
+                file.setLength(bytes);
+                return file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void release(String name) {
+            try {
+                Files.deleteIfExists(file(name));
+                files.remove(name);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (String name : files) {
+                Files.deleteIfExists(file(name));
+            }
+            files.clear();
+        }
+
+        private Path file(String name) {
+            return directory.resolve(name + ".dat");
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package ash.org.crawler;
+
+import ash.org.domain.PageDetails;
+import ash.org.domain.UrlKey;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+//Local cache of page validators and extracted details, kept between runs in a single binary file
+public class PageCache {
+
+    //Version 2 added page fingerprints, version 1 caches still load without them
+    private static final int FORMAT_VERSION = 2;
+
+    private final Path file;
+    private final ConcurrentMap<UrlKey, CachedPage> pages = new ConcurrentHashMap<>();
+
+    private PageCache(Path file) {
+        this.file = file;
+    }
+
+    public static PageCache open(Path file) throws IOException {
+        Objects.requireNonNull(file);
+        PageCache pageCache = new PageCache(file);
+        if(Files.exists(file)){
+            pageCache.load();
+        }
+        return pageCache;
+    }
+
+    public CachedPage get(URL url) {
+        return pages.get(UrlKey.of(url));
+    }
+
+    public void put(URL url, CachedPage cachedPage) {
+        Objects.requireNonNull(cachedPage);
+        pages.put(UrlKey.of(url), cachedPage);
+    }
+
+    public int size() {
+        return pages.size();
+    }
+
+    public void save() throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if(parent != null){
+            Files.createDirectories(parent);
+        }
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(pages.size());
+            for (Map.Entry<UrlKey, CachedPage> entry : pages.entrySet()) {
+                CachedPage cachedPage = entry.getValue();
+                out.writeUTF(entry.getKey().toString());
+                writeNullable(out, cachedPage.getETag());
+                writeNullable(out, cachedPage.getLastModified());
+                writeStrings(out, cachedPage.getPageDetails().getLinks());
+                writeStrings(out, cachedPage.getPageDetails().getAssets());
+                out.writeLong(cachedPage.getPageDetails().getFingerprint());
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void load() throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            int version = in.readInt();
+            if(version != 1 && version != FORMAT_VERSION){
+                throw new IOException("Unsupported page cache version " + version + " in " + file);
+            }
+            int count = in.readInt();
+            for (int x = 0; x < count; x++) {
+                URL url = new URL(in.readUTF());
+                String eTag = readNullable(in);
+                String lastModified = readNullable(in);
+                Set<String> links = readStrings(in);
+                Set<String> assets = readStrings(in);
+                long fingerprint = version == 1 ? SimHash.NONE : in.readLong();
+                put(url, new CachedPage(eTag, lastModified, new PageDetails(links, assets, fingerprint)));
+            }
+        }
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if(value != null){
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeStrings(DataOutputStream out, Set<String> values) throws IOException {
+        out.writeInt(values.size());
+        for (String value : values) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static Set<String> readStrings(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        Set<String> values = new HashSet<>(count * 2);
+        for (int x = 0; x < count; x++) {
+            values.add(in.readUTF());
+        }
+        return values;
+    }
+}
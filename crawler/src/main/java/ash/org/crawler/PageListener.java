@@ -0,0 +1,10 @@
+package ash.org.crawler;
+
+import ash.org.domain.Page;
+
+//Receives each page as soon as it has been scraped, on the thread driving the crawl, one page at a time
+@FunctionalInterface
+public interface PageListener {
+
+    void onPage(Page page);
+}
@@ -0,0 +1,29 @@
+package ash.org.crawler;
+
+import ash.org.domain.Page;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Objects;
+
+//Reads back pages written by a PageWriter, one at a time
+public interface PageReader extends Closeable {
+
+    //The next page, or null at the end of the stream
+    Page read() throws IOException;
+
+    //Picks the reader from the first byte: the binary magic or the start of a json line
+    static PageReader open(InputStream in) throws IOException {
+        Objects.requireNonNull(in);
+        BufferedInputStream buffered = new BufferedInputStream(in);
+        buffered.mark(1);
+        int first = buffered.read();
+        buffered.reset();
+        if(first == BinaryPageWriter.MAGIC[0]){
+            return new BinaryPageReader(buffered);
+        }
+        return new NdjsonPageReader(buffered);
+    }
+}
@@ -0,0 +1,23 @@
+package ash.org.crawler;
+
+import ash.org.domain.Page;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+//Streams crawled pages out as they finish. Used as the crawl's listener, so writes happen on the crawl's
+//listener thread and are not synchronised. Closing finishes the stream and closes the underlying output.
+public interface PageWriter extends PageListener, Closeable {
+
+    void write(Page page) throws IOException;
+
+    @Override
+    default void onPage(Page page) {
+        try {
+            write(page);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package ash.org.crawler;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+//Where a crawl parses and extracts the pages it fetched. INLINE does it on the fetch worker. Otherwise
+//fetch workers hand raw responses to a separate pool sized for the cores, and block once the parse pool
+//is busy and its queue full, so a slow parser holds back fetching rather than piling bodies up in memory.
+public final class ParseStage {
+
+    public static final ParseStage INLINE = new ParseStage();
+
+    private final int workers;
+    private final int queueCapacity;
+
+    private ParseStage() {
+        this.workers = 0;
+        this.queueCapacity = 0;
+    }
+
+    public ParseStage(int workers, int queueCapacity) {
+        if(workers < 1){
+            throw new IllegalArgumentException("Must have at least one parse worker");
+        }
+        if(queueCapacity < 0){
+            throw new IllegalArgumentException("Parse queue capacity can not be negative");
+        }
+        this.workers = workers;
+        this.queueCapacity = queueCapacity;
+    }
+
+    //One parse worker per core, with a couple of pages queued for each
+    public static ParseStage perCore() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        return new ParseStage(cores, cores * 2);
+    }
+
+    public boolean isInline() {
+        return workers == 0;
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    //Most responses that can be fetched but not yet extracted at once
+    int capacity() {
+        return workers + queueCapacity;
+    }
+
+    ExecutorService newExecutor() {
+        return Executors.newFixedThreadPool(workers);
+    }
+
+    Semaphore newHandOff() {
+        return new Semaphore(capacity());
+    }
+}
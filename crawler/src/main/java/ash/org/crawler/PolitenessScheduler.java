@@ -0,0 +1,227 @@
+package ash.org.crawler;
+
+import ash.org.domain.UrlKey;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URL;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+//Polite crawling: obeys each host's robots.txt, spaces requests to a host by at least the
+//configured delay or its Crawl-delay, and backs off when the host throttles us or slows down.
+//The delay grows on 429/503 responses and latency spikes and decays back once the host recovers.
+public class PolitenessScheduler implements CrawlScheduler {
+
+    public static final String ROBOTS_PATH = "/robots.txt";
+    public static final long INITIAL_BACKOFF_MILLIS = 250;
+    public static final double LATENCY_SPIKE_FACTOR = 2.0;
+    public static final long DEFAULT_MIN_DELAY_MILLIS = 500;
+    public static final long DEFAULT_MAX_DELAY_MILLIS = 60000;
+    public static final int DEFAULT_MAX_RETRIES = 3;
+
+    private final Fetcher robotsFetcher;
+    private final long minDelayNanos;
+    private final long maxDelayNanos;
+    private final int maxRetries;
+    private final ConcurrentMap<String, CompletableFuture<RobotsRules>> robots = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, HostState> hosts = new ConcurrentHashMap<>();
+
+    public PolitenessScheduler(Fetcher robotsFetcher) {
+        this(robotsFetcher, DEFAULT_MIN_DELAY_MILLIS, DEFAULT_MAX_DELAY_MILLIS, DEFAULT_MAX_RETRIES);
+    }
+
+    public PolitenessScheduler(Fetcher robotsFetcher, long minDelayMillis, long maxDelayMillis, int maxRetries) {
+        Objects.requireNonNull(robotsFetcher);
+        if(minDelayMillis < 0 || maxDelayMillis < minDelayMillis){
+            throw new IllegalArgumentException("Delays must satisfy 0 <= min delay <= max delay");
+        }
+        if(maxRetries < 0){
+            throw new IllegalArgumentException("Retries can not be negative");
+        }
+        this.robotsFetcher = robotsFetcher;
+        this.minDelayNanos = TimeUnit.MILLISECONDS.toNanos(minDelayMillis);
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+        this.maxRetries = maxRetries;
+    }
+
+    @Override
+    public boolean isAllowed(URL url) throws IOException {
+        Objects.requireNonNull(url);
+        String path = url.getPath();
+        if(url.getQuery() != null){
+            path += "?" + url.getQuery();
+        }
+        return robotsRules(url).isAllowed(path);
+    }
+
+    @Override
+    public <T> T fetch(URL url, Fetch<T> fetch) throws IOException {
+        return fetch(url, fetch, true);
+    }
+
+    @Override
+    public <T> T fetchUntimed(URL url, Fetch<T> fetch) throws IOException {
+        return fetch(url, fetch, false);
+    }
+
+    private <T> T fetch(URL url, Fetch<T> fetch, boolean timed) throws IOException {
+        Objects.requireNonNull(url);
+        HostState host = hostState(url);
+        for (int attempt = 0; ; attempt++) {
+            sleepUntil(host.reserve(System.nanoTime()), url);
+            long start = System.nanoTime();
+            try {
+                T result = fetch.fetch();
+                if(timed){
+                    host.onSuccess(System.nanoTime() - start);
+                }
+                return result;
+            } catch (ThrottledException e) {
+                host.onThrottled(System.nanoTime(), TimeUnit.MILLISECONDS.toNanos(e.getRetryAfterMillis()));
+                if(attempt >= maxRetries){
+                    throw e;
+                }
+            }
+        }
+    }
+
+    //Until the host's next free slot, 0 for a host not fetched from yet as there is nothing to space from
+    @Override
+    public long getWaitNanos(URL url) {
+        HostState host = hosts.get(UrlKey.origin(url));
+        return host == null ? 0 : host.waitNanos(System.nanoTime());
+    }
+
+    //The current spacing between requests to the url's host
+    public long getDelayMillis(URL url) throws IOException {
+        return TimeUnit.NANOSECONDS.toMillis(hostState(url).delay());
+    }
+
+    private HostState hostState(URL url) throws IOException {
+        String origin = UrlKey.origin(url);
+        HostState host = hosts.get(origin);
+        if(host != null){
+            return host;
+        }
+        long crawlDelayNanos = TimeUnit.MILLISECONDS.toNanos(robotsRules(url).getCrawlDelayMillis());
+        long floor = Math.min(maxDelayNanos, Math.max(minDelayNanos, crawlDelayNanos));
+        return hosts.computeIfAbsent(origin, o -> new HostState(floor, maxDelayNanos));
+    }
+
+    //From the same cached robots.txt the host's rules come from, so sitemaps cost no second fetch
+    @Override
+    public List<String> getSitemaps(URL site) throws IOException {
+        return robotsRules(site).getSitemaps();
+    }
+
+    private RobotsRules robotsRules(URL url) throws IOException {
+        String origin = UrlKey.origin(url);
+        CompletableFuture<RobotsRules> rules = robots.get(origin);
+        if(rules == null){
+            CompletableFuture<RobotsRules> fetching = new CompletableFuture<>();
+            rules = robots.putIfAbsent(origin, fetching);
+            if(rules == null){
+                rules = fetching;
+                try {
+                    fetching.complete(fetchRobots(origin));
+                } catch (RuntimeException | Error e) {
+                    //Threads waiting on the host must not block for good, and the next to ask fetches it again
+                    robots.remove(origin, fetching);
+                    fetching.completeExceptionally(e);
+                    throw e;
+                }
+            }
+        }
+        try {
+            return rules.join();
+        } catch (CompletionException e) {
+            throw new IOException(e.getCause());
+        }
+    }
+
+    //Follows RFC 9309: a missing robots.txt allows everything, an unreachable one allows nothing
+    private RobotsRules fetchRobots(String origin) {
+        try {
+            FetchResponse response = robotsFetcher.fetch(new URL(origin + ROBOTS_PATH), Collections.emptyMap());
+            int status = response.getStatusCode();
+            if(status >= 200 && status < 300){
+                return RobotsRules.parse(response.getBodyAsString(), HttpClientFetcher.USER_AGENT);
+            }
+            if(status >= 400 && status < 500){
+                return RobotsRules.ALLOW_ALL;
+            }
+            return RobotsRules.DISALLOW_ALL;
+        } catch (IOException e) {
+            return RobotsRules.DISALLOW_ALL;
+        }
+    }
+
+    private static void sleepUntil(long deadline, URL url) throws InterruptedIOException {
+        long wait = deadline - System.nanoTime();
+        if(wait <= 0){
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting to fetch " + url);
+        }
+    }
+
+    private static class HostState {
+
+        private final long floorNanos;
+        private final long maxNanos;
+        private long delayNanos;
+        private long nextSlotNanos;
+        private double latencyNanos;
+
+        HostState(long floorNanos, long maxNanos) {
+            this.floorNanos = floorNanos;
+            this.maxNanos = maxNanos;
+            this.delayNanos = floorNanos;
+            this.nextSlotNanos = System.nanoTime();
+        }
+
+        //Hands out the next free slot for this host and pushes the following one back by the delay
+        synchronized long reserve(long now) {
+            long slot = Math.max(now, nextSlotNanos);
+            nextSlotNanos = slot + delayNanos;
+            return slot;
+        }
+
+        synchronized long waitNanos(long now) {
+            return Math.max(0, nextSlotNanos - now);
+        }
+
+        synchronized long delay() {
+            return delayNanos;
+        }
+
+        synchronized void onSuccess(long latency) {
+            if(latencyNanos > 0 && latency > latencyNanos * LATENCY_SPIKE_FACTOR){
+                delayNanos = Math.min(maxNanos, Math.max(delayNanos + delayNanos / 2, floorNanos + backoffStep()));
+            } else {
+                delayNanos = Math.max(floorNanos, delayNanos - delayNanos / 10);
+            }
+            latencyNanos = latencyNanos == 0 ? latency : latencyNanos * 0.8 + latency * 0.2;
+        }
+
+        synchronized void onThrottled(long now, long retryAfterNanos) {
+            delayNanos = Math.min(maxNanos, Math.max(delayNanos * 2, floorNanos + backoffStep()));
+            nextSlotNanos = Math.max(nextSlotNanos, now + Math.max(delayNanos, Math.min(maxNanos, retryAfterNanos)));
+        }
+
+        private long backoffStep() {
+            return Math.min(maxNanos, TimeUnit.MILLISECONDS.toNanos(INITIAL_BACKOFF_MILLIS));
+        }
+    }
+}
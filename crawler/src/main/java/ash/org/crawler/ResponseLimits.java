@@ -0,0 +1,169 @@
+package ash.org.crawler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+//How much of a response body a Fetcher reads. Bodies are streamed up to a byte cap, past which they are
+//cut short or failed. Bodies whose Content-Type, or sniffed first bytes when there is none, say they are
+//not text are not read at all, leaving checkResponse to reject them on their type.
+public final class ResponseLimits {
+
+    public static final int DEFAULT_MAX_BYTES = 8 * 1024 * 1024;
+    //Enough of the body to tell text from binary, as browsers sniff
+    public static final int SNIFF_BYTES = 512;
+
+    public static final ResponseLimits UNLIMITED = new ResponseLimits(Integer.MAX_VALUE, Truncation.TRUNCATE, false);
+    public static final ResponseLimits DEFAULT = new ResponseLimits(DEFAULT_MAX_BYTES, Truncation.TRUNCATE, true);
+
+    public enum Truncation {
+        //Keep the first maxBytes, html parses fine cut off part way through
+        TRUNCATE,
+        //Throw ResponseTooLargeException
+        FAIL
+    }
+
+    private static final int CHUNK_BYTES = 16 * 1024;
+    private static final byte[][] BINARY_SIGNATURES = {
+            "%PDF-".getBytes(StandardCharsets.US_ASCII),
+            {(byte) 0x89, 'P', 'N', 'G'},
+            "GIF8".getBytes(StandardCharsets.US_ASCII),
+            {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF},
+            {'P', 'K', 3, 4},
+            {(byte) 0x1F, (byte) 0x8B},
+            "RIFF".getBytes(StandardCharsets.US_ASCII),
+            {0, 0, 1, 0},
+            {'7', 'z', (byte) 0xBC, (byte) 0xAF},
+            "Rar!".getBytes(StandardCharsets.US_ASCII),
+            {0x7F, 'E', 'L', 'F'},
+    };
+
+    private final int maxBytes;
+    private final Truncation truncation;
+    private final boolean sniffContentType;
+
+    public ResponseLimits(int maxBytes, Truncation truncation, boolean sniffContentType) {
+        if(maxBytes < 1){
+            throw new IllegalArgumentException("Must allow at least one byte of body");
+        }
+        Objects.requireNonNull(truncation);
+        this.maxBytes = maxBytes;
+        this.truncation = truncation;
+        this.sniffContentType = sniffContentType;
+    }
+
+    public int getMaxBytes() {
+        return maxBytes;
+    }
+
+    public Truncation getTruncation() {
+        return truncation;
+    }
+
+    public boolean isSniffContentType() {
+        return sniffContentType;
+    }
+
+    //Reads as much of the decoded body as the limits allow, closing it either way
+    public FetchResponse read(URL url, int statusCode, Map<String, List<String>> headers, InputStream body) throws IOException {
+        try (InputStream in = body) {
+            FetchResponse unread = new FetchResponse(url, statusCode, headers, new byte[0]);
+            if(sniffContentType && !FetchResponse.isText(unread.getContentType())){
+                return unread;
+            }
+            if(truncation == Truncation.FAIL){
+                String contentLength = unread.header("Content-Length");
+                if(contentLength != null && unread.header("Content-Encoding") == null && parseLength(contentLength) > maxBytes){
+                    throw new ResponseTooLargeException(url, maxBytes);
+                }
+            }
+
+            byte[] buffer = new byte[Math.min(maxBytes, CHUNK_BYTES)];
+            int length = 0;
+            boolean truncated = false;
+            int read;
+            while (true) {
+                if(length == buffer.length){
+                    if(length == maxBytes){
+                        //Full, a byte more says whether anything was cut off
+                        truncated = in.read() >= 0;
+                        break;
+                    }
+                    buffer = Arrays.copyOf(buffer, (int) Math.min(maxBytes, buffer.length * 2L));
+                }
+                read = in.read(buffer, length, buffer.length - length);
+                if(read < 0){
+                    break;
+                }
+                length += read;
+
+                if(sniffContentType && unread.getContentType() == null && length - read < SNIFF_BYTES){
+                    String sniffed = sniff(buffer, length);
+                    if(sniffed != null){
+                        return new FetchResponse(url, statusCode, headers, new byte[0], sniffed, false);
+                    }
+                }
+            }
+            if(truncated && truncation == Truncation.FAIL){
+                throw new ResponseTooLargeException(url, maxBytes);
+            }
+            return new FetchResponse(url, statusCode, headers, length == buffer.length ? buffer : Arrays.copyOf(buffer, length), null, truncated);
+        }
+    }
+
+    //A binary type for bodies that start like a known binary format or hold control bytes, null when they look like text
+    static String sniff(byte[] body, int length) {
+        int sniffed = Math.min(length, SNIFF_BYTES);
+        if(startsWith(body, sniffed, new byte[]{(byte) 0xEF, (byte) 0xBB, (byte) 0xBF})
+                || startsWith(body, sniffed, new byte[]{(byte) 0xFE, (byte) 0xFF})
+                || startsWith(body, sniffed, new byte[]{(byte) 0xFF, (byte) 0xFE})){
+            return null;
+        }
+        for (byte[] signature : BINARY_SIGNATURES) {
+            if(startsWith(body, sniffed, signature)){
+                return "application/octet-stream";
+            }
+        }
+        for (int x = 0; x < sniffed; x++) {
+            int b = body[x] & 0xFF;
+            if(b <= 0x08 || b == 0x0B || (b >= 0x0E && b <= 0x1A) || (b >= 0x1C && b <= 0x1F)){
+                return "application/octet-stream";
+            }
+        }
+        return null;
+    }
+
+    private static boolean startsWith(byte[] body, int length, byte[] prefix) {
+        if(length < prefix.length){
+            return false;
+        }
+        for (int x = 0; x < prefix.length; x++) {
+            if(body[x] != prefix[x]){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long parseLength(String contentLength) {
+        try {
+            return Long.parseLong(contentLength.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ResponseLimits{" +
+                "maxBytes=" + maxBytes +
+                ", truncation=" + truncation +
+                ", sniffContentType=" + sniffContentType +
+                '}';
+    }
+}
@@ -0,0 +1,25 @@
+package ash.org.crawler;
+
+import java.io.IOException;
+import java.net.URL;
+
+//A response body went past the ResponseLimits byte cap with truncation set to fail
+public class ResponseTooLargeException extends IOException {
+
+    private final URL url;
+    private final int maxBytes;
+
+    public ResponseTooLargeException(URL url, int maxBytes) {
+        super("Response from " + url + " is over " + maxBytes + " bytes");
+        this.url = url;
+        this.maxBytes = maxBytes;
+    }
+
+    public URL getUrl() {
+        return url;
+    }
+
+    public int getMaxBytes() {
+        return maxBytes;
+    }
+}
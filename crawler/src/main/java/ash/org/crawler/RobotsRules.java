@@ -0,0 +1,161 @@
+package ash.org.crawler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+//The robots.txt group that applies to one user agent: Allow/Disallow path patterns and Crawl-delay.
+//Longest matching pattern wins and Allow wins ties, patterns support '*' and a trailing '$'.
+//Sitemap lines belong to no group, every one in the file is kept whichever agent is asking.
+public class RobotsRules {
+
+    public static final RobotsRules ALLOW_ALL = new RobotsRules(Collections.emptyList(), 0, Collections.emptyList());
+    public static final RobotsRules DISALLOW_ALL = new RobotsRules(Collections.singletonList(new Rule("/", false)), 0, Collections.emptyList());
+
+    private final List<Rule> rules;
+    private final long crawlDelayMillis;
+    private final List<String> sitemaps;
+
+    private RobotsRules(List<Rule> rules, long crawlDelayMillis, List<String> sitemaps) {
+        this.rules = rules;
+        this.crawlDelayMillis = crawlDelayMillis;
+        this.sitemaps = sitemaps;
+    }
+
+    public static RobotsRules parse(String robotsTxt, String userAgent) {
+        String agent = userAgent.toLowerCase(Locale.ROOT);
+        Group specific = new Group();
+        Group wildcard = new Group();
+
+        List<String> sitemaps = new ArrayList<>();
+        List<String> groupAgents = new ArrayList<>();
+        boolean inRules = false;
+        for (String rawLine : robotsTxt.split("\r\n|\r|\n")) {
+            int comment = rawLine.indexOf('#');
+            String line = (comment >= 0 ? rawLine.substring(0, comment) : rawLine).trim();
+            int colon = line.indexOf(':');
+            if(colon < 0){
+                continue;
+            }
+            String field = line.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+            String value = line.substring(colon + 1).trim();
+
+            if("sitemap".equals(field)){
+                //Does not end the group it sits in either
+                if(!value.isEmpty()){
+                    sitemaps.add(value);
+                }
+                continue;
+            }
+            if("user-agent".equals(field)){
+                if(inRules){
+                    groupAgents.clear();
+                    inRules = false;
+                }
+                groupAgents.add(value.toLowerCase(Locale.ROOT));
+                continue;
+            }
+            inRules = true;
+            for (String groupAgent : groupAgents) {
+                if("*".equals(groupAgent)){
+                    wildcard.apply(field, value);
+                } else if(!groupAgent.isEmpty() && agent.contains(groupAgent)){
+                    specific.apply(field, value);
+                }
+            }
+        }
+
+        Group group = specific.seen ? specific : wildcard;
+        return new RobotsRules(group.rules, group.crawlDelayMillis, Collections.unmodifiableList(sitemaps));
+    }
+
+    public boolean isAllowed(String path) {
+        String target = path.isEmpty() ? "/" : path;
+        Rule best = null;
+        for (Rule rule : rules) {
+            if(rule.matches(target) && (best == null || rule.pattern.length() > best.pattern.length()
+                    || (rule.pattern.length() == best.pattern.length() && rule.allow))){
+                best = rule;
+            }
+        }
+        return best == null || best.allow;
+    }
+
+    public long getCrawlDelayMillis() {
+        return crawlDelayMillis;
+    }
+
+    //Sitemap urls as written, robots.txt requires them to be absolute
+    public List<String> getSitemaps() {
+        return sitemaps;
+    }
+
+    private static class Group {
+
+        private final List<Rule> rules = new ArrayList<>();
+        private long crawlDelayMillis;
+        private boolean seen;
+
+        void apply(String field, String value) {
+            seen = true;
+            switch (field) {
+                case "allow":
+                    if(!value.isEmpty()){
+                        rules.add(new Rule(value, true));
+                    }
+                    break;
+                case "disallow":
+                    if(!value.isEmpty()){
+                        rules.add(new Rule(value, false));
+                    }
+                    break;
+                case "crawl-delay":
+                    try {
+                        crawlDelayMillis = Math.max(crawlDelayMillis, (long) (Double.parseDouble(value) * 1000));
+                    } catch (NumberFormatException e) {
+                        //Ignore malformed delays like the rest of the web does
+                    }
+                    break;
+                default:
+            }
+        }
+    }
+
+    private static class Rule {
+
+        private final String pattern;
+        private final boolean allow;
+
+        Rule(String pattern, boolean allow) {
+            this.pattern = pattern;
+            this.allow = allow;
+        }
+
+        boolean matches(String path) {
+            boolean anchored = pattern.endsWith("$");
+            String body = anchored ? pattern.substring(0, pattern.length() - 1) : pattern;
+            return matches(body, 0, path, 0, anchored);
+        }
+
+        private static boolean matches(String pattern, int p, String path, int s, boolean anchored) {
+            while (p < pattern.length()) {
+                char c = pattern.charAt(p);
+                if(c == '*'){
+                    for (int x = s; x <= path.length(); x++) {
+                        if(matches(pattern, p + 1, path, x, anchored)){
+                            return true;
+                        }
+                    }
+                    return false;
+                }
+                if(s >= path.length() || path.charAt(s) != c){
+                    return false;
+                }
+                p++;
+                s++;
+            }
+            return !anchored || s == path.length();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package ash.org.crawler;
+
+//64 bit SimHash of a page's text: every run of three words is hashed and votes on each bit of the
+//fingerprint, so pages sharing most of their text end up a few bits apart while unrelated pages differ in
+//about half. Words are runs of letters and digits compared without case, everything else separates them.
+//Text is added in pieces as an extractor walks the page, a piece boundary also ends a word.
+public final class SimHash {
+
+    //The fingerprint of a page without any words, never matched as a duplicate
+    public static final long NONE = 0;
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final int[] votes = new int[64];
+    private long previous;
+    private long beforePrevious;
+    private int words;
+
+    public static long of(CharSequence text) {
+        SimHash simHash = new SimHash();
+        simHash.add(text, 0, text.length());
+        return simHash.fingerprint();
+    }
+
+    public void add(CharSequence text, int from, int to) {
+        long word = FNV_OFFSET;
+        boolean inWord = false;
+        for (int x = from; x < to; x++) {
+            char c = text.charAt(x);
+            if(Character.isLetterOrDigit(c)){
+                word = (word ^ Character.toLowerCase(c)) * FNV_PRIME;
+                inWord = true;
+            } else if(inWord){
+                addWord(word);
+                word = FNV_OFFSET;
+                inWord = false;
+            }
+        }
+        if(inWord){
+            addWord(word);
+        }
+    }
+
+    private void addWord(long word) {
+        //Shingle of this word and the two before it, so word order counts and not just vocabulary
+        long shingle = mix(beforePrevious * 31 + previous) ^ word;
+        beforePrevious = previous;
+        previous = word;
+        words++;
+
+        long hash = mix(shingle);
+        for (int bit = 0; bit < 64; bit++) {
+            votes[bit] += (int) ((hash >>> bit) & 1) * 2 - 1;
+        }
+    }
+
+    public long fingerprint() {
+        if(words == 0){
+            return NONE;
+        }
+        long fingerprint = 0;
+        for (int bit = 0; bit < 64; bit++) {
+            if(votes[bit] > 0){
+                fingerprint |= 1L << bit;
+            }
+        }
+        return fingerprint;
+    }
+
+    public static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+
+    //Murmur3's 64 bit finaliser, spreading FNV's weak low bits over the whole word
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
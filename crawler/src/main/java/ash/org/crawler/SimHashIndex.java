@@ -0,0 +1,93 @@
+package ash.org.crawler;
+
+import ash.org.domain.UrlKey;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+//Finds an earlier page whose SimHash is within a few bits of a new one without comparing against them all.
+//Fingerprints are split into four 16 bit blocks and two fingerprints at most three bits apart must agree
+//exactly on at least one block, so each block value heads a chain of the fingerprints holding it and
+//only the four chains of a new fingerprint are compared. Safe to share between fetch workers.
+public class SimHashIndex {
+
+    public static final int MAX_DISTANCE = 3;
+
+    private static final int BLOCKS = 4;
+    private static final int BLOCK_BITS = 16;
+    private static final int NO_ENTRY = -1;
+
+    private final int maxDistance;
+    //heads[block][value] is the newest entry with that block value, next[block][entry] the one before it
+    private final int[][] heads = new int[BLOCKS][1 << BLOCK_BITS];
+    private final int[][] next = new int[BLOCKS][];
+    private long[] fingerprints = new long[1024];
+    private final List<UrlKey> keys = new ArrayList<>();
+
+    public SimHashIndex() {
+        this(MAX_DISTANCE);
+    }
+
+    public SimHashIndex(int maxDistance) {
+        if(maxDistance < 0 || maxDistance > MAX_DISTANCE){
+            throw new IllegalArgumentException("Max distance must be between 0 and " + MAX_DISTANCE);
+        }
+        this.maxDistance = maxDistance;
+        for (int block = 0; block < BLOCKS; block++) {
+            Arrays.fill(heads[block], NO_ENTRY);
+            next[block] = new int[fingerprints.length];
+        }
+    }
+
+    //The earlier page the fingerprint is a near duplicate of, or null after adding it as a page of its own
+    public synchronized UrlKey findOrAdd(long fingerprint, UrlKey key) {
+        UrlKey original = find(fingerprint);
+        if(original == null){
+            add(fingerprint, key);
+        }
+        return original;
+    }
+
+    public synchronized UrlKey find(long fingerprint) {
+        if(fingerprint == SimHash.NONE){
+            return null;
+        }
+        for (int block = 0; block < BLOCKS; block++) {
+            for (int entry = heads[block][blockValue(fingerprint, block)]; entry != NO_ENTRY; entry = next[block][entry]) {
+                if(SimHash.distance(fingerprint, fingerprints[entry]) <= maxDistance){
+                    return keys.get(entry);
+                }
+            }
+        }
+        return null;
+    }
+
+    private void add(long fingerprint, UrlKey key) {
+        if(fingerprint == SimHash.NONE){
+            return;
+        }
+        int entry = keys.size();
+        if(entry == fingerprints.length){
+            fingerprints = Arrays.copyOf(fingerprints, entry * 2);
+            for (int block = 0; block < BLOCKS; block++) {
+                next[block] = Arrays.copyOf(next[block], entry * 2);
+            }
+        }
+        fingerprints[entry] = fingerprint;
+        keys.add(key);
+        for (int block = 0; block < BLOCKS; block++) {
+            int value = blockValue(fingerprint, block);
+            next[block][entry] = heads[block][value];
+            heads[block][value] = entry;
+        }
+    }
+
+    public synchronized int size() {
+        return keys.size();
+    }
+
+    private static int blockValue(long fingerprint, int block) {
+        return (int) (fingerprint >>> (block * BLOCK_BITS)) & ((1 << BLOCK_BITS) - 1);
+    }
+}
@@ -0,0 +1,30 @@
+package ash.org.crawler;
+
+import ash.org.domain.Page;
+import ash.org.domain.Site;
+
+import java.net.URL;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+
+//Materialises a streamed crawl back into a Site
+public class SiteCollector implements PageListener {
+
+    private final URL domain;
+    private final Set<Page> pages = new HashSet<>();
+
+    public SiteCollector(URL domain) {
+        Objects.requireNonNull(domain);
+        this.domain = domain;
+    }
+
+    @Override
+    public void onPage(Page page) {
+        pages.add(page);
+    }
+
+    public Site toSite() {
+        return new Site(domain, pages);
+    }
+}
@@ -0,0 +1,57 @@
+package ash.org.crawler;
+
+import java.net.URL;
+import java.util.Objects;
+
+//How one site of a multi-site crawl went. A failed site has an error and no outcome, its output
+//holds the pages crawled before the failure.
+public final class SiteResult {
+
+    private final URL url;
+    private final CrawlOutcome outcome;
+    private final Exception error;
+    private final int pages;
+    private final long elapsedMillis;
+
+    SiteResult(URL url, CrawlOutcome outcome, Exception error, int pages, long elapsedMillis) {
+        Objects.requireNonNull(url);
+        this.url = url;
+        this.outcome = outcome;
+        this.error = error;
+        this.pages = pages;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public URL getUrl() {
+        return url;
+    }
+
+    public CrawlOutcome getOutcome() {
+        return outcome;
+    }
+
+    public Exception getError() {
+        return error;
+    }
+
+    public boolean isFailed() {
+        return error != null;
+    }
+
+    public int getPages() {
+        return pages;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "site=" + url +
+                " outcome=" + (isFailed() ? "FAILED" : outcome) +
+                " pages=" + pages +
+                " millis=" + elapsedMillis +
+                (isFailed() ? " error=" + error : "");
+    }
+}
@@ -0,0 +1,111 @@
+package ash.org.crawler;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+//Pulls the urls out of a sitemap or sitemap index with StAX, one <url> or <sitemap> at a time, so a sitemap of
+//hundreds of megabytes is never held in memory. Gzipped sitemaps are spotted by their first bytes, as servers
+//label .xml.gz files any number of ways. Elements are matched on their local name alone, namespace or not.
+//DTDs and external entities are refused, sitemaps come from whoever runs the site.
+public final class SitemapParser {
+
+    //The protocol's priority for urls that do not give one
+    public static final double DEFAULT_PRIORITY = 0.5;
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = newInputFactory();
+
+    public interface Listener {
+        //A page the sitemap lists, returning false stops the parse
+        boolean onUrl(String loc, double priority) throws IOException;
+
+        //A further sitemap a sitemap index lists
+        void onSitemap(String loc) throws IOException;
+    }
+
+    private SitemapParser() {
+    }
+
+    //Parses until the sitemap ends or the listener asks to stop, the stream is left open
+    public static void parse(InputStream in, Listener listener) throws IOException {
+        XMLStreamReader reader;
+        try {
+            reader = XML_INPUT_FACTORY.createXMLStreamReader(ungzipped(in));
+        } catch (XMLStreamException e) {
+            throw new IOException("Malformed sitemap", e);
+        }
+        try {
+            parse(reader, listener);
+        } catch (XMLStreamException e) {
+            throw new IOException("Malformed sitemap", e);
+        } finally {
+            try {
+                reader.close();
+            } catch (XMLStreamException e) {
+                //Nothing held beyond the stream, which the caller closes
+            }
+        }
+    }
+
+    private static void parse(XMLStreamReader reader, Listener listener) throws XMLStreamException, IOException {
+        //The <url> or <sitemap> being read, null between them
+        String entry = null;
+        String loc = null;
+        double priority = DEFAULT_PRIORITY;
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if(event == XMLStreamConstants.START_ELEMENT){
+                String name = reader.getLocalName();
+                if("url".equals(name) || "sitemap".equals(name)){
+                    entry = name;
+                    loc = null;
+                    priority = DEFAULT_PRIORITY;
+                } else if(entry != null && "loc".equals(name)){
+                    loc = reader.getElementText().trim();
+                } else if("url".equals(entry) && "priority".equals(name)){
+                    priority = parsePriority(reader.getElementText());
+                }
+            } else if(event == XMLStreamConstants.END_ELEMENT && entry != null && entry.equals(reader.getLocalName())){
+                if(loc != null && !loc.isEmpty()){
+                    if("sitemap".equals(entry)){
+                        listener.onSitemap(loc);
+                    } else if(!listener.onUrl(loc, priority)){
+                        return;
+                    }
+                }
+                entry = null;
+            }
+        }
+    }
+
+    private static double parsePriority(String priority) {
+        try {
+            double value = Double.parseDouble(priority.trim());
+            return value >= 0 && value <= 1 ? value : DEFAULT_PRIORITY;
+        } catch (NumberFormatException e) {
+            return DEFAULT_PRIORITY;
+        }
+    }
+
+    private static InputStream ungzipped(InputStream in) throws IOException {
+        InputStream buffered = in.markSupported() ? in : new BufferedInputStream(in);
+        buffered.mark(2);
+        int first = buffered.read();
+        int second = buffered.read();
+        buffered.reset();
+        return first == 0x1F && second == 0x8B ? new GZIPInputStream(buffered) : buffered;
+    }
+
+    private static XMLInputFactory newInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
+    }
+}
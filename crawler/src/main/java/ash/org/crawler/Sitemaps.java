@@ -0,0 +1,140 @@
+package ash.org.crawler;
+
+import ash.org.domain.UrlKey;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+
+//Finds a site's pages from its sitemaps rather than by following links, so a crawl can start with a wide
+//frontier instead of working down from the home page a level at a time. Sitemaps are those its robots.txt
+//names, or /sitemap.xml when it names none, and the sitemaps any of them list in turn as an index. robots.txt
+//is only fetched here when the scheduler does not already hold it.
+//Each is streamed through SitemapParser as it downloads, so the fetch is left out of the host's latency as it
+//includes the parsing and the listener's work. Only pages on the site's own origin are passed on.
+public class Sitemaps {
+
+    public static final String SITEMAP_PATH = "/sitemap.xml";
+    //Indexes may list up to 50,000 sitemaps, a crawl rarely wants more than the first few hundred
+    public static final int DEFAULT_MAX_SITEMAPS = 500;
+
+    private static final Logger LOG = Logger.getLogger(Sitemaps.class);
+
+    private final Fetcher fetcher;
+    private final int maxSitemaps;
+
+    public interface Listener {
+        //A page on the site with its sitemap priority, returning false stops the search
+        boolean onPage(UrlKey key, double priority) throws IOException;
+    }
+
+    public Sitemaps(Fetcher fetcher) {
+        this(fetcher, DEFAULT_MAX_SITEMAPS);
+    }
+
+    public Sitemaps(Fetcher fetcher, int maxSitemaps) {
+        Objects.requireNonNull(fetcher);
+        if(maxSitemaps < 1){
+            throw new IllegalArgumentException("Must read at least one sitemap");
+        }
+        this.fetcher = fetcher;
+        this.maxSitemaps = maxSitemaps;
+    }
+
+    //Returns the number of pages passed to the listener. Sitemaps that are missing, disallowed or malformed
+    //are skipped, keeping the pages read before a malformed one went wrong.
+    public int seed(URL site, CrawlScheduler scheduler, Listener listener) throws IOException {
+        Objects.requireNonNull(site);
+        Objects.requireNonNull(scheduler);
+        Objects.requireNonNull(listener);
+        String origin = UrlKey.origin(site);
+
+        List<String> named = scheduler.getSitemaps(site);
+        Queue<String> sitemaps = new ArrayDeque<>(named == null ? robotsSitemaps(origin, scheduler) : named);
+        if(sitemaps.isEmpty()){
+            sitemaps.add(origin + SITEMAP_PATH);
+        }
+        Set<String> seen = new HashSet<>(sitemaps);
+        int[] pages = new int[1];
+        boolean[] stopped = new boolean[1];
+        int read = 0;
+        while (!sitemaps.isEmpty() && !stopped[0] && read < maxSitemaps) {
+            URL sitemap = toUrl(sitemaps.poll());
+            if(sitemap == null || !scheduler.isAllowed(sitemap)){
+                continue;
+            }
+            read++;
+            try {
+                scheduler.fetchUntimed(sitemap, () -> fetcher.stream(sitemap, (response, body) -> {
+                    if(!isSuccess(response.getStatusCode())){
+                        LOG.debug("no sitemap url=" + sitemap + " status=" + response.getStatusCode());
+                        return null;
+                    }
+                    SitemapParser.parse(body, new SitemapParser.Listener() {
+                        @Override
+                        public boolean onUrl(String loc, double priority) throws IOException {
+                            URL page = toUrl(loc);
+                            if(page == null || !origin.equals(UrlKey.origin(page))){
+                                return true;
+                            }
+                            pages[0]++;
+                            stopped[0] = !listener.onPage(UrlKey.of(page), priority);
+                            return !stopped[0];
+                        }
+
+                        @Override
+                        public void onSitemap(String loc) {
+                            if(seen.add(loc)){
+                                sitemaps.add(loc);
+                            }
+                        }
+                    });
+                    return null;
+                }));
+            } catch (InterruptedIOException e) {
+                throw e;
+            } catch (IOException e) {
+                LOG.warn("sitemap failed url=" + sitemap + " error=" + e);
+            }
+        }
+        return pages[0];
+    }
+
+    private List<String> robotsSitemaps(String origin, CrawlScheduler scheduler) throws IOException {
+        URL robots = new URL(origin + PolitenessScheduler.ROBOTS_PATH);
+        try {
+            FetchResponse response = scheduler.fetch(robots, () -> fetcher.fetch(robots, Collections.emptyMap()));
+            if(isSuccess(response.getStatusCode())){
+                return RobotsRules.parse(response.getBodyAsString(), HttpClientFetcher.USER_AGENT).getSitemaps();
+            }
+        } catch (InterruptedIOException e) {
+            throw e;
+        } catch (IOException e) {
+            LOG.warn("robots.txt failed url=" + robots + " error=" + e);
+        }
+        return Collections.emptyList();
+    }
+
+    private static boolean isSuccess(int statusCode) {
+        return statusCode >= 200 && statusCode < 300;
+    }
+
+    //Null for anything but an absolute http or https url
+    private static URL toUrl(String loc) {
+        try {
+            URL url = new URL(loc);
+            return "http".equals(url.getProtocol()) || "https".equals(url.getProtocol()) ? url : null;
+        } catch (MalformedURLException e) {
+            return null;
+        }
+    }
+}
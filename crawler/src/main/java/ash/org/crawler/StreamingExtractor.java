@@ -0,0 +1,351 @@
+package ash.org.crawler;
+
+import org.jsoup.parser.Parser;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+
+import static ash.org.crawler.HTMLScraper.*;
+
+//Single pass tokenizer pulling the anchor hrefs and css, image and script urls out of raw html
+//without building a DOM. Follows jsoup's handling of the parts that matter for those four tags:
+//case insensitive names, last duplicate attribute wins, tags cut off by the end of the document are
+//dropped, comments and raw text bodies are skipped. The text between tags is fingerprinted on the way, with
+//entities decoded and anything before <body> left out, as the DOM extraction fingerprints the body's text.
+public final class StreamingExtractor {
+
+    private static final String[] RAW_TEXT_TAGS = {"script", "style", "textarea", "title", "xmp", "iframe", "noembed", "noframes"};
+    //Raw text jsoup keeps as data rather than text, the rest counts towards the page's text
+    private static final String[] DATA_TAGS = {"script", "style"};
+    //Raw text whose entities are still decoded
+    private static final String[] ESCAPABLE_RAW_TEXT_TAGS = {"textarea", "title"};
+    private static final String PLAINTEXT_TAG = "plaintext";
+    private static final String BODY_TAG = "body";
+
+    private final CharSequence html;
+    private final int length;
+    private int position;
+    private boolean inBody;
+
+    private StreamingExtractor(CharSequence html) {
+        this.html = html;
+        this.length = html.length();
+    }
+
+    public static Extraction extract(CharSequence html) {
+        Objects.requireNonNull(html);
+        Extraction extraction = new Extraction();
+        new StreamingExtractor(html).tokenize(extraction);
+        return extraction;
+    }
+
+    private void tokenize(Extraction extraction) {
+        while (position < length) {
+            int tagStart = indexOf('<', position);
+            //What lies between tags is the page's text, fingerprinted as it goes by
+            addText(extraction, position, tagStart < 0 ? length : tagStart);
+            if(tagStart < 0){
+                return;
+            }
+            position = tagStart + 1;
+            if(position >= length){
+                return;
+            }
+
+            char next = html.charAt(position);
+            if(next == '!'){
+                skipMarkupDeclaration();
+            } else if(next == '?'){
+                skipPast('>');
+            } else if(next == '/'){
+                skipPast('>');
+            } else if(isAsciiLetter(next)){
+                if(!readStartTag(extraction)){
+                    return;
+                }
+            }
+        }
+    }
+
+    private void skipMarkupDeclaration() {
+        if(startsWith("!--", position)){
+            int end = indexOf("-->", position + 3);
+            position = end < 0 ? length : end + 3;
+        } else {
+            skipPast('>');
+        }
+    }
+
+    //Returns false once the rest of the document can no longer contain tags
+    private boolean readStartTag(Extraction extraction) {
+        int nameStart = position;
+        while (position < length && !isTagNameEnd(html.charAt(position))) {
+            position++;
+        }
+        String tag = html.subSequence(nameStart, position).toString().toLowerCase(Locale.ROOT);
+
+        boolean wanted = ANCHOR_TAG.equals(tag) || LINK_TAG.equals(tag) || IMG_TAG.equals(tag) || SCRIPT_TAG.equals(tag);
+        String href = null;
+        String src = null;
+        String type = null;
+        boolean closed = false;
+
+        while (position < length) {
+            char c = html.charAt(position);
+            if(c == '>'){
+                position++;
+                closed = true;
+                break;
+            }
+            if(isWhitespace(c) || c == '/'){
+                position++;
+                continue;
+            }
+
+            int attrStart = position;
+            position++;
+            while (position < length && !isAttributeNameEnd(html.charAt(position))) {
+                position++;
+            }
+            int attrEnd = position;
+            String value = readAttributeValue(wanted);
+
+            if(wanted){
+                if(isAttribute(HREF_ATTR, attrStart, attrEnd)){
+                    href = value;
+                } else if(isAttribute(SRC_ATTR, attrStart, attrEnd)){
+                    src = value;
+                } else if(isAttribute(TYPE_ATTR, attrStart, attrEnd)){
+                    type = value;
+                }
+            }
+        }
+
+        if(!closed){
+            return false;
+        }
+        if(wanted){
+            collect(extraction, tag, href, src, type);
+        }
+
+        if(BODY_TAG.equals(tag) && !inBody){
+            //Text so far was the head's, without a <body> tag jsoup puts it all in the body
+            extraction.text = new SimHash();
+            inBody = true;
+        }
+        if(PLAINTEXT_TAG.equals(tag)){
+            extraction.text.add(html, position, length);
+            return false;
+        }
+        if(contains(RAW_TEXT_TAGS, tag)){
+            int textStart = position;
+            skipRawText(tag);
+            if(contains(ESCAPABLE_RAW_TEXT_TAGS, tag)){
+                addText(extraction, textStart, position);
+            } else if(!contains(DATA_TAGS, tag)){
+                extraction.text.add(html, textStart, position);
+            }
+        }
+        return true;
+    }
+
+    private void addText(Extraction extraction, int from, int to) {
+        if(indexOf('&', from, to) < 0){
+            extraction.text.add(html, from, to);
+            return;
+        }
+        String text = Parser.unescapeEntities(html.subSequence(from, to).toString(), false);
+        extraction.text.add(text, 0, text.length());
+    }
+
+    private void collect(Extraction extraction, String tag, String href, String src, String type) {
+        switch (tag) {
+            case ANCHOR_TAG:
+                extraction.hrefs.add(href == null ? "" : href);
+                break;
+            case LINK_TAG:
+                if(TYPE_CSS.equals(type)){
+                    extraction.assets.add(href == null ? "" : href);
+                }
+                break;
+            case IMG_TAG:
+                extraction.assets.add(src == null ? "" : src);
+                break;
+            case SCRIPT_TAG:
+                if(src != null){
+                    extraction.assets.add(src);
+                }
+                break;
+            default:
+        }
+    }
+
+    private String readAttributeValue(boolean keep) {
+        int afterName = position;
+        while (position < length && isWhitespace(html.charAt(position))) {
+            position++;
+        }
+        if(position >= length || html.charAt(position) != '='){
+            position = afterName;
+            return "";
+        }
+        position++;
+        while (position < length && isWhitespace(html.charAt(position))) {
+            position++;
+        }
+        if(position >= length){
+            return "";
+        }
+
+        int valueStart;
+        int valueEnd;
+        char quote = html.charAt(position);
+        if(quote == '"' || quote == '\''){
+            valueStart = position + 1;
+            valueEnd = indexOf(quote, valueStart);
+            if(valueEnd < 0){
+                valueEnd = length;
+            }
+            position = Math.min(valueEnd + 1, length);
+        } else {
+            valueStart = position;
+            while (position < length && !isWhitespace(html.charAt(position)) && html.charAt(position) != '>') {
+                position++;
+            }
+            valueEnd = position;
+        }
+
+        if(!keep){
+            return "";
+        }
+        String value = html.subSequence(valueStart, valueEnd).toString();
+        return value.indexOf('&') < 0 ? value : Parser.unescapeEntities(value, true);
+    }
+
+    private void skipRawText(String tag) {
+        while (position < length) {
+            int close = indexOf("</", position);
+            if(close < 0){
+                position = length;
+                return;
+            }
+            int nameEnd = close + 2 + tag.length();
+            if(nameEnd <= length && startsWithIgnoreCase(tag, close + 2)
+                    && (nameEnd == length || isTagNameEnd(html.charAt(nameEnd)))){
+                position = close;
+                return;
+            }
+            position = close + 2;
+        }
+    }
+
+    private void skipPast(char c) {
+        int end = indexOf(c, position);
+        position = end < 0 ? length : end + 1;
+    }
+
+    private boolean isAttribute(String name, int start, int end) {
+        return end - start == name.length() && startsWithIgnoreCase(name, start);
+    }
+
+    private int indexOf(char c, int from) {
+        return indexOf(c, from, length);
+    }
+
+    private int indexOf(char c, int from, int to) {
+        for (int x = from; x < to; x++) {
+            if(html.charAt(x) == c){
+                return x;
+            }
+        }
+        return -1;
+    }
+
+    private int indexOf(String s, int from) {
+        int last = length - s.length();
+        for (int x = from; x <= last; x++) {
+            if(startsWith(s, x)){
+                return x;
+            }
+        }
+        return -1;
+    }
+
+    private boolean startsWith(String s, int at) {
+        if(at + s.length() > length){
+            return false;
+        }
+        for (int x = 0; x < s.length(); x++) {
+            if(html.charAt(at + x) != s.charAt(x)){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean startsWithIgnoreCase(String lowerCase, int at) {
+        if(at + lowerCase.length() > length){
+            return false;
+        }
+        for (int x = 0; x < lowerCase.length(); x++) {
+            char c = html.charAt(at + x);
+            if(c >= 'A' && c <= 'Z'){
+                c = (char) (c + ('a' - 'A'));
+            }
+            if(c != lowerCase.charAt(x)){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean contains(String[] tags, String tag) {
+        for (String candidate : tags) {
+            if(candidate.equals(tag)){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isAsciiLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f';
+    }
+
+    private static boolean isTagNameEnd(char c) {
+        return isWhitespace(c) || c == '/' || c == '>';
+    }
+
+    private static boolean isAttributeNameEnd(char c) {
+        return isWhitespace(c) || c == '/' || c == '>' || c == '=';
+    }
+
+    public static class Extraction {
+
+        private final List<String> hrefs = new ArrayList<>();
+        private final Set<String> assets = new HashSet<>();
+        private SimHash text = new SimHash();
+
+        //Raw anchor hrefs in document order, before any link filtering
+        public List<String> getHrefs() {
+            return hrefs;
+        }
+
+        public Set<String> getAssets() {
+            return assets;
+        }
+
+        //SimHash of the body's text outside tags, scripts and styles left out
+        public long getFingerprint() {
+            return text.fingerprint();
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package ash.org.crawler;
+
+import org.jsoup.HttpStatusException;
+
+//A 429 or 503 response: the host wants us to slow down, optionally telling us for how long
+public class ThrottledException extends HttpStatusException {
+
+    public static final int TOO_MANY_REQUESTS = 429;
+    public static final int SERVICE_UNAVAILABLE = 503;
+
+    private final long retryAfterMillis;
+
+    public ThrottledException(int statusCode, String url, long retryAfterMillis) {
+        super("Throttled fetching URL", statusCode, url);
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    public static boolean isThrottled(int statusCode) {
+        return statusCode == TOO_MANY_REQUESTS || statusCode == SERVICE_UNAVAILABLE;
+    }
+
+    //Zero when the response had no usable Retry-After header
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+}
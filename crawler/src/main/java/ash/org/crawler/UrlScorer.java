@@ -0,0 +1,105 @@
+package ash.org.crawler;
+
+import ash.org.domain.UrlKey;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+//Orders the frontier: urls with higher scores are crawled first, so a crawl cut short by its budget has the
+//pages that matter most. Scores run from 0 to MAX_SCORE, anything outside is clamped. The built in scorers
+//each score at most BUILT_IN_MAX so up to four of them can be added together with plus. Called from the
+//fetch workers as links are offered, and again for a queued url each time another link to it turns up.
+@FunctionalInterface
+public interface UrlScorer {
+
+    int MAX_SCORE = 63;
+    int BUILT_IN_MAX = 15;
+
+    //Every url scores the same, leaving the frontier breadth first
+    UrlScorer BREADTH_FIRST = (key, depth, inLinks) -> 0;
+
+    //Depth is links followed from the home page, inLinks the links to the url seen so far, at least 1
+    int score(UrlKey key, int depth, int inLinks);
+
+    //Told the <priority> of each page a crawl seeds from the site's sitemaps, just before the page is offered.
+    //Only scorers that order by it keep it.
+    default void onSitemapPriority(UrlKey key, double priority) {
+    }
+
+    default UrlScorer plus(UrlScorer other) {
+        Objects.requireNonNull(other);
+        UrlScorer first = this;
+        return new UrlScorer() {
+            @Override
+            public int score(UrlKey key, int depth, int inLinks) {
+                return first.score(key, depth, inLinks) + other.score(key, depth, inLinks);
+            }
+
+            @Override
+            public void onSitemapPriority(UrlKey key, double priority) {
+                first.onSitemapPriority(key, priority);
+                other.onSitemapPriority(key, priority);
+            }
+        };
+    }
+
+    //Shallow pages first, as a site links its important pages from near the top
+    static UrlScorer byDepth() {
+        return (key, depth, inLinks) -> Math.max(0, BUILT_IN_MAX - depth);
+    }
+
+    //Pages many others link to first, one step for each doubling of the links seen
+    static UrlScorer byInLinks() {
+        return (key, depth, inLinks) -> Math.min(BUILT_IN_MAX, 32 - Integer.numberOfLeadingZeros(inLinks));
+    }
+
+    //The weight of the first pattern the url's path, query included, matches, 0 when none do.
+    //As for path caps '*' matches any run of characters, so "/products/*" => 15, "/tag/*" => 0.
+    static UrlScorer byPattern(Map<String, Integer> weights) {
+        List<Pattern> patterns = new ArrayList<>();
+        List<Integer> scores = new ArrayList<>();
+        new LinkedHashMap<>(weights).forEach((pattern, weight) -> {
+            patterns.add(CrawlBudget.PathCap.compile(pattern));
+            scores.add(Math.max(0, Math.min(BUILT_IN_MAX, weight)));
+        });
+        return (key, depth, inLinks) -> {
+            String path = key.getPath();
+            for (int x = 0; x < patterns.size(); x++) {
+                if(patterns.get(x).matcher(path).matches()){
+                    return scores.get(x);
+                }
+            }
+            return 0;
+        };
+    }
+
+    //A sitemap's <priority>, 0.0 to 1.0, for the urls it lists, and its default of 0.5 for those it does not.
+    //Priorities come from the crawl as it seeds from the sitemaps, so each site needs a scorer of its own.
+    static UrlScorer bySitemapPriority() {
+        return bySitemapPriority(Collections.emptyMap());
+    }
+
+    //As bySitemapPriority, starting from priorities already known
+    static UrlScorer bySitemapPriority(Map<UrlKey, Double> priorities) {
+        ConcurrentMap<UrlKey, Double> known = new ConcurrentHashMap<>(priorities);
+        return new UrlScorer() {
+            @Override
+            public int score(UrlKey key, int depth, int inLinks) {
+                double priority = known.getOrDefault(key, 0.5);
+                return (int) Math.round(Math.max(0, Math.min(1, priority)) * BUILT_IN_MAX);
+            }
+
+            @Override
+            public void onSitemapPriority(UrlKey key, double priority) {
+                known.put(key, priority);
+            }
+        };
+    }
+}
@@ -0,0 +1,21 @@
+package ash.org.crawler;
+
+import ash.org.domain.UrlKey;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+//Urls already claimed by a crawl, safe for concurrent use by the fetch workers
+public interface VisitedUrlSet extends Closeable {
+
+    //True when the url had not been claimed before this call
+    boolean add(UrlKey key);
+
+    boolean contains(UrlKey key);
+
+    int size();
+
+    @Override
+    default void close() throws IOException {
+    }
+}
@@ -0,0 +1,71 @@
+package ash.org.domain;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+//Immutable set of strings stored as a sorted array of StringPool ids, four bytes per entry
+//instead of a hash table node and a private copy of every string
+public final class InternedStringSet extends AbstractSet<String> {
+
+    private final StringPool pool;
+    private final int[] ids;
+
+    public InternedStringSet(StringPool pool, Collection<String> values) {
+        Objects.requireNonNull(pool);
+        Objects.requireNonNull(values);
+        int[] pooled = new int[values.size()];
+        int count = 0;
+        for (String value : values) {
+            pooled[count++] = pool.intern(value);
+        }
+        Arrays.sort(pooled);
+
+        int distinct = 0;
+        for (int x = 0; x < count; x++) {
+            if(distinct == 0 || pooled[distinct - 1] != pooled[x]){
+                pooled[distinct++] = pooled[x];
+            }
+        }
+        this.pool = pool;
+        this.ids = distinct == pooled.length ? pooled : Arrays.copyOf(pooled, distinct);
+    }
+
+    public boolean isPooledIn(StringPool pool) {
+        return this.pool == pool;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        int id = pool.idOf(o);
+        return id != StringPool.NOT_POOLED && Arrays.binarySearch(ids, id) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return ids.length;
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return new Iterator<String>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < ids.length;
+            }
+
+            @Override
+            public String next() {
+                if(next >= ids.length){
+                    throw new NoSuchElementException();
+                }
+                return pool.get(ids[next++]);
+            }
+        };
+    }
+}
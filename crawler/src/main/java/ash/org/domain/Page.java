@@ -7,38 +7,60 @@ import java.util.Objects;
 public class Page {
 
     private final URL url;
+    private final UrlKey key;
     private final PageDetails pageDetails;
+    private final UrlKey duplicateOf;
 
     public Page(URL url){
         this(url, new PageDetails(new HashSet<>(), new HashSet<>()));
     }
 
     public Page(URL url, PageDetails pageDetails) {
+        this(url, pageDetails, null);
+    }
+
+    //A page whose text is a near duplicate of an earlier page of the crawl
+    public Page(URL url, PageDetails pageDetails, UrlKey duplicateOf) {
         Objects.requireNonNull(url);
         Objects.requireNonNull(pageDetails);
         this.url = url;
+        this.key = UrlKey.of(url);
         this.pageDetails = pageDetails;
+        this.duplicateOf = duplicateOf;
     }
 
     public URL getUrl() {
         return url;
     }
 
+    public UrlKey getKey() {
+        return key;
+    }
+
     public PageDetails getPageDetails() {
         return pageDetails;
     }
 
+    //The earlier page this one duplicates, null for pages of their own
+    public UrlKey getDuplicateOf() {
+        return duplicateOf;
+    }
+
+    public boolean isDuplicate() {
+        return duplicateOf != null;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Page page = (Page) o;
-        return Objects.equals(url.toString(), page.url.toString());
+        return key.equals(page.key);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(url);
+        return key.hashCode();
     }
 
 
@@ -47,6 +69,7 @@ public class Page {
         return "Page{" +
                 "url=" + url +
                 ", pageDetails=" + pageDetails +
+                (duplicateOf == null ? "" : ", duplicateOf=" + duplicateOf) +
                 '}';
     }
 }
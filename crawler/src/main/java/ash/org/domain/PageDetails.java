@@ -0,0 +1,53 @@
+package ash.org.domain;
+
+import java.util.Set;
+
+public class PageDetails {
+    private final Set<String> assets;
+    private final Set<String> links;
+    //SimHash of the page's text, 0 when it had none or was not fingerprinted
+    private final long fingerprint;
+
+    public PageDetails(Set<String> links, Set<String> assets) {
+        this(links, assets, 0);
+    }
+
+    public PageDetails(Set<String> links, Set<String> assets, long fingerprint) {
+        this.links = links;
+        this.assets = assets;
+        this.fingerprint = fingerprint;
+    }
+
+    public Set<String> getAssets() {
+        return assets;
+    }
+
+    public Set<String> getLinks() {
+        return links;
+    }
+
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+    //Compact copy whose links and assets are ids into the crawl's shared pool
+    public PageDetails intern(StringPool pool) {
+        if(isInterned(links, pool) && isInterned(assets, pool)){
+            return this;
+        }
+        return new PageDetails(new InternedStringSet(pool, links), new InternedStringSet(pool, assets), fingerprint);
+    }
+
+    private static boolean isInterned(Set<String> strings, StringPool pool) {
+        return strings instanceof InternedStringSet && ((InternedStringSet) strings).isPooledIn(pool);
+    }
+
+    @Override
+    public String toString() {
+        return "PageDetails{" +
+                "assets=" + assets +
+                ", links=" + links +
+                ", fingerprint=" + Long.toHexString(fingerprint) +
+                '}';
+    }
+}
@@ -0,0 +1,55 @@
+package ash.org.domain;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+//Crawl wide dictionary handing out a stable int id per distinct string, so the nav links and shared
+//assets repeated on every page are held once and pages only keep ids. Safe to share between fetch workers.
+public class StringPool {
+
+    public static final int NOT_POOLED = -1;
+
+    private final ConcurrentMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] strings = new String[256];
+    private int size;
+
+    public int intern(String value) {
+        Objects.requireNonNull(value);
+        Integer id = ids.get(value);
+        if(id != null){
+            return id;
+        }
+        synchronized (this) {
+            id = ids.get(value);
+            if(id != null){
+                return id;
+            }
+            if(size == strings.length){
+                strings = Arrays.copyOf(strings, size * 2);
+            }
+            //Store the string before publishing its id so any reader holding the id can resolve it
+            strings[size] = value;
+            ids.put(value, size);
+            return size++;
+        }
+    }
+
+    //The id of an already pooled string, or NOT_POOLED, without adding it
+    public int idOf(Object value) {
+        if(value == null){
+            return NOT_POOLED;
+        }
+        Integer id = ids.get(value);
+        return id == null ? NOT_POOLED : id;
+    }
+
+    public String get(int id) {
+        return strings[id];
+    }
+
+    public int size() {
+        return ids.size();
+    }
+}
@@ -0,0 +1,78 @@
+package ash.org.domain;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Locale;
+import java.util.Objects;
+
+//Canonical identity of a crawled url: lower cased scheme and host, default port and fragment dropped.
+//Equality and hashing are plain string operations so they never trigger the DNS lookups URL.hashCode can.
+public final class UrlKey {
+
+    private final String canonical;
+    private final int hash;
+
+    private UrlKey(String canonical) {
+        this.canonical = canonical;
+        this.hash = canonical.hashCode();
+    }
+
+    public static UrlKey of(URL url) {
+        Objects.requireNonNull(url);
+        String file = url.getFile();
+        return fromOrigin(origin(url), file);
+    }
+
+    public static UrlKey fromOrigin(String origin, String path) {
+        Objects.requireNonNull(origin);
+        Objects.requireNonNull(path);
+        int fragment = path.indexOf('#');
+        if(fragment >= 0){
+            path = path.substring(0, fragment);
+        }
+        if(path.isEmpty()){
+            return new UrlKey(origin + "/");
+        }
+        if(path.charAt(0) != '/'){
+            return new UrlKey(origin + "/" + path);
+        }
+        return new UrlKey(origin + path);
+    }
+
+    public static String origin(URL url) {
+        String scheme = url.getProtocol().toLowerCase(Locale.ROOT);
+        String host = url.getHost().toLowerCase(Locale.ROOT);
+        int port = url.getPort();
+        if(port == -1 || port == url.getDefaultPort()){
+            return scheme + "://" + host;
+        }
+        return scheme + "://" + host + ":" + port;
+    }
+
+    //Everything after the origin, query included
+    public String getPath() {
+        return canonical.substring(canonical.indexOf('/', canonical.indexOf("://") + 3));
+    }
+
+    public URL toURL() throws MalformedURLException {
+        return new URL(canonical);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        UrlKey urlKey = (UrlKey) o;
+        return hash == urlKey.hash && canonical.equals(urlKey.canonical);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return canonical;
+    }
+}
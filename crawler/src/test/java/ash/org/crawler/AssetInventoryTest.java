@@ -0,0 +1,147 @@
+package ash.org.crawler;
+
+import ash.org.domain.Page;
+import ash.org.domain.PageDetails;
+import ash.org.domain.UrlKey;
+import com.google.common.collect.Sets;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class AssetInventoryTest {
+
+    private HttpServer server;
+    private String base;
+    private final ConcurrentMap<String, AtomicInteger> requests = new ConcurrentHashMap<>();
+
+    @Before
+    public void setup() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/site.css", exchange -> respond(exchange, 200, "text/css", 1000));
+        server.createContext("/logo.png", exchange -> respond(exchange, 200, "image/png", 5000));
+        server.createContext("/missing.js", exchange -> respond(exchange, 404, "text/html", 10));
+        server.createContext("/no-head.js", exchange -> {
+            if("HEAD".equals(exchange.getRequestMethod())){
+                respond(exchange, 405, "text/html", 10);
+            } else {
+                respond(exchange, 200, "application/javascript", 300);
+            }
+        });
+        server.start();
+        base = "http://localhost:" + server.getAddress().getPort();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testDedupsAcrossPages() throws IOException {
+        AssetInventory inventory = new AssetInventory();
+        for (int x = 0; x < 50; x++) {
+            inventory.onPage(page("/dir/page" + x, "/site.css", "../site.css", base + "/site.css#v2", "logo.png"));
+        }
+
+        assertEquals(2, inventory.size());
+        assertEquals(50, inventory.getAsset(key("/site.css")).getPageCount());
+        assertEquals(50, inventory.getAsset(key("/dir/logo.png")).getPageCount());
+        assertEquals(key("/dir/page0"), inventory.getPages(key("/site.css")).get(0));
+        assertEquals(2, inventory.getAssets(key("/dir/page7")).size());
+    }
+
+    @Test
+    public void testSkipsUncheckableSrcs() throws IOException {
+        AssetInventory inventory = new AssetInventory();
+        inventory.onPage(page("/", "data:image/png;base64,iVBORw0KGgo=", "", "  ", "javascript:void(0)", "http://cdn.example.com/lib.js"));
+
+        assertEquals(1, inventory.size());
+        assertEquals(UrlKey.of(new URL("http://cdn.example.com/lib.js")), inventory.getAssets().get(0).getKey());
+    }
+
+    @Test
+    public void testChecksEachAssetOnce() throws IOException {
+        AssetInventory inventory = new AssetInventory();
+        for (int x = 0; x < 200; x++) {
+            inventory.onPage(page("/page" + x, "/site.css", "/logo.png", "/missing.js", "/no-head.js"));
+        }
+        inventory.check(new HttpClientFetcher(1000, 1000), 8, 4);
+
+        assertEquals(1, requests.get("HEAD /site.css").get());
+        assertEquals(1, requests.get("HEAD /logo.png").get());
+        assertEquals(1, requests.get("HEAD /missing.js").get());
+        assertEquals(1, requests.get("HEAD /no-head.js").get());
+        assertEquals(1, requests.get("GET /no-head.js").get());
+        assertEquals(5, requests.size());
+
+        AssetInventory.AssetCheck css = inventory.getAsset(key("/site.css")).getCheck();
+        assertEquals(200, css.getStatusCode());
+        assertEquals(1000, css.getContentLength());
+        assertEquals("text/css", css.getContentType());
+        assertEquals(300, inventory.getAsset(key("/no-head.js")).getCheck().getContentLength());
+
+        assertEquals(Arrays.asList(key("/missing.js")),
+                inventory.getBroken().stream().map(AssetInventory.Asset::getKey).collect(Collectors.toList()));
+        assertEquals(1000 + 5000 + 10 + 300, inventory.getPageWeight(key("/page3")));
+    }
+
+    @Test
+    public void testUnreachableAssetIsBroken() throws IOException {
+        AssetInventory inventory = new AssetInventory();
+        inventory.onPage(page("/", "http://localhost:1/gone.css"));
+        inventory.check(new HttpClientFetcher(1000, 1000));
+
+        AssetInventory.AssetCheck check = inventory.getAssets().get(0).getCheck();
+        assertTrue(check.isBroken());
+        assertNotNull(check.getError());
+        assertEquals(0, inventory.getPageWeight(key("/")));
+    }
+
+    @Test
+    public void testRecheckSkipsCheckedAssets() throws IOException {
+        AssetInventory inventory = new AssetInventory();
+        inventory.onPage(page("/a", "/site.css"));
+        inventory.check(new HttpClientFetcher(1000, 1000));
+        inventory.onPage(page("/b", "/site.css", "/logo.png"));
+        inventory.check(new HttpClientFetcher(1000, 1000));
+
+        assertEquals(1, requests.get("HEAD /site.css").get());
+        assertEquals(1, requests.get("HEAD /logo.png").get());
+    }
+
+    private void respond(HttpExchange exchange, int status, String contentType, int length) throws IOException {
+        requests.computeIfAbsent(exchange.getRequestMethod() + " " + exchange.getRequestURI().getPath(), path -> new AtomicInteger())
+                .incrementAndGet();
+        exchange.getResponseHeaders().add("Content-Type", contentType);
+        if("HEAD".equals(exchange.getRequestMethod())){
+            exchange.getResponseHeaders().add("Content-Length", String.valueOf(length));
+            exchange.sendResponseHeaders(status, -1);
+        } else {
+            exchange.sendResponseHeaders(status, length);
+            exchange.getResponseBody().write(new byte[length]);
+        }
+        exchange.close();
+    }
+
+    private Page page(String path, String... assets) throws IOException {
+        return new Page(new URL(base + path), new PageDetails(new HashSet<>(), Sets.newHashSet(assets)));
+    }
+
+    private UrlKey key(String path) throws IOException {
+        return UrlKey.of(new URL(base + path));
+    }
+}
@@ -0,0 +1,137 @@
+package ash.org.crawler;
+
+import ash.org.domain.Page;
+import ash.org.domain.PageDetails;
+import ash.org.domain.Site;
+import org.jsoup.HttpStatusException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CrawlCoordinatorTest {
+
+    private static final String GOOGLE = "http://www.google.com";
+    private static final int PAGES = 200;
+
+    @Mock
+    private HTMLScraper htmlScraper;
+
+    private final List<CrawlNode> nodes = new ArrayList<>();
+    private HashRing ring;
+    private LoopbackTransport transport;
+
+    @Before
+    public void setup() throws IOException {
+        ring = new HashRing(Arrays.asList("node-1", "node-2", "node-3"));
+        transport = new LoopbackTransport();
+        for (String nodeId : ring.getNodes()) {
+            CrawlNode node = new CrawlNode(nodeId, ring, transport, htmlScraper, 2, CrawlScheduler.UNSCHEDULED, 8);
+            node.start();
+            nodes.add(node);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        nodes.forEach(CrawlNode::close);
+    }
+
+    @Test
+    public void testClusterCrawlMatchesSingleCrawler() throws Exception {
+        //Page n links to 2n and 2n+1, the first few pages also link back home
+        when(htmlScraper.getPageAssets(any())).thenAnswer(invocation -> {
+            URL url = invocation.getArgument(0);
+            String path = url.getPath();
+            int page = "/".equals(path) ? 0 : Integer.parseInt(path.substring("/page".length()));
+            Set<String> links = new HashSet<>();
+            for (int child : new int[]{2 * page + 1, 2 * page + 2}) {
+                if(child < PAGES){
+                    links.add("/page" + child);
+                }
+            }
+            if(page < 10){
+                links.add("/");
+            }
+            return new PageDetails(links, new HashSet<>());
+        });
+
+        URL url = new URL(GOOGLE + "/");
+        Site clustered = new CrawlCoordinator(ring, transport).crawlDomain(url);
+        verify(htmlScraper, times(PAGES)).getPageAssets(any());
+
+        Site single = new Crawler(htmlScraper, 4).crawlDomain(url);
+        assertEquals(single, clustered);
+    }
+
+    @Test
+    public void testStreamsEachPageOnce() throws Exception {
+        when(htmlScraper.getPageAssets(any())).thenAnswer(invocation -> {
+            Set<String> links = new HashSet<>();
+            for (int x = 0; x < 50; x++) {
+                links.add("/page" + x);
+            }
+            return new PageDetails(links, new HashSet<>());
+        });
+
+        Set<Page> seen = ConcurrentHashMap.newKeySet();
+        new CrawlCoordinator(ring, transport).crawl(new URL(GOOGLE + "/"), page -> assertTrue(seen.add(page)));
+
+        assertEquals(51, seen.size());
+        for (CrawlNode node : nodes) {
+            assertTrue(node.status().isIdle());
+        }
+    }
+
+    @Test
+    public void testFailedPageIsLeftOut() throws Exception {
+        URL url = new URL(GOOGLE + "/");
+        when(htmlScraper.getPageAssets(any())).thenAnswer(invocation -> {
+            URL link = invocation.getArgument(0);
+            if("/missing".equals(link.getPath())){
+                throw new HttpStatusException("HTTP error fetching URL", 404, link.toString());
+            }
+            return new PageDetails(new HashSet<>(Arrays.asList("/missing", "/about")), new HashSet<>());
+        });
+
+        Site site = new CrawlCoordinator(ring, transport).crawlDomain(url);
+
+        assertEquals(new Site(url, new HashSet<>(Arrays.asList(new Page(url), new Page(new URL(GOOGLE + "/about"))))), site);
+        for (CrawlNode node : nodes) {
+            assertNull(node.status().getFailure());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testNodeFailureFailsCrawl() throws Exception {
+        when(htmlScraper.getPageAssets(any())).thenThrow(new IllegalStateException("boom"));
+
+        new CrawlCoordinator(ring, transport).crawlDomain(new URL(GOOGLE + "/"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMustCrawlMainDomain() throws Exception {
+        new CrawlCoordinator(ring, transport).crawlDomain(new URL(GOOGLE + "/page1"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNodeMustBeOnRing() {
+        new CrawlNode("node-4", ring, transport, htmlScraper, 1);
+    }
+}
@@ -0,0 +1,151 @@
+package ash.org.crawler;
+
+import ash.org.domain.PageDetails;
+import com.google.common.collect.Sets;
+import org.jsoup.HttpStatusException;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class CrawlMetricsTest {
+
+    @Test
+    public void testHistogramPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int x = 1; x <= 1000; x++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(x));
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(500.5, histogram.getMeanMillis(), 0.01);
+        assertEquals(1000, histogram.getMaxMillis(), 0.01);
+        assertEquals(500, histogram.getPercentileMillis(50), 500 * 0.125);
+        assertEquals(990, histogram.getPercentileMillis(99), 990 * 0.125);
+        assertEquals(1000, histogram.getPercentileMillis(100), 0.01);
+        assertEquals(0, new LatencyHistogram().getPercentileMillis(99), 0);
+    }
+
+    @Test
+    public void testHistogramBucketsCoverEveryValue() {
+        long[] values = {0, 1, 7, 8, 15, 16, 1000, 123_456_789, Long.MAX_VALUE};
+        for (long value : values) {
+            int index = LatencyHistogram.index(value);
+            assertTrue(value <= LatencyHistogram.upperBound(index));
+            assertTrue(index == 0 || value > LatencyHistogram.upperBound(index - 1));
+        }
+    }
+
+    @Test
+    public void testCrawlRecordsPagesDedupAndErrors() throws Exception {
+        HTMLScraper htmlScraper = mock(HTMLScraper.class);
+        URL home = new URL("http://www.google.com/");
+        when(htmlScraper.getPageAssets(home)).thenReturn(new PageDetails(Sets.newHashSet("/a", "/b"), new HashSet<>()));
+        when(htmlScraper.getPageAssets(new URL("http://www.google.com/a"))).thenReturn(new PageDetails(Sets.newHashSet("/", "/b"), new HashSet<>()));
+        when(htmlScraper.getPageAssets(new URL("http://www.google.com/b"))).thenReturn(new PageDetails(Sets.newHashSet("/"), new HashSet<>()));
+
+        CrawlMetrics metrics = new CrawlMetrics();
+        Crawler.builder(htmlScraper).workers(1).metrics(metrics).build()
+                .crawlDomain(home);
+
+        assertEquals(3, metrics.getPagesCrawled());
+        assertEquals(5, metrics.getLinksOffered());
+        assertEquals(0.6, metrics.getDedupHitRate(), 0.001);
+        assertEquals(0, metrics.getFrontierSize());
+
+        when(htmlScraper.getPageAssets(home)).thenThrow(new HttpStatusException("HTTP error fetching URL", 404, home.toString()));
+        try {
+            Crawler.builder(htmlScraper).workers(1).metrics(metrics).build()
+                    .crawlDomain(home);
+            fail();
+        } catch (IOException expected) {
+            assertEquals(Long.valueOf(1), metrics.getErrorCounts().get("HTTP 404"));
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testConcurrentCrawlsShareTheFrontierGauge() throws Exception {
+        HTMLScraper htmlScraper = mock(HTMLScraper.class);
+        Map<String, AtomicInteger> leavesFetched = new ConcurrentHashMap<>();
+        CountDownLatch bothBlocked = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        //Each home page links to its own pages, the first leaf of each site is quick and the next blocks
+        when(htmlScraper.getPageAssets(any())).thenAnswer(invocation -> {
+            URL url = invocation.getArgument(0);
+            if("/".equals(url.getPath())){
+                int links = url.getHost().equals("www.google.com") ? 5 : 3;
+                Set<String> paths = new HashSet<>();
+                for (int x = 0; x < links; x++) {
+                    paths.add("/page" + x);
+                }
+                return new PageDetails(paths, new HashSet<>());
+            }
+            if(leavesFetched.computeIfAbsent(url.getHost(), host -> new AtomicInteger()).incrementAndGet() == 2){
+                bothBlocked.countDown();
+                release.await();
+            }
+            return new PageDetails(new HashSet<>(), new HashSet<>());
+        });
+
+        CrawlMetrics metrics = new CrawlMetrics();
+        List<Thread> crawls = new ArrayList<>();
+        for (String site : Arrays.asList("http://www.google.com/", "http://www.yahoo.com/")) {
+            Thread crawl = new Thread(() -> {
+                try {
+                    Crawler.builder(htmlScraper).workers(1).metrics(metrics).build().crawlDomain(new URL(site));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            crawl.start();
+            crawls.add(crawl);
+        }
+
+        bothBlocked.await();
+        //Four of five pages left on one site and two of three on the other, rather than whichever crawl reported last
+        assertEquals(6, metrics.getFrontierSize());
+        release.countDown();
+        for (Thread crawl : crawls) {
+            crawl.join();
+        }
+        assertEquals(0, metrics.getFrontierSize());
+    }
+
+    @Test
+    public void testExportsOverJmx() throws Exception {
+        CrawlMetrics metrics = new CrawlMetrics();
+        metrics.recordPageCrawled();
+        metrics.recordFetch(TimeUnit.MILLISECONDS.toNanos(20), 2048);
+        metrics.recordError(new SocketTimeoutException());
+
+        ObjectName name = metrics.registerMBean("test");
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            assertEquals(1L, server.getAttribute(name, "PagesCrawled"));
+            assertEquals(2048L, server.getAttribute(name, "BytesDownloaded"));
+            assertTrue(((Double) server.getAttribute(name, "FetchP99Millis")) >= 20);
+            assertTrue(((String) server.getAttribute(name, "Summary")).contains("errors={SocketTimeoutException=1}"));
+        } finally {
+            server.unregisterMBean(name);
+        }
+    }
+}
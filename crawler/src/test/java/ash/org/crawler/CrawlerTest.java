@@ -0,0 +1,730 @@
+package ash.org.crawler;
+
+import ash.org.domain.Page;
+import ash.org.domain.PageDetails;
+import ash.org.domain.Site;
+import ash.org.domain.UrlKey;
+import com.google.common.collect.Sets;
+import org.jsoup.HttpStatusException;
+import org.jsoup.UnsupportedMimeTypeException;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.net.MalformedURLException;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CrawlerTest {
+
+    @Mock
+    private HTMLScraper htmlScraper;
+
+    private Crawler crawler;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Before
+    public void testSetup(){
+        crawler = new Crawler(htmlScraper);
+    }
+
+    public void tearDown(){
+        verifyNoMoreInteractions(htmlScraper);
+    }
+
+    @Test
+    public void crawlDomain() throws Exception {
+        PageDetails homePage = new PageDetails(Sets.newHashSet("/", "/hello1"), new HashSet<>());
+        PageDetails hello1 = new PageDetails(Sets.newHashSet("/", "/hello2"), new HashSet<>());
+        PageDetails hello2 = new PageDetails(Sets.newHashSet("/", "/hello1"), new HashSet<>());
+
+        when(htmlScraper.getPageAssets(any())).thenReturn(homePage, hello1, hello2);
+
+        String google = "http://www.google.com";
+        URL url = new URL(google + "/");
+        Site site = crawler.crawlDomain(url);
+        Site expectedSite = new Site(url, Sets.newHashSet(new Page(url, homePage), new Page(new URL(google + "/hello1"), hello1), new Page(new URL(google + "/hello2"), hello2)));
+        assertEquals(expectedSite, site);
+
+        verify(htmlScraper, times(3)).getPageAssets(any());
+    }
+
+    @Test
+    public void testCrawlDomainNoLinks() throws Exception {
+        PageDetails homePage = new PageDetails(Sets.newHashSet("/"), new HashSet<>());
+
+        when(htmlScraper.getPageAssets(any())).thenReturn(homePage);
+
+        String google = "http://www.google.com";
+        URL url = new URL(google + "/");
+        Site site = crawler.crawlDomain(url);
+        Site expectedSite = new Site(url, Sets.newHashSet(new Page(url, homePage)));
+        assertEquals(expectedSite, site);
+        assertEquals(expectedSite.hashCode(), site.hashCode());
+
+        verify(htmlScraper).getPageAssets(any());
+    }
+
+    @Test
+    public void testSiteAssets() throws IOException {
+        PageDetails homePage = new PageDetails(Sets.newHashSet("/"), Sets.newHashSet("/Stuff.js"));
+
+        when(htmlScraper.getPageAssets(any())).thenReturn(homePage);
+
+        String google = "http://www.google.com";
+        URL url = new URL(google + "/");
+        Site site = crawler.crawlDomain(url);
+        Site expectedSite = new Site(url, Sets.newHashSet(new Page(url, homePage)));
+        assertEquals(expectedSite, site);
+
+        verify(htmlScraper).getPageAssets(any());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCrawlSubDomain() throws IOException {
+        crawler.crawlDomain(new URL("https://www.google.com/sub"));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testCrawlNull() throws IOException {
+        crawler.crawlDomain(null);
+    }
+
+    @Test
+    public void testCrawlWideSiteFetchesEachPageOnce() throws Exception {
+        Set<String> allLinks = new HashSet<>();
+        for(int x = 0; x < 20; x++){
+            allLinks.add("/page" + x);
+        }
+        PageDetails details = new PageDetails(allLinks, new HashSet<>());
+
+        when(htmlScraper.getPageAssets(any())).thenReturn(details);
+
+        crawler = new Crawler(htmlScraper, 4);
+        String google = "http://www.google.com";
+        URL url = new URL(google + "/");
+        Site site = crawler.crawlDomain(url);
+
+        Set<Page> expectedPages = Sets.newHashSet(new Page(url, details));
+        for (String link : allLinks) {
+            expectedPages.add(new Page(new URL(google + link), details));
+        }
+        assertEquals(new Site(url, expectedPages), site);
+
+        verify(htmlScraper, times(21)).getPageAssets(any());
+    }
+
+    @Test
+    public void testCrawlWithOffHeapVisitedSet() throws Exception {
+        Set<String> allLinks = new HashSet<>();
+        for(int x = 0; x < 20; x++){
+            allLinks.add("/page" + x);
+        }
+        PageDetails details = new PageDetails(allLinks, new HashSet<>());
+
+        when(htmlScraper.getPageAssets(any())).thenReturn(details);
+
+        Path visitedDirectory = folder.newFolder().toPath();
+        crawler = Crawler.builder(htmlScraper).workers(4).visitedUrls(() -> uncheckedMapped(visitedDirectory)).build();
+        Site site = crawler.crawlDomain(new URL("http://www.google.com/"));
+
+        assertTrue(site.toString().contains("/page19"));
+        verify(htmlScraper, times(21)).getPageAssets(any());
+        assertEquals(0, visitedDirectory.toFile().list().length);
+    }
+
+    private static VisitedUrlSet uncheckedMapped(Path directory) {
+        try {
+            return OffHeapVisitedUrlSet.mapped(directory, 10, true);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Test
+    public void testPipelinedCrawlMatchesInlineCrawl() throws Exception {
+        PageDetails homePage = new PageDetails(Sets.newHashSet("/", "/hello1"), new HashSet<>());
+        PageDetails hello1 = new PageDetails(Sets.newHashSet("/", "/hello2"), Sets.newHashSet("/Stuff.js"));
+        PageDetails hello2 = new PageDetails(Sets.newHashSet("/", "/hello1"), new HashSet<>());
+        String google = "http://www.google.com";
+        URL url = new URL(google + "/");
+
+        when(htmlScraper.getPageAssets(url)).thenReturn(homePage);
+        when(htmlScraper.fetch(any())).thenAnswer(invocation -> response(invocation.getArgument(0)));
+        when(htmlScraper.extract(eq(new URL(google + "/hello1")), any())).thenReturn(hello1);
+        when(htmlScraper.extract(eq(new URL(google + "/hello2")), any())).thenReturn(hello2);
+
+        Site site = pipelinedCrawler(2, new ParseStage(2, 2)).crawlDomain(url);
+
+        Site expectedSite = new Site(url, Sets.newHashSet(new Page(url, homePage), new Page(new URL(google + "/hello1"), hello1), new Page(new URL(google + "/hello2"), hello2)));
+        assertEquals(expectedSite, site);
+        verify(htmlScraper, times(2)).fetch(any());
+        verify(htmlScraper, times(2)).extract(any(), any());
+    }
+
+    @Test
+    public void testSlowParsingHoldsBackFetching() throws Exception {
+        Set<String> allLinks = new HashSet<>();
+        for(int x = 0; x < 20; x++){
+            allLinks.add("/page" + x);
+        }
+        PageDetails details = new PageDetails(allLinks, new HashSet<>());
+        CountDownLatch parsing = new CountDownLatch(1);
+        AtomicInteger fetched = new AtomicInteger();
+
+        when(htmlScraper.getPageAssets(any())).thenReturn(details);
+        when(htmlScraper.fetch(any())).thenAnswer(invocation -> {
+            fetched.incrementAndGet();
+            return response(invocation.getArgument(0));
+        });
+        when(htmlScraper.extract(any(), any())).thenAnswer(invocation -> {
+            parsing.await();
+            return details;
+        });
+
+        Crawler pipelined = pipelinedCrawler(2, new ParseStage(1, 1));
+        Thread crawl = new Thread(() -> {
+            try {
+                pipelined.crawlDomain(new URL("http://www.google.com/"));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        crawl.start();
+        TimeUnit.MILLISECONDS.sleep(300);
+
+        //One page parsing, one queued, and each fetch worker holding one it can not hand off
+        assertEquals(4, fetched.get());
+        parsing.countDown();
+        crawl.join(5000);
+        assertFalse(crawl.isAlive());
+        assertEquals(20, fetched.get());
+    }
+
+    @Test
+    public void testPipelinedCrawlSkipsFailedPages() throws Exception {
+        String google = "http://www.google.com";
+        URL url = new URL(google + "/");
+        PageDetails leaf = new PageDetails(Sets.newHashSet("/"), new HashSet<>());
+        when(htmlScraper.getPageAssets(any())).thenReturn(new PageDetails(Sets.newHashSet("/timeout", "/report.pdf", "/a"), new HashSet<>()));
+        when(htmlScraper.fetch(any())).thenAnswer(invocation -> {
+            URL link = invocation.getArgument(0);
+            if("/timeout".equals(link.getPath())){
+                throw new SocketTimeoutException();
+            }
+            return response(link);
+        });
+        when(htmlScraper.extract(any(), any())).thenAnswer(invocation -> {
+            URL link = invocation.getArgument(0);
+            if("/report.pdf".equals(link.getPath())){
+                throw new UnsupportedMimeTypeException("Unhandled content type", "application/pdf", link.toString());
+            }
+            return leaf;
+        });
+
+        Site site = pipelinedCrawler(2, new ParseStage(1, 0)).crawlDomain(url);
+
+        assertEquals(new Site(url, Sets.newHashSet(new Page(url), new Page(new URL(google + "/a")))), site);
+    }
+
+    private Crawler pipelinedCrawler(int workers, ParseStage parseStage) {
+        return Crawler.builder(htmlScraper).workers(workers).metrics(new CrawlMetrics()).parseStage(parseStage).build();
+    }
+
+    private static FetchResponse response(URL url) {
+        return new FetchResponse(url, 200, Collections.emptyMap(), new byte[0]);
+    }
+
+    @Test
+    public void testCrawlFetchesConcurrently() throws Exception {
+        PageDetails homePage = new PageDetails(Sets.newHashSet("/a", "/b", "/c", "/d"), new HashSet<>());
+        PageDetails leaf = new PageDetails(Sets.newHashSet("/"), new HashSet<>());
+        URL url = new URL("http://www.google.com/");
+        CyclicBarrier allFetching = new CyclicBarrier(4);
+
+        when(htmlScraper.getPageAssets(any())).thenAnswer(invocation -> {
+            if(url.equals(invocation.getArgument(0))){
+                return homePage;
+            }
+            allFetching.await(5, TimeUnit.SECONDS);
+            return leaf;
+        });
+
+        crawler = new Crawler(htmlScraper, 4);
+        Site site = crawler.crawlDomain(url);
+
+        assertNotNull(site);
+        verify(htmlScraper, times(5)).getPageAssets(any());
+    }
+
+    @Test
+    public void testPageBudgetEndsCrawlEarly() throws Exception {
+        Set<String> allLinks = new HashSet<>();
+        for(int x = 0; x < 20; x++){
+            allLinks.add("/page" + x);
+        }
+        when(htmlScraper.getPageAssets(any())).thenReturn(new PageDetails(allLinks, new HashSet<>()));
+
+        List<Page> streamed = new ArrayList<>();
+        crawler = new Crawler(htmlScraper, 4);
+        CrawlOutcome outcome = crawler.crawl(new URL("http://www.google.com/"), streamed::add, CrawlBudget.maxPages(6));
+
+        assertEquals(CrawlOutcome.PAGE_LIMIT, outcome);
+        assertEquals(6, streamed.size());
+        verify(htmlScraper, times(6)).getPageAssets(any());
+    }
+
+    @Test
+    public void testTimeBudgetEndsCrawlEarly() throws Exception {
+        Set<String> allLinks = new HashSet<>();
+        for(int x = 0; x < 50; x++){
+            allLinks.add("/page" + x);
+        }
+        PageDetails details = new PageDetails(allLinks, new HashSet<>());
+        when(htmlScraper.getPageAssets(any())).thenAnswer(invocation -> {
+            Thread.sleep(20);
+            return details;
+        });
+
+        List<Page> streamed = new ArrayList<>();
+        crawler = new Crawler(htmlScraper, 1);
+        CrawlOutcome outcome = crawler.crawl(new URL("http://www.google.com/"), streamed::add, CrawlBudget.maxTime(100, TimeUnit.MILLISECONDS));
+
+        assertEquals(CrawlOutcome.TIME_LIMIT, outcome);
+        assertTrue(streamed.size() > 1);
+        assertTrue(streamed.size() < 51);
+    }
+
+    @Test
+    public void testBudgetLargerThanSiteCompletes() throws Exception {
+        when(htmlScraper.getPageAssets(any())).thenReturn(new PageDetails(Sets.newHashSet("/", "/a"), new HashSet<>()));
+
+        CrawlOutcome outcome = crawler.crawl(new URL("http://www.google.com/"), page -> {}, CrawlBudget.maxPages(2));
+
+        assertEquals(CrawlOutcome.COMPLETE, outcome);
+    }
+
+    @Test
+    public void testDepthBudgetReturnsPartialSite() throws Exception {
+        String google = "http://www.google.com";
+        URL url = new URL(google + "/");
+        when(htmlScraper.getPageAssets(any())).thenAnswer(invocation -> {
+            String path = invocation.<URL>getArgument(0).getPath();
+            return new PageDetails(Sets.newHashSet(path.equals("/") ? "/1" : path + "/1"), new HashSet<>());
+        });
+
+        Site site = crawler.crawlDomain(url, CrawlBudget.UNLIMITED.withMaxDepth(2));
+
+        assertEquals(new Site(url, Sets.newHashSet(new Page(url), new Page(new URL(google + "/1")), new Page(new URL(google + "/1/1")))), site);
+        assertEquals(CrawlOutcome.DEPTH_LIMIT, crawler.crawl(url, page -> {}, CrawlBudget.UNLIMITED.withMaxDepth(2)));
+    }
+
+    @Test
+    public void testDepthBudgetCoveringSiteCompletes() throws Exception {
+        //The deepest page links back to the home page, which was crawled already
+        when(htmlScraper.getPageAssets(any())).thenAnswer(invocation -> {
+            String path = invocation.<URL>getArgument(0).getPath();
+            return new PageDetails(Sets.newHashSet(path.equals("/") ? "/1" : "/"), new HashSet<>());
+        });
+
+        CrawlOutcome outcome = crawler.crawl(new URL("http://www.google.com/"), page -> {}, CrawlBudget.UNLIMITED.withMaxDepth(1));
+
+        assertEquals(CrawlOutcome.COMPLETE, outcome);
+    }
+
+    @Test
+    public void testByteBudgetCountsResponses() throws Exception {
+        Set<String> allLinks = new HashSet<>();
+        for(int x = 0; x < 20; x++){
+            allLinks.add("/page" + x);
+        }
+        PageDetails details = new PageDetails(allLinks, new HashSet<>());
+        when(htmlScraper.fetch(any())).thenAnswer(invocation ->
+                new FetchResponse(invocation.getArgument(0), 200, Collections.emptyMap(), new byte[1000]));
+        when(htmlScraper.extract(any(), any())).thenReturn(details);
+
+        List<Page> streamed = new ArrayList<>();
+        crawler = new Crawler(htmlScraper, 1);
+        CrawlOutcome outcome = crawler.crawl(new URL("http://www.google.com/"), streamed::add, CrawlBudget.UNLIMITED.withMaxBytes(3500));
+
+        //One worker, so the budget is checked after every page and runs out on the fourth
+        assertEquals(CrawlOutcome.BYTE_LIMIT, outcome);
+        assertEquals(4, streamed.size());
+        verify(htmlScraper, never()).getPageAssets(any());
+    }
+
+    @Test
+    public void testScorerSpendsPageBudgetOnBestPages() throws Exception {
+        String google = "http://www.google.com";
+        URL url = new URL(google + "/");
+        PageDetails homePage = new PageDetails(Sets.newHashSet("/tag/1", "/tag/2", "/tag/3", "/products/1", "/tag/4", "/products/2"),
+                new HashSet<>());
+        when(htmlScraper.getPageAssets(any())).thenAnswer(invocation ->
+                url.equals(invocation.getArgument(0)) ? homePage : new PageDetails(new HashSet<>(), new HashSet<>()));
+
+        Map<String, Integer> weights = new HashMap<>();
+        weights.put("/products/*", UrlScorer.BUILT_IN_MAX);
+        List<Page> streamed = new ArrayList<>();
+        crawler = new Crawler(htmlScraper, 1);
+        CrawlOutcome outcome = crawler.crawl(url, streamed::add, CrawlBudget.maxPages(3), UrlScorer.byPattern(weights));
+
+        assertEquals(CrawlOutcome.PAGE_LIMIT, outcome);
+        assertEquals(Sets.newHashSet(new Page(url), new Page(new URL(google + "/products/1")), new Page(new URL(google + "/products/2"))),
+                new HashSet<>(streamed));
+    }
+
+    @Test
+    public void testPathCapLeavesOutMatchingLinks() throws Exception {
+        String google = "http://www.google.com";
+        URL url = new URL(google + "/");
+        when(htmlScraper.getPageAssets(url)).thenReturn(new PageDetails(Sets.newHashSet("/about", "/calendar/1", "/calendar/2", "/calendar/3"), new HashSet<>()));
+        when(htmlScraper.getPageAssets(argThat(link -> !url.equals(link)))).thenReturn(new PageDetails(Sets.newHashSet("/"), new HashSet<>()));
+
+        List<Page> streamed = new ArrayList<>();
+        CrawlOutcome outcome = crawler.crawl(url, streamed::add, CrawlBudget.UNLIMITED.withPathCap("/calendar/*", 1));
+
+        assertEquals(CrawlOutcome.PATH_LIMIT, outcome);
+        assertEquals(3, streamed.size());
+    }
+
+    @Test
+    public void testCrawlFetchFailure() throws Exception {
+        URL url = new URL("http://www.google.com/");
+        PageDetails homePage = new PageDetails(Sets.newHashSet("/", "/hello1"), new HashSet<>());
+        CrawlMetrics metrics = new CrawlMetrics();
+
+        when(htmlScraper.getPageAssets(any())).thenReturn(homePage).thenThrow(new IOException("fetch failed"));
+
+        Site site = Crawler.builder(htmlScraper).metrics(metrics).build().crawlDomain(url);
+
+        assertEquals(new Site(url, Collections.singleton(new Page(url))), site);
+        assertEquals(Long.valueOf(1), metrics.getErrorCounts().get("IOException"));
+    }
+
+    @Test
+    public void testSkipsPagesThatAreNotHtmlOrMissing() throws Exception {
+        String google = "http://www.google.com";
+        URL url = new URL(google + "/");
+        CrawlMetrics metrics = new CrawlMetrics();
+        when(htmlScraper.getPageAssets(any())).thenAnswer(invocation -> {
+            URL link = invocation.getArgument(0);
+            switch (link.getPath()) {
+                case "/report.pdf":
+                    throw new UnsupportedMimeTypeException("Unhandled content type", "application/pdf", link.toString());
+                case "/missing":
+                    throw new HttpStatusException("HTTP error fetching URL", 404, link.toString());
+                case "/":
+                    return new PageDetails(Sets.newHashSet("/report.pdf", "/missing", "/about"), new HashSet<>());
+                default:
+                    return new PageDetails(Sets.newHashSet("/"), new HashSet<>());
+            }
+        });
+
+        List<Page> streamed = new ArrayList<>();
+        CrawlOutcome outcome = Crawler.builder(htmlScraper).workers(2).metrics(metrics).build()
+                .crawl(url, streamed::add, CrawlBudget.UNLIMITED);
+
+        assertEquals(CrawlOutcome.COMPLETE, outcome);
+        assertEquals(Sets.newHashSet(new Page(url), new Page(new URL(google + "/about"))), new HashSet<>(streamed));
+        assertEquals(Long.valueOf(1), metrics.getErrorCounts().get("UnsupportedMimeTypeException"));
+        assertEquals(Long.valueOf(1), metrics.getErrorCounts().get("HTTP 404"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoWorkers() {
+        new Crawler(htmlScraper, 0);
+    }
+
+    @Test
+    public void testVirtualThreadCrawlRespectsHostLimit() throws Exception {
+        Set<String> allLinks = new HashSet<>();
+        for(int x = 0; x < 50; x++){
+            allLinks.add("/page" + x);
+        }
+        PageDetails details = new PageDetails(allLinks, new HashSet<>());
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+
+        when(htmlScraper.getPageAssets(any())).thenAnswer(invocation -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            Thread.sleep(2);
+            inFlight.decrementAndGet();
+            return details;
+        });
+
+        crawler = Crawler.builder(htmlScraper).workers(1000).fetchMode(FetchMode.VIRTUAL_THREADS).maxFetchesPerHost(3).build();
+        Site site = crawler.crawlDomain(new URL("http://www.google.com/"));
+
+        assertNotNull(site);
+        assertTrue(maxInFlight.get() <= 3);
+        verify(htmlScraper, times(51)).getPageAssets(any());
+    }
+
+    @Test
+    public void testCrawlStreamsPagesToListener() throws Exception {
+        PageDetails homePage = new PageDetails(Sets.newHashSet("/", "/hello1"), new HashSet<>());
+        PageDetails hello1 = new PageDetails(Sets.newHashSet("/", "/hello2"), new HashSet<>());
+        PageDetails hello2 = new PageDetails(Sets.newHashSet("/", "/hello1"), new HashSet<>());
+
+        when(htmlScraper.getPageAssets(any())).thenReturn(homePage, hello1, hello2);
+
+        String google = "http://www.google.com";
+        URL url = new URL(google + "/");
+        List<Page> streamed = new ArrayList<>();
+        crawler = new Crawler(htmlScraper, 1);
+        crawler.crawl(url, streamed::add);
+
+        List<Page> expectedPages = new ArrayList<>();
+        expectedPages.add(new Page(url, homePage));
+        expectedPages.add(new Page(new URL(google + "/hello1"), hello1));
+        expectedPages.add(new Page(new URL(google + "/hello2"), hello2));
+        assertEquals(expectedPages, streamed);
+
+        verify(htmlScraper, times(3)).getPageAssets(any());
+    }
+
+    @Test
+    public void testDuplicatesMarkedAndExpanded() throws Exception {
+        List<Page> pages = crawlPrintView(DuplicatePolicy.MARK);
+
+        assertEquals(4, pages.size());
+        Page print = pages.stream().filter(page -> page.getUrl().getPath().equals("/print")).findFirst().get();
+        assertEquals(UrlKey.of(new URL("http://www.google.com/")), print.getDuplicateOf());
+        assertEquals(1, pages.stream().filter(Page::isDuplicate).count());
+    }
+
+    @Test
+    public void testDuplicateLinksSkipped() throws Exception {
+        List<Page> pages = crawlPrintView(DuplicatePolicy.SKIP_LINKS);
+
+        assertEquals(Sets.newHashSet(new Page(new URL("http://www.google.com/")), new Page(new URL("http://www.google.com/a")),
+                new Page(new URL("http://www.google.com/print"))), new HashSet<>(pages));
+        verify(htmlScraper, never()).getPageAssets(new URL("http://www.google.com/print-only"));
+    }
+
+    @Test
+    public void testDuplicatesNotLookedForByDefault() throws Exception {
+        List<Page> pages = crawlPrintView(DuplicatePolicy.OFF);
+
+        assertEquals(4, pages.size());
+        assertFalse(pages.stream().anyMatch(Page::isDuplicate));
+    }
+
+    @Test
+    public void testSitemapsSeedUnlinkedPages() throws Exception {
+        URL url = new URL("http://www.google.com/");
+        when(htmlScraper.getPageAssets(any())).thenReturn(new PageDetails(Sets.newHashSet("/linked"), new HashSet<>()));
+
+        List<Page> streamed = new ArrayList<>();
+        crawler = sitemapCrawler(new CrawlMetrics());
+        crawler.crawl(url, streamed::add);
+
+        assertEquals(Sets.newHashSet(new Page(url), new Page(new URL("http://www.google.com/linked")), new Page(new URL("http://www.google.com/deep/1")),
+                new Page(new URL("http://www.google.com/deep/2")), new Page(new URL("http://www.google.com/deep/3")),
+                new Page(new URL("http://www.google.com/deep/4"))), new HashSet<>(streamed));
+    }
+
+    @Test
+    public void testSitemapSeedingStopsAtPageBudget() throws Exception {
+        URL url = new URL("http://www.google.com/");
+        when(htmlScraper.getPageAssets(any())).thenReturn(new PageDetails(new HashSet<>(), new HashSet<>()));
+        when(htmlScraper.getPageAssets(url)).thenReturn(new PageDetails(Sets.newHashSet("/linked"), new HashSet<>()));
+
+        List<Page> streamed = new ArrayList<>();
+        CrawlMetrics metrics = new CrawlMetrics();
+        crawler = sitemapCrawler(metrics);
+        CrawlOutcome outcome = crawler.crawl(url, streamed::add, CrawlBudget.maxPages(3));
+
+        assertEquals(CrawlOutcome.PAGE_LIMIT, outcome);
+        assertEquals(3, streamed.size());
+        //With one worker /linked waits on seeding. Then the home page again, and /deep/3 at the latest fills the
+        //frontier, depending on whether /linked has left it yet, so /deep/4 is never read.
+        assertTrue(metrics.getLinksOffered() <= 5);
+    }
+
+    @Test
+    public void testSitemapPriorityOrdersSeededPages() throws Exception {
+        URL url = new URL("http://www.google.com/");
+        when(htmlScraper.getPageAssets(any())).thenReturn(new PageDetails(new HashSet<>(), new HashSet<>()));
+        //The crawl may take the first page as soon as it is seeded, so that one is the most wanted
+        String sitemap = "<urlset><url><loc>http://www.google.com/deep/3</loc><priority>0.9</priority></url>" +
+                "<url><loc>http://www.google.com/deep/1</loc><priority>0.1</priority></url>" +
+                "<url><loc>http://www.google.com/deep/2</loc></url></urlset>";
+
+        List<Page> streamed = new ArrayList<>();
+        crawler = sitemapCrawler(new CrawlMetrics(), sitemap);
+        crawler.crawl(url, streamed::add, CrawlBudget.maxPages(3), UrlScorer.bySitemapPriority());
+
+        assertEquals(Arrays.asList(new Page(url), new Page(new URL("http://www.google.com/deep/3")),
+                new Page(new URL("http://www.google.com/deep/2"))), streamed);
+    }
+
+    @Test(timeout = 10000)
+    public void testCrawlsWhileSitemapsDownload() throws Exception {
+        URL url = new URL("http://www.google.com/");
+        CountDownLatch linkedFetched = new CountDownLatch(1);
+        when(htmlScraper.getPageAssets(any())).thenReturn(new PageDetails(new HashSet<>(), new HashSet<>()));
+        when(htmlScraper.getPageAssets(url)).thenReturn(new PageDetails(Sets.newHashSet("/linked"), new HashSet<>()));
+        when(htmlScraper.getPageAssets(new URL("http://www.google.com/linked"))).thenAnswer(invocation -> {
+            linkedFetched.countDown();
+            return new PageDetails(new HashSet<>(), new HashSet<>());
+        });
+        //The sitemap only arrives once the home page's link has been crawled
+        Fetcher fetcher = (fetchUrl, headers) -> {
+            if(!fetchUrl.getPath().equals(Sitemaps.SITEMAP_PATH)){
+                return new FetchResponse(fetchUrl, 404, Collections.emptyMap(), new byte[0]);
+            }
+            try {
+                if(!linkedFetched.await(5, TimeUnit.SECONDS)){
+                    throw new IOException("crawl waited on the sitemap");
+                }
+            } catch (InterruptedException e) {
+                throw new InterruptedIOException();
+            }
+            return new FetchResponse(fetchUrl, 200, Collections.emptyMap(),
+                    "<urlset><url><loc>http://www.google.com/deep/1</loc></url></urlset>".getBytes(StandardCharsets.UTF_8));
+        };
+
+        List<Page> streamed = new ArrayList<>();
+        Crawler.builder(htmlScraper).workers(2).metrics(new CrawlMetrics()).sitemaps(new Sitemaps(fetcher)).build()
+                .crawl(url, streamed::add);
+
+        assertEquals(Sets.newHashSet(new Page(url), new Page(new URL("http://www.google.com/linked")),
+                new Page(new URL("http://www.google.com/deep/1"))), new HashSet<>(streamed));
+    }
+
+    //No robots.txt, so /sitemap.xml, listing the home page and four pages nothing links to
+    private Crawler sitemapCrawler(CrawlMetrics metrics) {
+        return sitemapCrawler(metrics, "<urlset><url><loc>http://www.google.com/</loc></url><url><loc>http://www.google.com/deep/1</loc></url>" +
+                "<url><loc>http://www.google.com/deep/2</loc></url><url><loc>http://www.google.com/deep/3</loc></url>" +
+                "<url><loc>http://www.google.com/deep/4</loc></url></urlset>");
+    }
+
+    private Crawler sitemapCrawler(CrawlMetrics metrics, String sitemap) {
+        Fetcher fetcher = (fetchUrl, headers) -> fetchUrl.getPath().equals(Sitemaps.SITEMAP_PATH)
+                ? new FetchResponse(fetchUrl, 200, Collections.emptyMap(), sitemap.getBytes(StandardCharsets.UTF_8))
+                : new FetchResponse(fetchUrl, 404, Collections.emptyMap(), new byte[0]);
+        return Crawler.builder(htmlScraper).workers(1).metrics(metrics).sitemaps(new Sitemaps(fetcher)).build();
+    }
+
+    //The home page and its print view share their text, only the print view links to /print-only
+    private List<Page> crawlPrintView(DuplicatePolicy duplicatePolicy) throws Exception {
+        long text = SimHash.of("the same article text on the home page and its print view");
+        PageDetails homePage = new PageDetails(Sets.newHashSet("/print", "/a"), new HashSet<>(), text);
+        PageDetails print = new PageDetails(Sets.newHashSet("/print-only"), new HashSet<>(), text ^ 1);
+        when(htmlScraper.getPageAssets(any())).thenAnswer(invocation -> {
+            String path = invocation.<URL>getArgument(0).getPath();
+            return "/".equals(path) ? homePage : "/print".equals(path) ? print
+                    : new PageDetails(new HashSet<>(), new HashSet<>(), SimHash.of("a page of its own at " + path));
+        });
+
+        crawler = Crawler.builder(htmlScraper).workers(1).metrics(new CrawlMetrics()).duplicatePolicy(duplicatePolicy).build();
+        List<Page> pages = new ArrayList<>();
+        crawler.crawl(new URL("http://www.google.com/"), pages::add);
+        return pages;
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testCrawlNullListener() throws IOException {
+        crawler.crawl(new URL("http://www.google.com/"), null);
+    }
+
+    @Test
+    public void testResumeAfterFailedCrawl() throws Exception {
+        String google = "http://www.google.com";
+        URL url = new URL(google + "/");
+        PageDetails homePage = new PageDetails(Sets.newHashSet("/a", "/b"), new HashSet<>());
+        PageDetails a = new PageDetails(Sets.newHashSet("/", "/c"), new HashSet<>());
+        PageDetails leaf = new PageDetails(Sets.newHashSet("/"), new HashSet<>());
+        Path checkpoint = folder.getRoot().toPath();
+
+        when(htmlScraper.getPageAssets(any())).thenAnswer(invocation -> {
+            String path = invocation.<URL>getArgument(0).getPath();
+            if("/b".equals(path)){
+                throw new IllegalStateException("crashed");
+            }
+            return "/".equals(path) ? homePage : "/a".equals(path) ? a : leaf;
+        });
+
+        crawler = new Crawler(htmlScraper, 1);
+        List<Page> firstRun = new ArrayList<>();
+        try {
+            crawler.crawl(url, firstRun::add, checkpoint);
+            fail("Expected the crawl to fail on /b");
+        } catch (IllegalStateException expected) {
+        }
+
+        doAnswer(invocation -> {
+            String path = invocation.<URL>getArgument(0).getPath();
+            return "/a".equals(path) ? a : leaf;
+        }).when(htmlScraper).getPageAssets(any());
+
+        List<Page> resumed = new ArrayList<>();
+        crawler.resume(checkpoint, resumed::add);
+
+        Set<Page> allPages = new HashSet<>(firstRun);
+        allPages.addAll(resumed);
+        assertEquals(Sets.newHashSet(new Page(url), new Page(new URL(google + "/a")), new Page(new URL(google + "/b")), new Page(new URL(google + "/c"))), allPages);
+        assertFalse(resumed.contains(new Page(url)));
+        assertTrue(resumed.contains(new Page(new URL(google + "/b"))));
+    }
+
+    @Test
+    public void testResumeKeepsJournaledDepths() throws Exception {
+        String google = "http://www.google.com";
+        URL url = new URL(google + "/");
+        Path checkpoint = folder.getRoot().toPath();
+        CrawlBudget budget = CrawlBudget.UNLIMITED.withMaxDepth(1);
+
+        when(htmlScraper.getPageAssets(any())).thenAnswer(invocation -> {
+            if("/b".equals(invocation.<URL>getArgument(0).getPath())){
+                throw new IllegalStateException("crashed");
+            }
+            return new PageDetails(Sets.newHashSet("/b"), new HashSet<>());
+        });
+
+        crawler = new Crawler(htmlScraper, 1);
+        try {
+            crawler.crawl(url, page -> {}, budget, checkpoint);
+            fail("Expected the crawl to fail on /b");
+        } catch (IllegalStateException expected) {
+        }
+
+        //Found at depth 1, so its links are past the max depth after the restart too
+        doReturn(new PageDetails(Sets.newHashSet("/d"), new HashSet<>())).when(htmlScraper).getPageAssets(any());
+
+        List<Page> resumed = new ArrayList<>();
+        assertEquals(CrawlOutcome.DEPTH_LIMIT, crawler.resume(checkpoint, resumed::add, budget));
+        assertEquals(Collections.singletonList(new Page(new URL(google + "/b"))), resumed);
+    }
+}
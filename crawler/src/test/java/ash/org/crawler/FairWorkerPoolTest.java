@@ -0,0 +1,186 @@
+package ash.org.crawler;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FairWorkerPoolTest {
+
+    @Test
+    public void testLanesAreServedInTurn() throws Exception {
+        List<String> ran = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(7);
+
+        try (FairWorkerPool pool = new FairWorkerPool(1)) {
+            FairWorkerPool.Lane deep = pool.newLane("deep");
+            FairWorkerPool.Lane shallow = pool.newLane("shallow");
+            //Holds the only worker while both lanes fill up
+            deep.execute(() -> {
+                started.countDown();
+                try {
+                    blocked.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            for (int x = 0; x < 5; x++) {
+                String task = "deep" + x;
+                deep.execute(() -> {
+                    ran.add(task);
+                    done.countDown();
+                });
+            }
+            for (int x = 0; x < 2; x++) {
+                String task = "shallow" + x;
+                shallow.execute(() -> {
+                    ran.add(task);
+                    done.countDown();
+                });
+            }
+            blocked.countDown();
+
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+        }
+        assertEquals(Arrays.asList("deep0", "shallow0", "deep1", "shallow1", "deep2", "deep3", "deep4"), ran);
+    }
+
+    @Test
+    public void testLaneHoldsTasksUntilItsHostIsReady() throws Exception {
+        List<String> ran = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(4);
+        long readyAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(300);
+
+        try (FairWorkerPool pool = new FairWorkerPool(1)) {
+            FairWorkerPool.Lane delayed = pool.newLane("delayed", () -> readyAt - System.nanoTime());
+            FairWorkerPool.Lane ready = pool.newLane("ready");
+            delayed.execute(() -> {
+                ran.add("delayed");
+                done.countDown();
+            });
+            for (int x = 0; x < 3; x++) {
+                String task = "ready" + x;
+                ready.execute(() -> {
+                    ran.add(task);
+                    done.countDown();
+                });
+            }
+
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            assertTrue(System.nanoTime() >= readyAt);
+        }
+        //The only worker ran the other lane rather than sleep through the delay
+        assertEquals(Arrays.asList("ready0", "ready1", "ready2", "delayed"), ran);
+    }
+
+    @Test
+    public void testHeldLaneLetsOneTaskGoAtATime() throws Exception {
+        long delayNanos = TimeUnit.MILLISECONDS.toNanos(50);
+        long[] nextSlot = {System.nanoTime()};
+        AtomicInteger busy = new AtomicInteger();
+        AtomicInteger maxBusy = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(5);
+
+        try (FairWorkerPool pool = new FairWorkerPool(4)) {
+            FairWorkerPool.Lane delayed = pool.newLane("delayed", () -> {
+                synchronized (nextSlot) {
+                    return Math.max(0, nextSlot[0] - System.nanoTime());
+                }
+            });
+            //Each task checks robots.txt, then takes the host's next slot and sleeps until it, as a scheduled fetch does
+            for (int x = 0; x < 5; x++) {
+                delayed.execute(() -> {
+                    maxBusy.accumulateAndGet(busy.incrementAndGet(), Math::max);
+                    try {
+                        TimeUnit.MILLISECONDS.sleep(20);
+                        long wait;
+                        synchronized (nextSlot) {
+                            long now = System.nanoTime();
+                            long slot = Math.max(now, nextSlot[0]);
+                            nextSlot[0] = slot + delayNanos;
+                            wait = slot - now;
+                        }
+                        TimeUnit.NANOSECONDS.sleep(wait);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    delayed.onReserved();
+                    busy.decrementAndGet();
+                    done.countDown();
+                });
+            }
+
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+        }
+        //All four workers were free, yet only one at a time was given the lane's work
+        assertEquals(1, maxBusy.get());
+    }
+
+    @Test(timeout = 5000)
+    public void testReservedTaskLetsTheNextGo() throws Exception {
+        CountDownLatch second = new CountDownLatch(1);
+        try (FairWorkerPool pool = new FairWorkerPool(2)) {
+            FairWorkerPool.Lane lane = pool.newLane("site", () -> 0);
+            CountDownLatch first = new CountDownLatch(1);
+            lane.execute(() -> {
+                lane.onReserved();
+                try {
+                    //Still running when the lane's next task has to start
+                    second.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                first.countDown();
+            });
+            lane.execute(second::countDown);
+
+            first.await();
+        }
+    }
+
+    @Test
+    public void testClearDropsQueuedTasks() throws Exception {
+        CountDownLatch blocked = new CountDownLatch(1);
+        try (FairWorkerPool pool = new FairWorkerPool(1)) {
+            FairWorkerPool.Lane lane = pool.newLane("site");
+            lane.execute(() -> {
+                try {
+                    blocked.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            lane.execute(() -> {});
+            lane.execute(() -> {});
+
+            lane.clear();
+            assertEquals(0, lane.getQueued());
+            blocked.countDown();
+        }
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void testClosedPoolRejectsTasks() {
+        FairWorkerPool pool = new FairWorkerPool(1);
+        FairWorkerPool.Lane lane = pool.newLane("site");
+        pool.close();
+        lane.execute(() -> {});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoWorkers() {
+        new FairWorkerPool(0);
+    }
+}
@@ -0,0 +1,160 @@
+package ash.org.crawler;
+
+import ash.org.domain.UrlKey;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.Assert.*;
+
+public class FileCrawlJournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testRestoresPendingUrls() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        URL homePage = new URL("http://www.google.com/");
+        UrlKey done = UrlKey.of(new URL("http://www.google.com/done"));
+        UrlKey pending = UrlKey.of(new URL("http://www.google.com/pending"));
+
+        try (FileCrawlJournal journal = FileCrawlJournal.create(directory, homePage)) {
+            journal.claimed(UrlKey.of(homePage), 0);
+            journal.claimed(done, 1);
+            journal.claimed(pending, 1);
+            journal.completed(UrlKey.of(homePage));
+            journal.completed(done);
+        }
+
+        Frontier frontier = restore(directory, homePage);
+
+        assertEquals(pending, frontier.poll());
+        assertTrue(frontier.isEmpty());
+        assertEquals(3, frontier.visitedCount());
+        assertFalse(frontier.offer(done));
+    }
+
+    @Test
+    public void testCheckpointIsDurableWithoutClose() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        URL homePage = new URL("http://www.google.com/");
+        UrlKey pending = UrlKey.of(new URL("http://www.google.com/pending"));
+
+        FileCrawlJournal journal = FileCrawlJournal.create(directory, homePage);
+        journal.claimed(pending, 1);
+        journal.checkpoint();
+
+        Frontier frontier = restore(directory, homePage);
+
+        assertEquals(pending, frontier.poll());
+        journal.close();
+    }
+
+    @Test
+    public void testIgnoresTornLastRecord() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        URL homePage = new URL("http://www.google.com/");
+        UrlKey pending = UrlKey.of(new URL("http://www.google.com/pending"));
+
+        try (FileCrawlJournal journal = FileCrawlJournal.create(directory, homePage)) {
+            journal.claimed(pending, 1);
+        }
+        Files.write(directory.resolve(FileCrawlJournal.LOG_FILE), "C http://www.google.com/tor".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        Frontier frontier = restore(directory, homePage);
+
+        assertEquals(pending, frontier.poll());
+        assertTrue(frontier.isEmpty());
+    }
+
+    @Test
+    public void testResumeTwice() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        URL homePage = new URL("http://www.google.com/");
+        UrlKey first = UrlKey.of(new URL("http://www.google.com/first"));
+        UrlKey second = UrlKey.of(new URL("http://www.google.com/second"));
+
+        try (FileCrawlJournal journal = FileCrawlJournal.create(directory, homePage)) {
+            journal.claimed(first, 1);
+        }
+        try (FileCrawlJournal journal = FileCrawlJournal.open(directory)) {
+            journal.restore(new Frontier(journal));
+            journal.claimed(second, 1);
+            journal.completed(first);
+        }
+
+        Frontier frontier = restore(directory, homePage);
+
+        assertEquals(second, frontier.poll());
+        assertTrue(frontier.isEmpty());
+    }
+
+    @Test
+    public void testRestoresJournaledDepths() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        URL homePage = new URL("http://www.google.com/");
+        UrlKey shallow = UrlKey.of(new URL("http://www.google.com/shallow"));
+        UrlKey deep = UrlKey.of(new URL("http://www.google.com/deep"));
+        UrlKey beyond = UrlKey.of(new URL("http://www.google.com/beyond"));
+
+        try (FileCrawlJournal journal = FileCrawlJournal.create(directory, homePage)) {
+            journal.claimed(shallow, 1);
+            journal.claimed(deep, 2);
+        }
+
+        try (FileCrawlJournal journal = FileCrawlJournal.open(directory)) {
+            Frontier frontier = new Frontier(journal, new HeapVisitedUrlSet(), CrawlBudget.UNLIMITED.withMaxDepth(2));
+            journal.restore(frontier);
+
+            assertEquals(1, frontier.pollQueued().depth);
+            assertEquals(2, frontier.pollQueued().depth);
+            //A link found on the deepest page is past the max depth, as it would have been before the restart
+            assertFalse(frontier.offer(beyond, 3));
+            assertEquals(1, frontier.getDroppedByDepth());
+        }
+    }
+
+    @Test
+    public void testRestoresClaimsWithoutDepthAtTheHomePage() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        URL homePage = new URL("http://www.google.com/");
+        UrlKey pending = UrlKey.of(new URL("http://www.google.com/pending"));
+
+        try (FileCrawlJournal journal = FileCrawlJournal.create(directory, homePage)) {
+            journal.checkpoint();
+        }
+        //Written before claims carried their depth
+        Files.write(directory.resolve(FileCrawlJournal.LOG_FILE), "C http://www.google.com/pending\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        try (FileCrawlJournal journal = FileCrawlJournal.open(directory)) {
+            Frontier frontier = new Frontier(journal);
+            journal.restore(frontier);
+
+            Frontier.Queued restored = frontier.pollQueued();
+            assertEquals(pending, restored.key);
+            assertEquals(0, restored.depth);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testOpenWithoutCheckpoint() throws IOException {
+        FileCrawlJournal.open(folder.getRoot().toPath());
+    }
+
+    private Frontier restore(Path directory, URL expectedHomePage) throws IOException {
+        try (FileCrawlJournal journal = FileCrawlJournal.open(directory)) {
+            assertEquals(expectedHomePage, journal.getHomePage());
+            Frontier frontier = new Frontier(journal);
+            journal.restore(frontier);
+            return frontier;
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package ash.org.crawler;
+
+import ash.org.domain.UrlKey;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class FrontierTest {
+
+    @Test
+    public void testOfferIsBreadthFirst() throws Exception {
+        Frontier frontier = new Frontier();
+        URL first = new URL("http://www.google.com/first");
+        URL second = new URL("http://www.google.com/second");
+
+        assertTrue(frontier.offer(first));
+        assertTrue(frontier.offer(second));
+        assertEquals(2, frontier.size());
+
+        assertEquals(UrlKey.of(first), frontier.poll());
+        assertEquals(UrlKey.of(second), frontier.poll());
+        assertNull(frontier.poll());
+        assertTrue(frontier.isEmpty());
+    }
+
+    @Test
+    public void testOfferSkipsVisited() throws Exception {
+        Frontier frontier = new Frontier();
+        URL url = new URL("http://www.google.com/page");
+
+        assertTrue(frontier.offer(url));
+        assertFalse(frontier.offer(new URL("http://www.google.com/page")));
+        assertFalse(frontier.offer(new URL("HTTP://WWW.GOOGLE.COM:80/page#anchor")));
+        assertFalse(frontier.offer(UrlKey.fromOrigin("http://www.google.com", "/page")));
+        assertEquals(1, frontier.size());
+        assertEquals(1, frontier.visitedCount());
+    }
+
+    @Test
+    public void testVisitedIsNotQueued() throws Exception {
+        Frontier frontier = new Frontier();
+        URL url = new URL("http://www.google.com/");
+
+        assertTrue(frontier.visit(url));
+        assertFalse(frontier.offer(url));
+        assertTrue(frontier.isEmpty());
+    }
+
+    @Test
+    public void testOffersDeeperThanBudgetDropped() throws Exception {
+        Frontier frontier = new Frontier(CrawlJournal.NONE, new HeapVisitedUrlSet(), CrawlBudget.UNLIMITED.withMaxDepth(2));
+        UrlKey deep = UrlKey.fromOrigin("http://www.google.com", "/deep");
+
+        assertTrue(frontier.offer(UrlKey.fromOrigin("http://www.google.com", "/shallow"), 2));
+        assertFalse(frontier.offer(deep, 3));
+        assertEquals(1, frontier.getDroppedByDepth());
+
+        //Found again by a shorter route
+        assertTrue(frontier.offer(deep, 1));
+        assertEquals(2, frontier.pollQueued().depth);
+        assertEquals(1, frontier.pollQueued().depth);
+    }
+
+    @Test
+    public void testLinksBackBeyondBudgetNotDropped() throws Exception {
+        Frontier frontier = new Frontier(CrawlJournal.NONE, new HeapVisitedUrlSet(), CrawlBudget.UNLIMITED.withMaxDepth(1));
+        URL homePage = new URL("http://www.google.com/");
+        frontier.visit(homePage);
+
+        assertFalse(frontier.offer(UrlKey.of(homePage), 2));
+        assertEquals(0, frontier.getDroppedByDepth());
+    }
+
+    @Test
+    public void testPathCapsLimitMatchingUrls() throws Exception {
+        CrawlBudget budget = CrawlBudget.UNLIMITED.withPathCap("/calendar/*", 2).withPathCap("/search?*", 0);
+        Frontier frontier = new Frontier(CrawlJournal.NONE, new HeapVisitedUrlSet(), budget);
+        String origin = "http://www.google.com";
+
+        assertTrue(frontier.offer(UrlKey.fromOrigin(origin, "/calendar/2024/01"), 1));
+        assertTrue(frontier.offer(UrlKey.fromOrigin(origin, "/calendar/2024/02"), 1));
+        assertFalse(frontier.offer(UrlKey.fromOrigin(origin, "/calendar/2024/03"), 1));
+        assertFalse(frontier.offer(UrlKey.fromOrigin(origin, "/search?q=shoes"), 1));
+        assertTrue(frontier.offer(UrlKey.fromOrigin(origin, "/search"), 1));
+        assertTrue(frontier.offer(UrlKey.fromOrigin(origin, "/calendar"), 1));
+
+        assertEquals(4, frontier.size());
+        assertEquals(2, frontier.getDroppedByPathCap());
+    }
+
+    @Test
+    public void testHighestScorePolledFirst() throws Exception {
+        Frontier frontier = scored(UrlScorer.byDepth());
+        String origin = "http://www.google.com";
+
+        assertTrue(frontier.offer(UrlKey.fromOrigin(origin, "/deep"), 3));
+        assertTrue(frontier.offer(UrlKey.fromOrigin(origin, "/first"), 1));
+        assertTrue(frontier.offer(UrlKey.fromOrigin(origin, "/deeper"), 5));
+        assertTrue(frontier.offer(UrlKey.fromOrigin(origin, "/second"), 1));
+
+        assertEquals(UrlKey.fromOrigin(origin, "/first"), frontier.poll());
+        assertEquals(UrlKey.fromOrigin(origin, "/second"), frontier.poll());
+        assertEquals(UrlKey.fromOrigin(origin, "/deep"), frontier.poll());
+        assertEquals(UrlKey.fromOrigin(origin, "/deeper"), frontier.poll());
+        assertNull(frontier.poll());
+        assertTrue(frontier.isEmpty());
+    }
+
+    @Test
+    public void testInLinksRaiseQueuedUrl() throws Exception {
+        Frontier frontier = scored(UrlScorer.byInLinks());
+        String origin = "http://www.google.com";
+        UrlKey popular = UrlKey.fromOrigin(origin, "/popular");
+
+        assertTrue(frontier.offer(UrlKey.fromOrigin(origin, "/once"), 1));
+        assertTrue(frontier.offer(popular, 1));
+        assertFalse(frontier.offer(popular, 2));
+        assertFalse(frontier.offer(popular, 2));
+        assertEquals(2, frontier.size());
+
+        assertEquals(popular, frontier.poll());
+        //Its old entry is skipped rather than crawled twice
+        assertEquals(UrlKey.fromOrigin(origin, "/once"), frontier.poll());
+        assertNull(frontier.poll());
+        assertTrue(frontier.isEmpty());
+
+        //Links to a url already crawled change nothing
+        assertFalse(frontier.offer(popular, 1));
+        assertTrue(frontier.isEmpty());
+    }
+
+    @Test
+    public void testPatternScores() throws Exception {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        weights.put("/products/*", 10);
+        weights.put("/tag/*", 0);
+        weights.put("/*", 5);
+        Frontier frontier = scored(UrlScorer.byPattern(weights));
+        String origin = "http://www.google.com";
+
+        assertTrue(frontier.offer(UrlKey.fromOrigin(origin, "/tag/shoes"), 1));
+        assertTrue(frontier.offer(UrlKey.fromOrigin(origin, "/about"), 1));
+        assertTrue(frontier.offer(UrlKey.fromOrigin(origin, "/products/shoes?size=9"), 1));
+
+        assertEquals(UrlKey.fromOrigin(origin, "/products/shoes?size=9"), frontier.poll());
+        assertEquals(UrlKey.fromOrigin(origin, "/about"), frontier.poll());
+        assertEquals(UrlKey.fromOrigin(origin, "/tag/shoes"), frontier.poll());
+    }
+
+    @Test
+    public void testSitemapPriorityScores() throws Exception {
+        String origin = "http://www.google.com";
+        Map<UrlKey, Double> priorities = new HashMap<>();
+        priorities.put(UrlKey.fromOrigin(origin, "/important"), 1.0);
+        priorities.put(UrlKey.fromOrigin(origin, "/archive"), 0.1);
+        Frontier frontier = scored(UrlScorer.bySitemapPriority(priorities).plus(UrlScorer.byDepth()));
+
+        assertTrue(frontier.offer(UrlKey.fromOrigin(origin, "/archive"), 1));
+        assertTrue(frontier.offer(UrlKey.fromOrigin(origin, "/unlisted"), 1));
+        assertTrue(frontier.offer(UrlKey.fromOrigin(origin, "/important"), 4));
+
+        assertEquals(UrlKey.fromOrigin(origin, "/important"), frontier.poll());
+        assertEquals(UrlKey.fromOrigin(origin, "/unlisted"), frontier.poll());
+        assertEquals(UrlKey.fromOrigin(origin, "/archive"), frontier.poll());
+    }
+
+    @Test
+    public void testSitemapPriorityOfferedWithUrl() throws Exception {
+        String origin = "http://www.google.com";
+        Frontier frontier = scored(UrlScorer.byDepth().plus(UrlScorer.bySitemapPriority()));
+
+        assertTrue(frontier.offer(UrlKey.fromOrigin(origin, "/archive"), 1, 0.0));
+        assertTrue(frontier.offer(UrlKey.fromOrigin(origin, "/linked"), 1));
+        assertTrue(frontier.offer(UrlKey.fromOrigin(origin, "/important"), 1, 1.0));
+
+        assertEquals(UrlKey.fromOrigin(origin, "/important"), frontier.poll());
+        assertEquals(UrlKey.fromOrigin(origin, "/linked"), frontier.poll());
+        assertEquals(UrlKey.fromOrigin(origin, "/archive"), frontier.poll());
+    }
+
+    @Test
+    public void testScoresOutOfRangeClamped() throws Exception {
+        String origin = "http://www.google.com";
+        Frontier frontier = scored((key, depth, inLinks) -> key.getPath().equals("/high") ? 1000 : -1000);
+
+        assertTrue(frontier.offer(UrlKey.fromOrigin(origin, "/low"), 1));
+        assertTrue(frontier.offer(UrlKey.fromOrigin(origin, "/high"), 1));
+
+        assertEquals(UrlScorer.MAX_SCORE, frontier.pollQueued().score);
+        assertEquals(0, frontier.pollQueued().score);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testOfferNull() throws IOException {
+        new Frontier().offer((URL) null);
+    }
+
+    private static Frontier scored(UrlScorer scorer) {
+        return new Frontier(CrawlJournal.NONE, new HeapVisitedUrlSet(), CrawlBudget.UNLIMITED, scorer);
+    }
+}
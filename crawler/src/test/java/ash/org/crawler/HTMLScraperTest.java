@@ -75,6 +75,7 @@ public class HTMLScraperTest {
         verify(document).getElementsByTag(IMG_TAG);
         verify(document).getElementsByTag(SCRIPT_TAG);
         verify(document).getElementsByTag(LINK_TAG);
+        verify(document).body();
 
         verify(links).stream();
         verify(images).stream();
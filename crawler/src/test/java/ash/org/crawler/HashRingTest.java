@@ -0,0 +1,63 @@
+package ash.org.crawler;
+
+import ash.org.domain.UrlKey;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class HashRingTest {
+
+    private static final int URLS = 20_000;
+
+    @Test
+    public void testSpreadsUrlsEvenly() {
+        HashRing ring = new HashRing(Arrays.asList("a", "b", "c", "d"));
+        Map<String, Integer> owned = new HashMap<>();
+        for (int x = 0; x < URLS; x++) {
+            owned.merge(ring.ownerOf(key(x)), 1, Integer::sum);
+        }
+
+        assertEquals(4, owned.size());
+        for (int count : owned.values()) {
+            assertTrue("Uneven partition " + owned, count > URLS / 4 * 0.7 && count < URLS / 4 * 1.3);
+        }
+    }
+
+    @Test
+    public void testAddingANodeOnlyMovesItsShare() {
+        HashRing before = new HashRing(Arrays.asList("a", "b", "c"));
+        HashRing after = new HashRing(Arrays.asList("a", "b", "c", "d"));
+        int moved = 0;
+        for (int x = 0; x < URLS; x++) {
+            String owner = after.ownerOf(key(x));
+            if(!owner.equals(before.ownerOf(key(x)))){
+                assertEquals("d", owner);
+                moved++;
+            }
+        }
+        assertTrue(moved > URLS / 4 * 0.7 && moved < URLS / 4 * 1.3);
+    }
+
+    @Test
+    public void testCanonicalUrlsShareAnOwner() {
+        HashRing ring = new HashRing(Arrays.asList("a", "b", "c"));
+        for (int x = 0; x < 100; x++) {
+            assertEquals(ring.ownerOf(UrlKey.fromOrigin("http://www.google.com", "/page" + x)),
+                    ring.ownerOf(UrlKey.fromOrigin("http://www.google.com", "page" + x + "#top")));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoNodes() {
+        new HashRing(Collections.emptyList());
+    }
+
+    private static UrlKey key(int x) {
+        return UrlKey.fromOrigin("http://www.google.com", "/page" + x);
+    }
+}
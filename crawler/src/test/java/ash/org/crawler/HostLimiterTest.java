@@ -0,0 +1,47 @@
+package ash.org.crawler;
+
+import org.junit.Test;
+
+import java.net.URL;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+
+public class HostLimiterTest {
+
+    @Test
+    public void testPermitsArePerHost() throws Exception {
+        HostLimiter hostLimiter = new HostLimiter(2);
+        URL google = new URL("http://www.google.com/a");
+        URL amazon = new URL("http://www.amazon.com/a");
+
+        hostLimiter.acquire(google);
+        hostLimiter.acquire(new URL("https://WWW.GOOGLE.COM/b"));
+
+        assertEquals(0, hostLimiter.availablePermits(google));
+        assertEquals(2, hostLimiter.availablePermits(amazon));
+
+        hostLimiter.release(google);
+        assertEquals(1, hostLimiter.availablePermits(google));
+    }
+
+    @Test
+    public void testHostCaseIgnoresDefaultLocale() throws Exception {
+        Locale defaultLocale = Locale.getDefault();
+        //Turkish lowercases I to a dotless i, which would give WIKI.COM a host of its own
+        Locale.setDefault(new Locale("tr", "TR"));
+        try {
+            HostLimiter hostLimiter = new HostLimiter(1);
+            hostLimiter.acquire(new URL("http://WIKI.COM/a"));
+
+            assertEquals(0, hostLimiter.availablePermits(new URL("http://wiki.com/b")));
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoPermits() {
+        new HostLimiter(0);
+    }
+}
@@ -0,0 +1,282 @@
+package ash.org.crawler;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.jsoup.UnsupportedMimeTypeException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.*;
+
+public class HttpClientFetcherTest {
+
+    private static final String HTML = "<html><body><a href=\"/validLink\">x</a></body></html>";
+    private static final String HEAD = "<html><head><link type=\"text/css\" href=\"/site.css\"></HEAD>";
+    private static final String LARGE_HTML = HEAD + "<body>" + String.join("", Collections.nCopies(10_000, "<p>text</p>")) + "</body></html>";
+
+    private HttpServer server;
+    private String base;
+    private final Set<InetSocketAddress> clientConnections = ConcurrentHashMap.newKeySet();
+    private final CountDownLatch released = new CountDownLatch(1);
+
+    @Before
+    public void setup() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/plain", exchange -> respond(exchange, HTML.getBytes(StandardCharsets.UTF_8), null));
+        server.createContext("/gzip", exchange -> respond(exchange, gzip(HTML), "gzip"));
+        server.createContext("/slow", exchange -> {
+            try {
+                Thread.sleep(2000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            respond(exchange, HTML.getBytes(StandardCharsets.UTF_8), null);
+        });
+        server.createContext("/etag", exchange -> {
+            if("\"v1\"".equals(exchange.getRequestHeaders().getFirst("If-None-Match"))){
+                exchange.sendResponseHeaders(HTMLParser.NOT_MODIFIED, -1);
+                exchange.close();
+            } else {
+                respond(exchange, HTML.getBytes(StandardCharsets.UTF_8), null);
+            }
+        });
+        server.createContext("/large", exchange -> respond(exchange, LARGE_HTML.getBytes(StandardCharsets.UTF_8), null));
+        server.createContext("/pdf", exchange -> respond(exchange, new byte[100_000], "application/pdf", null));
+        server.createContext("/untyped-pdf", exchange -> respond(exchange, "%PDF-1.4 binary".getBytes(StandardCharsets.US_ASCII), null, null));
+        server.createContext("/endless", exchange -> {
+            exchange.getResponseHeaders().add("Content-Type", "text/html");
+            exchange.sendResponseHeaders(200, 0);
+            byte[] chunk = "<p>more</p>".getBytes(StandardCharsets.US_ASCII);
+            //Runs until the client hangs up
+            try (OutputStream out = exchange.getResponseBody()) {
+                while (true) {
+                    out.write(chunk);
+                }
+            } catch (IOException e) {
+                exchange.close();
+            }
+        });
+        server.createContext("/stall", exchange -> {
+            exchange.getResponseHeaders().add("Content-Type", "text/html");
+            exchange.sendResponseHeaders(200, 0);
+            OutputStream out = exchange.getResponseBody();
+            out.write(HEAD.getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            //Headers and the start of the body, then nothing until the test ends
+            try {
+                released.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.close();
+        });
+        server.createContext("/bad-gzip", exchange -> respond(exchange, "not gzip at all".getBytes(StandardCharsets.US_ASCII), "gzip"));
+        server.start();
+        base = "http://localhost:" + server.getAddress().getPort();
+    }
+
+    @After
+    public void tearDown() {
+        released.countDown();
+        server.stop(0);
+    }
+
+    @Test
+    public void testFetch() throws IOException {
+        FetchResponse response = new HttpClientFetcher(1000, 1000).fetch(new URL(base + "/plain"), Collections.emptyMap());
+
+        assertEquals(200, response.getStatusCode());
+        assertEquals("UTF-8", response.getCharset());
+        assertEquals(HTML, response.getBodyAsString());
+    }
+
+    @Test
+    public void testDecodesGzip() throws IOException {
+        FetchResponse response = new HttpClientFetcher(1000, 1000).fetch(new URL(base + "/gzip"), Collections.emptyMap());
+
+        assertEquals(HTML, response.getBodyAsString());
+    }
+
+    @Test
+    public void testReusesConnections() throws IOException {
+        HttpClientFetcher fetcher = new HttpClientFetcher(1000, 1000);
+        for (int x = 0; x < 5; x++) {
+            fetcher.fetch(new URL(base + "/plain"), Collections.emptyMap());
+        }
+
+        assertEquals(1, clientConnections.size());
+    }
+
+    @Test
+    public void testSendsRequestHeaders() throws IOException {
+        FetchResponse response = new HttpClientFetcher(1000, 1000).fetch(new URL(base + "/etag"), Collections.singletonMap("If-None-Match", "\"v1\""));
+
+        assertEquals(HTMLParser.NOT_MODIFIED, response.getStatusCode());
+        assertEquals(0, response.getBody().length);
+    }
+
+    @Test(expected = SocketTimeoutException.class)
+    public void testReadTimeout() throws IOException {
+        new HttpClientFetcher(1000, 100).fetch(new URL(base + "/slow"), Collections.emptyMap());
+    }
+
+    @Test
+    public void testParserUsesFetcher() throws IOException {
+        HTMLParser htmlParser = new HTMLParser(new HttpClientFetcher(1000, 1000));
+
+        assertEquals(1, htmlParser.parse(new URL(base + "/gzip")).getElementsByTag(HTMLScraper.ANCHOR_TAG).size());
+        assertEquals(HTML, htmlParser.fetch(new URL(base + "/plain")));
+    }
+
+    @Test
+    public void testLargeBodyTruncated() throws IOException {
+        ResponseLimits limits = new ResponseLimits(1000, ResponseLimits.Truncation.TRUNCATE, true);
+        FetchResponse response = new HttpClientFetcher(1000, 1000, limits).fetch(new URL(base + "/large"), Collections.emptyMap());
+
+        assertTrue(response.isTruncated());
+        assertEquals(1000, response.getBody().length);
+        assertTrue(response.getBodyAsString().startsWith(HEAD));
+    }
+
+    @Test
+    public void testBodyWithinLimitNotTruncated() throws IOException {
+        ResponseLimits limits = new ResponseLimits(HTML.length(), ResponseLimits.Truncation.FAIL, true);
+        FetchResponse response = new HttpClientFetcher(1000, 1000, limits).fetch(new URL(base + "/plain"), Collections.emptyMap());
+
+        assertFalse(response.isTruncated());
+        assertEquals(HTML, response.getBodyAsString());
+    }
+
+    @Test(expected = ResponseTooLargeException.class)
+    public void testLargeBodyFails() throws IOException {
+        ResponseLimits limits = new ResponseLimits(1000, ResponseLimits.Truncation.FAIL, true);
+        new HttpClientFetcher(1000, 1000, limits).fetch(new URL(base + "/large"), Collections.emptyMap());
+    }
+
+    @Test(timeout = 5000)
+    public void testEndlessBodyCutOff() throws IOException {
+        ResponseLimits limits = new ResponseLimits(64 * 1024, ResponseLimits.Truncation.TRUNCATE, true);
+        FetchResponse response = new HttpClientFetcher(1000, 1000, limits).fetch(new URL(base + "/endless"), Collections.emptyMap());
+
+        assertTrue(response.isTruncated());
+        assertEquals(64 * 1024, response.getBody().length);
+    }
+
+    @Test
+    public void testCrawlFindsLinksPastHead() throws IOException {
+        //Serves the home page, and any path without a context of its own
+        server.createContext("/", exchange -> respond(exchange, (HEAD + "<body><a href=\"/plain\">plain</a></body></html>").getBytes(StandardCharsets.UTF_8), null));
+        Crawler crawler = new Crawler(new HTMLScraper(new HTMLParser(new HttpClientFetcher(1000, 1000))), 1);
+        Set<URL> crawled = ConcurrentHashMap.newKeySet();
+
+        crawler.crawl(new URL(base + "/"), page -> crawled.add(page.getUrl()));
+
+        assertTrue(crawled.contains(new URL(base + "/plain")));
+    }
+
+    @Test
+    public void testNonTextBodySkipped() throws IOException {
+        FetchResponse response = new HttpClientFetcher(1000, 1000).fetch(new URL(base + "/pdf"), Collections.emptyMap());
+
+        assertEquals(200, response.getStatusCode());
+        assertEquals("application/pdf", response.getContentType());
+        assertEquals(0, response.getBody().length);
+    }
+
+    @Test
+    public void testUntypedBinaryBodySniffed() throws IOException {
+        FetchResponse response = new HttpClientFetcher(1000, 1000).fetch(new URL(base + "/untyped-pdf"), Collections.emptyMap());
+
+        assertEquals("application/octet-stream", response.getContentType());
+        assertEquals(0, response.getBody().length);
+    }
+
+    @Test(expected = UnsupportedMimeTypeException.class)
+    public void testParserRejectsSkippedBody() throws IOException {
+        new HTMLParser(new HttpClientFetcher(1000, 1000)).parse(new URL(base + "/untyped-pdf"));
+    }
+
+    @Test
+    public void testUnlimitedReadsEverything() throws IOException {
+        FetchResponse response = new HttpClientFetcher(1000, 1000, ResponseLimits.UNLIMITED).fetch(new URL(base + "/pdf"), Collections.emptyMap());
+
+        assertEquals(100_000, response.getBody().length);
+    }
+
+    @Test(timeout = 3000)
+    public void testStalledBodyTimesOut() throws IOException {
+        HttpClientFetcher fetcher = new HttpClientFetcher(1000, 200);
+        long start = System.nanoTime();
+        try {
+            fetcher.fetch(new URL(base + "/stall"), Collections.emptyMap());
+            fail("Expected the stalled body to time out");
+        } catch (SocketTimeoutException expected) {
+        }
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+    }
+
+    @Test(timeout = 3000, expected = SocketTimeoutException.class)
+    public void testStalledStreamTimesOut() throws IOException {
+        new HttpClientFetcher(1000, 200).stream(new URL(base + "/stall"), (response, body) -> body.readAllBytes());
+    }
+
+    @Test(expected = IOException.class)
+    public void testBadEncodingFails() throws IOException {
+        new HttpClientFetcher(1000, 1000).fetch(new URL(base + "/bad-gzip"), Collections.emptyMap());
+    }
+
+    @Test
+    public void testStreamIgnoresLimits() throws IOException {
+        HttpClientFetcher fetcher = new HttpClientFetcher(1000, 1000, new ResponseLimits(100, ResponseLimits.Truncation.FAIL, true));
+
+        int pdfBytes = fetcher.stream(new URL(base + "/pdf"), (response, body) -> {
+            assertEquals("application/pdf", response.getContentType());
+            return body.readAllBytes().length;
+        });
+        String gzip = fetcher.stream(new URL(base + "/gzip"), (response, body) -> new String(body.readAllBytes(), StandardCharsets.UTF_8));
+
+        assertEquals(100_000, pdfBytes);
+        assertEquals(HTML, gzip);
+    }
+
+    private void respond(HttpExchange exchange, byte[] body, String contentEncoding) throws IOException {
+        respond(exchange, body, "text/html; charset=UTF-8", contentEncoding);
+    }
+
+    private void respond(HttpExchange exchange, byte[] body, String contentType, String contentEncoding) throws IOException {
+        clientConnections.add(exchange.getRemoteAddress());
+        if(contentType != null){
+            exchange.getResponseHeaders().add("Content-Type", contentType);
+        }
+        if(contentEncoding != null){
+            exchange.getResponseHeaders().add("Content-Encoding", contentEncoding);
+        }
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static byte[] gzip(String text) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+        return bytes.toByteArray();
+    }
+}
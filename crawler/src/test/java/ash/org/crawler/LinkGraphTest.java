@@ -0,0 +1,166 @@
+package ash.org.crawler;
+
+import ash.org.domain.Page;
+import ash.org.domain.PageDetails;
+import ash.org.domain.UrlKey;
+import com.google.common.collect.Sets;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class LinkGraphTest {
+
+    private static final String HOME = "http://www.google.com/";
+
+    @Test
+    public void testLinksAndDepths() throws IOException {
+        LinkGraph graph = graph(
+                page("/", "/a", "/b"),
+                page("/a", "/c", "/"),
+                page("/b", "/c", "/b"),
+                page("/c", "/d"));
+
+        assertEquals(5, graph.size());
+        assertEquals(7, graph.getEdgeCount());
+        assertEquals(LinkGraph.HOME, graph.idOf(key("/")));
+
+        assertEquals(Sets.newHashSet(key("/a"), key("/b")), new HashSet<>(graph.getLinksTo(key("/c"))));
+        assertEquals(Sets.newHashSet(key("/"), key("/c")), new HashSet<>(graph.getLinksFrom(key("/a"))));
+        assertEquals(Arrays.asList(key("/b")), graph.getLinksTo(key("/b")).subList(1, 2));
+
+        assertEquals(0, graph.getDepth(key("/")));
+        assertEquals(1, graph.getDepth(key("/b")));
+        assertEquals(2, graph.getDepth(key("/c")));
+        assertEquals(3, graph.getDepth(key("/d")));
+        assertEquals(LinkGraph.UNREACHABLE, graph.getDepth(key("/missing")));
+        assertEquals(4, graph.getPathTo(key("/d")).size());
+        assertEquals(key("/"), graph.getPathTo(key("/d")).get(0));
+        assertEquals(key("/d"), graph.getPathTo(key("/d")).get(3));
+    }
+
+    @Test
+    public void testLinkedOnlyUrlsAreNodes() throws IOException {
+        LinkGraph graph = graph(page("/", "/a", "/uncrawled"), page("/a"));
+
+        int uncrawled = graph.idOf(key("/uncrawled"));
+        assertNotEquals(LinkGraph.NOT_FOUND, uncrawled);
+        assertFalse(graph.isCrawled(uncrawled));
+        assertTrue(graph.isCrawled(graph.idOf(key("/a"))));
+        assertEquals(0, graph.getOutDegree(uncrawled));
+        assertEquals(1, graph.getInDegree(uncrawled));
+        assertEquals(1, graph.getDepth(uncrawled));
+    }
+
+    @Test
+    public void testUnreachablePages() throws IOException {
+        //Pages only linked from a page that was never crawled, as a resumed crawl can deliver
+        LinkGraph graph = graph(page("/"), page("/orphan", "/child"));
+
+        assertEquals(LinkGraph.UNREACHABLE, graph.getDepth(key("/orphan")));
+        assertEquals(LinkGraph.UNREACHABLE, graph.getDepth(key("/child")));
+        assertTrue(graph.getPathTo(key("/child")).isEmpty());
+    }
+
+    @Test
+    public void testRepeatedPageAndLinksCountOnce() throws IOException {
+        LinkGraphCollector collector = new LinkGraphCollector(new URL(HOME));
+        collector.onPage(page("/", "/a", "/a#top"));
+        collector.onPage(page("/", "/b"));
+
+        LinkGraph graph = collector.toGraph();
+        assertEquals(1, graph.getEdgeCount());
+        assertEquals(LinkGraph.NOT_FOUND, graph.idOf(key("/b")));
+    }
+
+    @Test
+    public void testEmptyCrawl() throws IOException {
+        LinkGraph graph = new LinkGraphCollector(new URL(HOME)).toGraph();
+
+        assertEquals(1, graph.size());
+        assertFalse(graph.isCrawled(LinkGraph.HOME));
+        assertEquals(0, graph.getDepth(LinkGraph.HOME));
+    }
+
+    @Test
+    public void testMatchesRescanningPages() throws IOException {
+        List<Page> pages = randomSite(2000, 20);
+        LinkGraph graph = graph(pages.toArray(new Page[0]));
+
+        for (Page page : pages) {
+            Set<UrlKey> linksTo = new HashSet<>();
+            for (Page from : pages) {
+                if(from.getPageDetails().getLinks().contains(page.getKey().getPath())){
+                    linksTo.add(from.getKey());
+                }
+            }
+            assertEquals(linksTo, new HashSet<>(graph.getLinksTo(page.getKey())));
+            assertEquals(page.getPageDetails().getLinks().size(), graph.getOutDegree(graph.idOf(page.getKey())));
+        }
+        for (UrlKey key : graph.getPathTo(pages.get(pages.size() - 1).getKey())) {
+            assertTrue(graph.isCrawled(graph.idOf(key)));
+        }
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        LinkGraph graph = graph(randomSite(500, 10).toArray(new Page[0]));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        graph.write(out);
+
+        LinkGraph read = LinkGraph.read(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(graph.size(), read.size());
+        assertEquals(graph.getEdgeCount(), read.getEdgeCount());
+        for (int id = 0; id < graph.size(); id++) {
+            assertEquals(graph.getKey(id), read.getKey(id));
+            assertEquals(graph.isCrawled(id), read.isCrawled(id));
+            assertArrayEquals(graph.getOutLinks(id), read.getOutLinks(id));
+            assertArrayEquals(graph.getInLinks(id), read.getInLinks(id));
+            assertEquals(graph.getDepth(id), read.getDepth(id));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testReadRejectsOtherStreams() throws IOException {
+        LinkGraph.read(new ByteArrayInputStream(new byte[]{'P', 'C', 'R', 'W', 1}));
+    }
+
+    private static LinkGraph graph(Page... pages) throws IOException {
+        LinkGraphCollector collector = new LinkGraphCollector(new URL(HOME));
+        for (Page page : pages) {
+            collector.onPage(page);
+        }
+        return collector.toGraph();
+    }
+
+    private static Page page(String path, String... links) throws IOException {
+        return new Page(new URL("http://www.google.com" + path), new PageDetails(Sets.newHashSet(links), new HashSet<>()));
+    }
+
+    private static UrlKey key(String path) throws IOException {
+        return UrlKey.of(new URL("http://www.google.com" + path));
+    }
+
+    private static List<Page> randomSite(int size, int linksPerPage) throws IOException {
+        Random random = new Random(21);
+        List<Page> pages = new ArrayList<>();
+        for (int x = 0; x < size; x++) {
+            Set<String> links = new HashSet<>();
+            for (int y = 0; y < linksPerPage; y++) {
+                links.add("/page" + random.nextInt(size));
+            }
+            pages.add(new Page(new URL("http://www.google.com" + (x == 0 ? "/" : "/page" + x)), new PageDetails(links, new HashSet<>())));
+        }
+        return pages;
+    }
+}
@@ -0,0 +1,157 @@
+package ash.org.crawler;
+
+import com.google.common.collect.Sets;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class LinkNormalizerTest {
+
+    private final LinkNormalizer linkNormalizer = new LinkNormalizer();
+
+    @Test
+    public void testCorpus() throws IOException {
+        List<String[]> corpus = corpus();
+        assertFalse(corpus.isEmpty());
+        for (String[] row : corpus) {
+            String link = linkNormalizer.resolver(new URL(row[0])).resolve(row[1]);
+            assertEquals(row[0] + " " + row[1], "-".equals(row[2]) ? null : row[2], link);
+        }
+    }
+
+    //Every href of the corpus and the saved pages that java.net.URI can resolve must resolve the same way.
+    //URI keeps ".." segments above the root, merges empty segments and follows RFC 2396 for empty paths,
+    //so those are left to the corpus.
+    @Test
+    public void testMatchesUriResolution() throws Exception {
+        List<String[]> pairs = new ArrayList<>();
+        for (String[] row : corpus()) {
+            pairs.add(new String[]{row[0], row[1]});
+        }
+        for (String page : new String[]{"blog.html", "shop.html"}) {
+            for (String href : StreamingExtractor.extract(readPage(page)).getHrefs()) {
+                pairs.add(new String[]{"https://www.google.co.uk/posts/latest", href});
+            }
+        }
+
+        int compared = 0;
+        for (String[] pair : pairs) {
+            URI base = new URI(pair[0]);
+            URI resolved;
+            try {
+                resolved = base.resolve(new URI(pair[1].trim()));
+            } catch (URISyntaxException e) {
+                continue;
+            }
+            String path = resolved.getRawPath();
+            if(pair[1].trim().startsWith("?") || pair[1].trim().startsWith("#") || pair[1].trim().isEmpty()
+                    || path == null || path.startsWith("/..") || path.contains("//")){
+                continue;
+            }
+            assertEquals(pair[0] + " " + pair[1], reference(base, resolved), linkNormalizer.resolver(new URL(pair[0])).resolve(pair[1]));
+            compared++;
+        }
+        assertTrue(compared > 50);
+    }
+
+    @Test
+    public void testKeepQuery() throws Exception {
+        LinkNormalizer.Resolver resolver = new LinkNormalizer(LinkNormalizer.QueryPolicy.KEEP).resolver(new URL("http://a/b/c/d;p?q"));
+
+        assertEquals("/b/c/d;p?y", resolver.resolve("?y"));
+        assertEquals("/b/c/g?y", resolver.resolve("g?y#s"));
+        assertEquals("/b/c/g?y/./x", resolver.resolve("g?y/./x"));
+        assertEquals("/?page=2", resolver.resolve("/?page=2"));
+        assertNull(resolver.resolve("#s"));
+    }
+
+    @Test
+    public void testSurroundingWhitespaceIgnored() throws Exception {
+        LinkNormalizer.Resolver resolver = linkNormalizer.resolver(new URL("https://www.google.co.uk/"));
+
+        assertEquals("/padded", resolver.resolve("  /padded\n"));
+        assertNull(resolver.resolve(" \t "));
+        assertNull(resolver.resolve(null));
+    }
+
+    @Test
+    public void testNormalLinkReturnedWithoutCopying() throws Exception {
+        String href = "/section/page";
+
+        assertSame(href, linkNormalizer.resolver(new URL("https://www.google.co.uk/")).resolve(href));
+    }
+
+    @Test
+    public void testLongLinksGrowTheBuffer() throws Exception {
+        StringBuilder href = new StringBuilder();
+        for (int x = 0; x < 100; x++) {
+            href.append("/segment").append(x);
+        }
+        href.append("/../last");
+        String expected = href.substring(0, href.lastIndexOf("/segment99")) + "/last";
+
+        assertEquals(expected, linkNormalizer.resolver(new URL("https://www.google.co.uk/")).resolve(href.toString()));
+    }
+
+    @Test
+    public void testGetLinks() throws Exception {
+        URL url = new URL("https://www.google.co.uk/section/page");
+
+        assertEquals(Sets.newHashSet("/section/a", "/b", "/c"),
+                linkNormalizer.getLinks(url, Stream.of("a", "/b", "../c#x", "https://www.google.co.uk/b?y", "http://www.facebook.com/", "/")));
+    }
+
+    //What the link should be, from java.net.URI's resolution
+    private static String reference(URI base, URI resolved) {
+        String scheme = resolved.getScheme().toLowerCase(Locale.ROOT);
+        if(!scheme.equals("http") && !scheme.equals("https")){
+            return null;
+        }
+        if(resolved.getHost() == null || !resolved.getHost().equalsIgnoreCase(base.getHost())
+                || port(scheme, resolved.getPort()) != port(base.getScheme(), base.getPort())){
+            return null;
+        }
+        String path = resolved.normalize().getRawPath();
+        if(path.isEmpty() || path.equals("/")){
+            return null;
+        }
+        return path;
+    }
+
+    private static int port(String scheme, int port) {
+        return port == 80 && "http".equals(scheme) || port == 443 && "https".equals(scheme) ? -1 : port;
+    }
+
+    private List<String[]> corpus() throws IOException {
+        List<String[]> rows = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                getClass().getResourceAsStream("/links/normalization.tsv"), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if(!line.startsWith("#") && !line.isEmpty()){
+                    rows.add(line.split("\t", -1));
+                }
+            }
+        }
+        return rows;
+    }
+
+    private String readPage(String page) throws IOException {
+        try (InputStream in = getClass().getResourceAsStream("/pages/" + page)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
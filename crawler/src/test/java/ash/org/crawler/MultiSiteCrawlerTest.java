@@ -0,0 +1,268 @@
+package ash.org.crawler;
+
+import ash.org.domain.Page;
+import ash.org.domain.PageDetails;
+import com.google.common.collect.Sets;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class MultiSiteCrawlerTest {
+
+    @Mock
+    private HTMLScraper htmlScraper;
+
+    private MultiSiteCrawler crawler;
+
+    private final Map<URL, List<Page>> outputs = new ConcurrentHashMap<>();
+
+    @After
+    public void tearDown() {
+        if(crawler != null){
+            crawler.close();
+        }
+    }
+
+    @Test
+    public void testEachSiteGoesToItsOwnOutput() throws Exception {
+        URL google = new URL("http://www.google.com/");
+        URL amazon = new URL("http://www.amazon.com/");
+        when(htmlScraper.getPageAssets(any())).thenAnswer(invocation -> {
+            URL url = invocation.getArgument(0);
+            return "/".equals(url.getPath()) ? new PageDetails(Sets.newHashSet("/a", "/b"), new HashSet<>()) : leaf();
+        });
+
+        crawler = MultiSiteCrawler.builder(htmlScraper).poolSize(2).fetchesPerSite(2).metrics(new CrawlMetrics()).build();
+        List<SiteResult> results = crawler.crawl(Arrays.asList(google, amazon), CrawlBudget.UNLIMITED, this::collect);
+
+        assertEquals(2, results.size());
+        assertEquals(google, results.get(0).getUrl());
+        assertEquals(amazon, results.get(1).getUrl());
+        for (SiteResult result : results) {
+            assertEquals(CrawlOutcome.COMPLETE, result.getOutcome());
+            assertEquals(3, result.getPages());
+            Set<URL> crawled = new HashSet<>();
+            outputs.get(result.getUrl()).forEach(page -> crawled.add(page.getUrl()));
+            assertEquals(Sets.newHashSet(result.getUrl(), new URL(result.getUrl(), "/a"), new URL(result.getUrl(), "/b")), crawled);
+        }
+    }
+
+    @Test
+    public void testSitesAreCrawledConcurrently() throws Exception {
+        //Each site's home page only returns once the other's is being fetched too
+        CyclicBarrier bothFetching = new CyclicBarrier(2);
+        when(htmlScraper.getPageAssets(any())).thenAnswer(invocation -> {
+            bothFetching.await(5, TimeUnit.SECONDS);
+            return leaf();
+        });
+
+        crawler = MultiSiteCrawler.builder(htmlScraper).poolSize(2).fetchesPerSite(1).metrics(new CrawlMetrics()).build();
+        List<SiteResult> results = crawler.crawl(Arrays.asList(new URL("http://www.google.com/"), new URL("http://www.amazon.com/")),
+                CrawlBudget.UNLIMITED, this::collect);
+
+        for (SiteResult result : results) {
+            assertFalse(result.toString(), result.isFailed());
+        }
+    }
+
+    @Test
+    public void testPageBudgetStopsEachSite() throws Exception {
+        Set<String> links = new HashSet<>();
+        for(int x = 0; x < 20; x++){
+            links.add("/page" + x);
+        }
+        PageDetails details = new PageDetails(links, new HashSet<>());
+        when(htmlScraper.getPageAssets(any())).thenReturn(details);
+
+        crawler = MultiSiteCrawler.builder(htmlScraper).poolSize(4).fetchesPerSite(3).metrics(new CrawlMetrics()).build();
+        List<SiteResult> results = crawler.crawl(Arrays.asList(new URL("http://www.google.com/"), new URL("http://www.amazon.com/")),
+                CrawlBudget.maxPages(5), this::collect);
+
+        for (SiteResult result : results) {
+            assertEquals(CrawlOutcome.PAGE_LIMIT, result.getOutcome());
+            assertEquals(5, result.getPages());
+            assertEquals(5, outputs.get(result.getUrl()).size());
+        }
+    }
+
+    @Test
+    public void testFailedSiteDoesNotStopTheOthers() throws Exception {
+        URL broken = new URL("http://www.broken.com/");
+        URL google = new URL("http://www.google.com/");
+        when(htmlScraper.getPageAssets(any())).thenAnswer(invocation -> {
+            if(broken.getHost().equals(invocation.<URL>getArgument(0).getHost())){
+                throw new IOException("connection refused");
+            }
+            return leaf();
+        });
+
+        crawler = MultiSiteCrawler.builder(htmlScraper).poolSize(2).fetchesPerSite(2).metrics(new CrawlMetrics()).build();
+        List<SiteResult> results = crawler.crawl(Arrays.asList(broken, google), CrawlBudget.UNLIMITED, this::collect);
+
+        assertTrue(results.get(0).isFailed());
+        assertNull(results.get(0).getOutcome());
+        assertEquals("connection refused", results.get(0).getError().getMessage());
+        assertEquals(CrawlOutcome.COMPLETE, results.get(1).getOutcome());
+        assertEquals(1, outputs.get(google).size());
+    }
+
+    @Test(timeout = 10000)
+    public void testSiteWithCrawlDelayDoesNotHoldUpTheOthers() throws Exception {
+        URL slow = new URL("http://www.slow.com/");
+        URL google = new URL("http://www.google.com/");
+        Set<String> links = new HashSet<>();
+        for(int x = 0; x < 20; x++){
+            links.add("/page" + x);
+        }
+        List<URL> fetched = Collections.synchronizedList(new ArrayList<>());
+        when(htmlScraper.getPageAssets(any())).thenAnswer(invocation -> {
+            URL url = invocation.getArgument(0);
+            fetched.add(url);
+            if(!"/".equals(url.getPath())){
+                return leaf();
+            }
+            return new PageDetails(slow.getHost().equals(url.getHost()) ? Sets.newHashSet("/a", "/b") : links, new HashSet<>());
+        });
+
+        crawler = MultiSiteCrawler.builder(htmlScraper).poolSize(2).fetchesPerSite(2).metrics(new CrawlMetrics())
+                .scheduler(new CrawlDelayScheduler(slow.getHost(), TimeUnit.SECONDS.toNanos(1))).build();
+        List<SiteResult> results = crawler.crawl(Arrays.asList(slow, google), CrawlBudget.UNLIMITED, this::collect);
+
+        assertEquals(3, results.get(0).getPages());
+        assertEquals(21, results.get(1).getPages());
+        //The slow site's second page waits out its crawl delay, by when the other site is long done
+        List<URL> slowPages = new ArrayList<>();
+        fetched.stream().filter(url -> slow.getHost().equals(url.getHost())).forEach(slowPages::add);
+        int lastGoogle = 0;
+        for (int x = 0; x < fetched.size(); x++) {
+            if(google.getHost().equals(fetched.get(x).getHost())){
+                lastGoogle = x;
+            }
+        }
+        assertTrue("Fetched " + fetched, lastGoogle < fetched.indexOf(slowPages.get(1)));
+    }
+
+    @Test(timeout = 10000)
+    public void testDelayedSiteHoldsOneWorkerAtATime() throws Exception {
+        URL slow = new URL("http://www.slow.com/");
+        when(htmlScraper.getPageAssets(any())).thenAnswer(invocation -> "/".equals(invocation.<URL>getArgument(0).getPath())
+                ? new PageDetails(Sets.newHashSet("/a", "/b", "/c", "/d"), new HashSet<>()) : leaf());
+        CrawlDelayScheduler scheduler = new CrawlDelayScheduler(slow.getHost(), TimeUnit.MILLISECONDS.toNanos(100));
+
+        crawler = MultiSiteCrawler.builder(htmlScraper).poolSize(4).fetchesPerSite(4).metrics(new CrawlMetrics())
+                .scheduler(scheduler).build();
+        List<SiteResult> results = crawler.crawl(Collections.singletonList(slow), CrawlBudget.UNLIMITED, this::collect);
+
+        assertEquals(5, results.get(0).getPages());
+        //The four links were queued at once, but only one worker at a time waited on the host
+        assertEquals(1, scheduler.maxBusy.get());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSubDomainRejectedBeforeCrawling() throws Exception {
+        crawler = MultiSiteCrawler.builder(htmlScraper).poolSize(1).fetchesPerSite(1).metrics(new CrawlMetrics()).build();
+        crawler.crawl(Arrays.asList(new URL("http://www.google.com/"), new URL("http://www.google.com/hello")),
+                CrawlBudget.UNLIMITED, this::collect);
+    }
+
+    private PageWriter collect(URL site) {
+        List<Page> pages = Collections.synchronizedList(new ArrayList<>());
+        outputs.put(site, pages);
+        return new PageWriter() {
+            @Override
+            public void write(Page page) {
+                pages.add(page);
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    //Spaces fetches to one host by a fixed crawl delay, as PolitenessScheduler would, and the rest not at all
+    private static class CrawlDelayScheduler implements CrawlScheduler {
+
+        private final String host;
+        private final long delayNanos;
+        private long nextSlotNanos;
+        //Fetches to the host inside fetch at once, sleeping out their slot or fetching
+        private final AtomicInteger busy = new AtomicInteger();
+        private final AtomicInteger maxBusy = new AtomicInteger();
+
+        CrawlDelayScheduler(String host, long delayNanos) {
+            this.host = host;
+            this.delayNanos = delayNanos;
+            this.nextSlotNanos = System.nanoTime();
+        }
+
+        //A moment to look up robots.txt, before the fetch takes its slot
+        @Override
+        public boolean isAllowed(URL url) throws IOException {
+            try {
+                TimeUnit.MILLISECONDS.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+            return true;
+        }
+
+        @Override
+        public <T> T fetch(URL url, Fetch<T> fetch) throws IOException {
+            if(!host.equals(url.getHost())){
+                return fetch.fetch();
+            }
+            maxBusy.accumulateAndGet(busy.incrementAndGet(), Math::max);
+            try {
+                long wait;
+                synchronized (this) {
+                    long now = System.nanoTime();
+                    long slot = Math.max(now, nextSlotNanos);
+                    nextSlotNanos = slot + delayNanos;
+                    wait = slot - now;
+                }
+                try {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException();
+                }
+                return fetch.fetch();
+            } finally {
+                busy.decrementAndGet();
+            }
+        }
+
+        @Override
+        public synchronized long getWaitNanos(URL url) {
+            return host.equals(url.getHost()) ? Math.max(0, nextSlotNanos - System.nanoTime()) : 0;
+        }
+    }
+
+    private static PageDetails leaf() {
+        return new PageDetails(Sets.newHashSet("/"), new HashSet<>());
+    }
+}
@@ -0,0 +1,100 @@
+package ash.org.crawler;
+
+import ash.org.domain.UrlKey;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class OffHeapVisitedUrlSetTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testDirect() {
+        checkSet(OffHeapVisitedUrlSet.direct(100, false), 50_000);
+    }
+
+    @Test
+    public void testDirectWithBloomFilter() {
+        checkSet(OffHeapVisitedUrlSet.direct(100, true), 50_000);
+    }
+
+    @Test
+    public void testMapped() throws IOException {
+        Path directory = folder.newFolder().toPath();
+        try (OffHeapVisitedUrlSet visited = OffHeapVisitedUrlSet.mapped(directory, 100, true)) {
+            checkSet(visited, 50_000);
+            assertTrue(directory.toFile().list().length > 0);
+        }
+        assertEquals(0, directory.toFile().list().length);
+    }
+
+    @Test
+    public void testMatchesCanonicalUrl() {
+        OffHeapVisitedUrlSet visited = OffHeapVisitedUrlSet.direct(10, true);
+
+        assertTrue(visited.add(UrlKey.fromOrigin("http://www.google.com", "/a#top")));
+        assertFalse(visited.add(UrlKey.fromOrigin("http://www.google.com", "a")));
+        assertFalse(visited.contains(null));
+    }
+
+    @Test
+    public void testConcurrentAddsClaimEachUrlOnce() throws Exception {
+        OffHeapVisitedUrlSet visited = OffHeapVisitedUrlSet.direct(0, true);
+        AtomicInteger claimed = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                futures.add(executor.submit(() -> {
+                    for (int x = 0; x < 20_000; x++) {
+                        if(visited.add(key(x))){
+                            claimed.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(20_000, claimed.get());
+        assertEquals(20_000, visited.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeExpectedUrls() {
+        OffHeapVisitedUrlSet.direct(-1, false);
+    }
+
+    private static void checkSet(VisitedUrlSet visited, int count) {
+        for (int x = 0; x < count; x++) {
+            assertTrue(visited.add(key(x)));
+        }
+        for (int x = 0; x < count; x++) {
+            assertFalse(visited.add(key(x)));
+            assertTrue(visited.contains(key(x)));
+            assertFalse(visited.contains(key(count + x)));
+        }
+        assertEquals(count, visited.size());
+    }
+
+    private static UrlKey key(int x) {
+        return UrlKey.fromOrigin("http://www.google.com", "/page" + x);
+    }
+}
@@ -0,0 +1,120 @@
+package ash.org.crawler;
+
+import ash.org.domain.PageDetails;
+import com.google.common.collect.Sets;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class PageCacheTest {
+
+    private static final String HTML = "<html><body><a href=\"/validLink\">x</a><img src=\"/logo.png\"></body></html>";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Mock
+    private HTMLParser htmlParser;
+
+    private URL url;
+    private Path cacheFile;
+
+    @Before
+    public void setup() throws IOException {
+        url = new URL("https://www.google.co.uk/");
+        cacheFile = folder.getRoot().toPath().resolve("pages.cache");
+    }
+
+    @Test
+    public void testSaveAndLoad() throws IOException {
+        PageCache pageCache = PageCache.open(cacheFile);
+        PageDetails pageDetails = new PageDetails(Sets.newHashSet("/a", "/b"), Sets.newHashSet("/c.css"), SimHash.of("page text"));
+        pageCache.put(url, new CachedPage("\"abc\"", null, pageDetails));
+        pageCache.save();
+
+        PageCache reloaded = PageCache.open(cacheFile);
+        CachedPage cachedPage = reloaded.get(url);
+
+        assertEquals(1, reloaded.size());
+        assertEquals("\"abc\"", cachedPage.getETag());
+        assertNull(cachedPage.getLastModified());
+        assertEquals(pageDetails.getLinks(), cachedPage.getPageDetails().getLinks());
+        assertEquals(pageDetails.getAssets(), cachedPage.getPageDetails().getAssets());
+        assertEquals(pageDetails.getFingerprint(), cachedPage.getPageDetails().getFingerprint());
+    }
+
+    @Test
+    public void testFirstFetchIsCached() throws IOException {
+        PageCache pageCache = PageCache.open(cacheFile);
+        when(htmlParser.fetchIfModified(any(), isNull(), isNull()))
+                .thenReturn(response(200, HTML, "ETag", "\"v1\"", "Last-Modified", "Wed, 21 Oct 2015 07:28:00 GMT"));
+
+        PageDetails pageDetails = new HTMLScraper(htmlParser, ExtractionMode.DOM, pageCache).getPageAssets(url);
+
+        assertEquals(Sets.newHashSet("/validLink"), pageDetails.getLinks());
+        assertEquals(Sets.newHashSet("/logo.png"), pageDetails.getAssets());
+        assertEquals("\"v1\"", pageCache.get(url).getETag());
+        assertEquals("Wed, 21 Oct 2015 07:28:00 GMT", pageCache.get(url).getLastModified());
+    }
+
+    @Test
+    public void testNotModifiedReusesCachedDetails() throws IOException {
+        PageCache pageCache = PageCache.open(cacheFile);
+        PageDetails cachedDetails = new PageDetails(Sets.newHashSet("/cached"), Sets.newHashSet());
+        pageCache.put(url, new CachedPage("\"v1\"", "Wed, 21 Oct 2015 07:28:00 GMT", cachedDetails));
+        when(htmlParser.fetchIfModified(url, "\"v1\"", "Wed, 21 Oct 2015 07:28:00 GMT")).thenReturn(response(HTMLParser.NOT_MODIFIED, ""));
+
+        PageDetails pageDetails = new HTMLScraper(htmlParser, ExtractionMode.STREAMING, pageCache).getPageAssets(url);
+
+        assertSame(cachedDetails, pageDetails);
+    }
+
+    @Test
+    public void testModifiedPageReplacesCachedDetails() throws IOException {
+        PageCache pageCache = PageCache.open(cacheFile);
+        pageCache.put(url, new CachedPage("\"v1\"", null, new PageDetails(Sets.newHashSet("/old"), Sets.newHashSet())));
+        when(htmlParser.fetchIfModified(url, "\"v1\"", null)).thenReturn(response(200, HTML, "ETag", "\"v2\""));
+
+        PageDetails pageDetails = new HTMLScraper(htmlParser, ExtractionMode.STREAMING, pageCache).getPageAssets(url);
+
+        assertEquals(Sets.newHashSet("/validLink"), pageDetails.getLinks());
+        assertEquals("\"v2\"", pageCache.get(url).getETag());
+    }
+
+    @Test
+    public void testPagesWithoutValidatorsAreNotCached() throws IOException {
+        PageCache pageCache = PageCache.open(cacheFile);
+        when(htmlParser.fetchIfModified(any(), isNull(), isNull())).thenReturn(response(200, HTML));
+
+        new HTMLScraper(htmlParser, ExtractionMode.STREAMING, pageCache).getPageAssets(url);
+
+        assertEquals(0, pageCache.size());
+    }
+
+    private FetchResponse response(int status, String body, String... headers) {
+        Map<String, List<String>> headerMap = new HashMap<>();
+        for (int x = 0; x < headers.length; x += 2) {
+            headerMap.put(headers[x], Collections.singletonList(headers[x + 1]));
+        }
+        return new FetchResponse(url, status, headerMap, body.getBytes(StandardCharsets.UTF_8));
+    }
+}
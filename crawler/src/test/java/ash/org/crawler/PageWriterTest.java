@@ -0,0 +1,186 @@
+package ash.org.crawler;
+
+import ash.org.domain.Page;
+import ash.org.domain.PageDetails;
+import ash.org.domain.UrlKey;
+import com.google.common.collect.Sets;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class PageWriterTest {
+
+    @Test
+    public void testNdjsonRoundTrip() throws IOException {
+        List<Page> pages = site(50);
+        byte[] written = write(new ByteArrayOutputStream(), pages, false);
+
+        assertEquals(pages.size(), new String(written, StandardCharsets.UTF_8).split("\n").length);
+        assertRoundTrip(pages, read(written));
+    }
+
+    @Test
+    public void testBinaryRoundTrip() throws IOException {
+        List<Page> pages = site(50);
+        assertRoundTrip(pages, read(write(new ByteArrayOutputStream(), pages, true)));
+    }
+
+    @Test
+    public void testBinaryIsMuchSmaller() throws IOException {
+        List<Page> pages = site(200);
+        int ndjson = write(new ByteArrayOutputStream(), pages, false).length;
+        int binary = write(new ByteArrayOutputStream(), pages, true).length;
+
+        assertTrue("binary " + binary + " vs ndjson " + ndjson, binary * 5 < ndjson);
+    }
+
+    @Test
+    public void testEscapesStrings() throws IOException {
+        Set<String> awkward = Sets.newHashSet("/quote\"d", "/back\\slash", "/new\nline", "/\u0001control", "/unicod\u00e9");
+        List<Page> pages = Arrays.asList(new Page(new URL("http://www.google.com/"), new PageDetails(awkward, new HashSet<>())));
+
+        String json = new String(write(new ByteArrayOutputStream(), pages, false), StandardCharsets.UTF_8);
+        assertEquals(1, json.split("\n").length);
+        assertTrue(json.contains("\\u0001"));
+        assertRoundTrip(pages, read(json.getBytes(StandardCharsets.UTF_8)));
+        assertRoundTrip(pages, read(write(new ByteArrayOutputStream(), pages, true)));
+    }
+
+    @Test
+    public void testNdjsonIgnoresUnknownFieldsAndBlankLines() throws IOException {
+        String json = "\n{\"extra\":\"x\", \"url\" : \"http://www.google.com/a\", \"links\":[\"/b\"], \"more\":[]}\n\n";
+
+        List<Page> pages = read(json.getBytes(StandardCharsets.UTF_8));
+        assertEquals(1, pages.size());
+        assertEquals(Sets.newHashSet("/b"), pages.get(0).getPageDetails().getLinks());
+        assertTrue(pages.get(0).getPageDetails().getAssets().isEmpty());
+    }
+
+    @Test(expected = IOException.class)
+    public void testMalformedNdjson() throws IOException {
+        read("{\"url\":\"http://www.google.com/\",\"links\":[\"/a\"".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test(expected = EOFException.class)
+    public void testTruncatedBinary() throws IOException {
+        byte[] written = write(new ByteArrayOutputStream(), site(5), true);
+        read(Arrays.copyOf(written, written.length - 1));
+    }
+
+    @Test
+    public void testNdjsonKeepsDuplicateMark() throws IOException {
+        URL original = new URL("http://www.google.com/article");
+        List<Page> pages = Arrays.asList(new Page(original),
+                new Page(new URL("http://www.google.com/article/print"), new PageDetails(new HashSet<>(), new HashSet<>()), UrlKey.of(original)));
+
+        String json = new String(write(new ByteArrayOutputStream(), pages, false), StandardCharsets.UTF_8);
+        assertTrue(json.contains("\"duplicateOf\":\"http://www.google.com/article\""));
+        List<Page> read = read(json.getBytes(StandardCharsets.UTF_8));
+        assertFalse(read.get(0).isDuplicate());
+        assertEquals(UrlKey.of(original), read.get(1).getDuplicateOf());
+    }
+
+    @Test
+    public void testBinaryKeepsDuplicateMark() throws IOException {
+        URL original = new URL("http://www.google.com/article");
+        List<Page> pages = Arrays.asList(new Page(original),
+                new Page(new URL("http://www.google.com/article/print"), new PageDetails(new HashSet<>(), new HashSet<>()), UrlKey.of(original)));
+
+        List<Page> read = read(write(new ByteArrayOutputStream(), pages, true));
+        assertFalse(read.get(0).isDuplicate());
+        assertEquals(UrlKey.of(original), read.get(1).getDuplicateOf());
+    }
+
+    @Test
+    public void testReadsVersionOneBinary() throws IOException {
+        byte[] url = "http://www.google.com/".getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(BinaryPageWriter.MAGIC);
+        out.write(1);
+        out.write(BinaryPageWriter.STRING);
+        out.write(url.length);
+        out.write(url);
+        //Url, no links, no assets and no duplicateOf
+        out.write(new byte[]{BinaryPageWriter.PAGE, 0, 0, 0, BinaryPageWriter.END});
+
+        List<Page> pages = read(out.toByteArray());
+        assertEquals(Collections.singletonList(new Page(new URL("http://www.google.com/"))), pages);
+        assertFalse(pages.get(0).isDuplicate());
+    }
+
+    @Test
+    public void testStreamsFromCrawl() throws Exception {
+        HTMLScraper htmlScraper = mock(HTMLScraper.class);
+        when(htmlScraper.getPageAssets(any())).thenReturn(new PageDetails(Sets.newHashSet("/", "/a"), Sets.newHashSet("/site.css")));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (PageWriter writer = new BinaryPageWriter(out)) {
+            new Crawler(htmlScraper, 2).crawl(new URL("http://www.google.com/"), writer);
+        }
+
+        List<Page> pages = read(out.toByteArray());
+        assertEquals(Sets.newHashSet(new Page(new URL("http://www.google.com/")), new Page(new URL("http://www.google.com/a"))),
+                new HashSet<>(pages));
+    }
+
+    private static void assertRoundTrip(List<Page> expected, List<Page> actual) {
+        assertEquals(expected, actual);
+        for (int x = 0; x < expected.size(); x++) {
+            assertEquals(expected.get(x).getUrl(), actual.get(x).getUrl());
+            assertEquals(expected.get(x).getPageDetails().getLinks(), actual.get(x).getPageDetails().getLinks());
+            assertEquals(expected.get(x).getPageDetails().getAssets(), actual.get(x).getPageDetails().getAssets());
+        }
+    }
+
+    private static byte[] write(ByteArrayOutputStream out, List<Page> pages, boolean binary) throws IOException {
+        try (PageWriter writer = binary ? new BinaryPageWriter(out) : new NdjsonPageWriter(out)) {
+            for (Page page : pages) {
+                writer.onPage(page);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static List<Page> read(byte[] written) throws IOException {
+        List<Page> pages = new ArrayList<>();
+        try (PageReader reader = PageReader.open(new ByteArrayInputStream(written))) {
+            Page page;
+            while ((page = reader.read()) != null) {
+                pages.add(page);
+            }
+        }
+        return pages;
+    }
+
+    //Every page shares the same nav links and assets, plus a few of its own
+    private static List<Page> site(int size) throws IOException {
+        Set<String> nav = new HashSet<>();
+        for (int x = 0; x < 30; x++) {
+            nav.add("/section/" + x);
+        }
+        List<Page> pages = new ArrayList<>();
+        for (int x = 0; x < size; x++) {
+            Set<String> links = new HashSet<>(nav);
+            links.add("/page/" + (x + 1));
+            links.add("/page/" + (x * 7 % size));
+            Set<String> assets = Sets.newHashSet("/static/site.css", "/static/app.js", "/img/hero" + x + ".png");
+            pages.add(new Page(new URL("http://www.google.com/page/" + x), new PageDetails(links, assets)));
+        }
+        return pages;
+    }
+}
@@ -0,0 +1,216 @@
+package ash.org.crawler;
+
+import ash.org.domain.Page;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class PolitenessSchedulerTest {
+
+    private static final String HOME = "<html><body><a href=\"/a\">a</a><a href=\"/b\">b</a><a href=\"/private\">p</a></body></html>";
+    private static final String LEAF = "<html><body>leaf</body></html>";
+
+    private HttpServer server;
+    private String base;
+    private HttpClientFetcher fetcher;
+    private final AtomicInteger throttledResponses = new AtomicInteger();
+    private final List<Long> requestTimes = new CopyOnWriteArrayList<>();
+    private final Set<String> requested = ConcurrentHashMap.newKeySet();
+    private volatile String robots = "User-agent: *\nDisallow: /private\n";
+
+    @Before
+    public void setup() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/robots.txt", exchange -> respond(exchange, 200, robots, "text/plain"));
+        server.createContext("/", exchange -> {
+            String path = exchange.getRequestURI().getPath();
+            requested.add(path);
+            requestTimes.add(System.nanoTime());
+            if(throttledResponses.getAndDecrement() > 0){
+                exchange.getResponseHeaders().add("Retry-After", "0");
+                respond(exchange, ThrottledException.TOO_MANY_REQUESTS, "slow down", "text/plain");
+            } else {
+                respond(exchange, 200, "/".equals(path) ? HOME : LEAF, "text/html");
+            }
+        });
+        server.start();
+        base = "http://localhost:" + server.getAddress().getPort();
+        fetcher = new HttpClientFetcher(1000, 1000);
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testRespectsRobotsDisallow() throws IOException {
+        List<Page> pages = crawl(new PolitenessScheduler(fetcher, 0, 1000, 0));
+
+        Set<String> paths = pages.stream().map(page -> page.getUrl().getPath()).collect(Collectors.toSet());
+        assertTrue(paths.contains("/a"));
+        assertTrue(paths.contains("/b"));
+        assertFalse(paths.contains("/private"));
+        assertFalse(requested.contains("/private"));
+    }
+
+    @Test
+    public void testSpacesRequestsByCrawlDelay() throws IOException {
+        robots = "User-agent: *\nCrawl-delay: 0.1\n";
+        crawl(new PolitenessScheduler(fetcher, 0, 1000, 0));
+
+        //Requests leave 100ms apart, timed as they reach the server, so each gap is allowed a little jitter
+        assertEquals(4, requestTimes.size());
+        for (int x = 1; x < requestTimes.size(); x++) {
+            long gap = requestTimes.get(x) - requestTimes.get(x - 1);
+            assertTrue("Requests " + gap + "ns apart", gap >= 75_000_000L);
+        }
+    }
+
+    @Test
+    public void testBacksOffAndRetriesWhenThrottled() throws IOException {
+        throttledResponses.set(2);
+        PolitenessScheduler scheduler = new PolitenessScheduler(fetcher, 0, 1000, 3);
+
+        List<Page> pages = crawl(scheduler);
+
+        assertEquals(3, pages.size());
+        assertTrue(scheduler.getDelayMillis(new URL(base + "/")) > 0);
+        assertTrue(requestTimes.get(2) - requestTimes.get(0) >= 2 * PolitenessScheduler.INITIAL_BACKOFF_MILLIS * 1_000_000L);
+    }
+
+    @Test(expected = ThrottledException.class)
+    public void testGivesUpAfterRetries() throws IOException {
+        throttledResponses.set(10);
+        crawl(new PolitenessScheduler(fetcher, 0, 10, 1));
+    }
+
+    @Test
+    public void testMissingRobotsAllowsEverything() throws IOException {
+        server.removeContext("/robots.txt");
+        PolitenessScheduler scheduler = new PolitenessScheduler(fetcher, 0, 1000, 0);
+
+        assertTrue(scheduler.isAllowed(new URL(base + "/private")));
+    }
+
+    @Test
+    public void testUnreachableRobotsDisallowsEverything() throws IOException {
+        PolitenessScheduler scheduler = new PolitenessScheduler(fetcher, 0, 1000, 0);
+        server.stop(0);
+
+        assertFalse(scheduler.isAllowed(new URL(base + "/")));
+    }
+
+    @Test(timeout = 5000)
+    public void testRobotsFailureDoesNotBlockHost() throws Exception {
+        CountDownLatch fetching = new CountDownLatch(1);
+        CountDownLatch waiting = new CountDownLatch(1);
+        AtomicInteger fetches = new AtomicInteger();
+        Fetcher failing = (url, headers) -> {
+            if(fetches.getAndIncrement() == 0){
+                fetching.countDown();
+                await(waiting);
+                throw new IllegalArgumentException("bad origin");
+            }
+            return fetcher.fetch(url, headers);
+        };
+        PolitenessScheduler scheduler = new PolitenessScheduler(failing, 0, 1000, 0);
+        URL home = new URL(base + "/");
+
+        ExecutorService threads = Executors.newFixedThreadPool(2);
+        try {
+            Future<Boolean> fetchingRobots = threads.submit(() -> scheduler.isAllowed(home));
+            fetching.await();
+            //A second thread waits on the same robots.txt, then the fetch fails under both
+            Future<Boolean> waitingOnRobots = threads.submit(() -> scheduler.isAllowed(home));
+            Thread.sleep(50);
+            waiting.countDown();
+            assertFailed(fetchingRobots);
+            assertFailed(waitingOnRobots);
+        } finally {
+            threads.shutdownNow();
+        }
+
+        //Fetched again rather than failed for good
+        assertFalse(scheduler.isAllowed(new URL(base + "/private")));
+        assertEquals(2, fetches.get());
+    }
+
+    @Test
+    public void testUntimedFetchLeavesLatencyAlone() throws Exception {
+        URL page = new URL(base + "/a");
+        PolitenessScheduler timed = new PolitenessScheduler(fetcher, 0, 1000, 0);
+        PolitenessScheduler untimed = new PolitenessScheduler(fetcher, 0, 1000, 0);
+        timed.fetch(page, () -> null);
+        untimed.fetch(page, () -> null);
+
+        //Far slower than the first fetch, as a large sitemap parsed while it streams would be
+        timed.fetch(page, PolitenessSchedulerTest::slowly);
+        untimed.fetchUntimed(page, PolitenessSchedulerTest::slowly);
+
+        assertTrue(timed.getDelayMillis(page) > 0);
+        assertEquals(0, untimed.getDelayMillis(page));
+    }
+
+    private static Void slowly() {
+        try {
+            Thread.sleep(50);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+
+    private static void assertFailed(Future<Boolean> future) throws InterruptedException {
+        try {
+            future.get();
+            fail("Expected the robots.txt fetch to fail");
+        } catch (ExecutionException expected) {
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private List<Page> crawl(CrawlScheduler scheduler) throws IOException {
+        List<Page> pages = new CopyOnWriteArrayList<>();
+        Crawler crawler = Crawler.builder(new HTMLScraper(new HTMLParser(fetcher))).workers(4).scheduler(scheduler).build();
+        crawler.crawl(new URL(base + "/"), pages::add);
+        return pages;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body, String contentType) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", contentType + "; charset=UTF-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
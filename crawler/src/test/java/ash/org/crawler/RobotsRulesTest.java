@@ -0,0 +1,75 @@
+package ash.org.crawler;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class RobotsRulesTest {
+
+    private static final String ROBOTS =
+            "# comments are ignored\n" +
+            "User-agent: *\n" +
+            "Disallow: /private\n" +
+            "Allow: /private/open\n" +
+            "Disallow: /*.pdf$\n" +
+            "Crawl-delay: 2\n" +
+            "\n" +
+            "User-agent: otherbot\n" +
+            "Disallow: /\n";
+
+    @Test
+    public void testWildcardGroup() {
+        RobotsRules rules = RobotsRules.parse(ROBOTS, "page-crawler");
+
+        assertTrue(rules.isAllowed("/"));
+        assertTrue(rules.isAllowed("/blog"));
+        assertFalse(rules.isAllowed("/private"));
+        assertFalse(rules.isAllowed("/private/secret"));
+        assertTrue(rules.isAllowed("/private/open/page"));
+        assertFalse(rules.isAllowed("/files/report.pdf"));
+        assertTrue(rules.isAllowed("/files/report.pdf?download"));
+        assertEquals(2000, rules.getCrawlDelayMillis());
+    }
+
+    @Test
+    public void testSpecificGroupWins() {
+        RobotsRules rules = RobotsRules.parse(ROBOTS, "OtherBot/1.0");
+
+        assertFalse(rules.isAllowed("/blog"));
+        assertEquals(0, rules.getCrawlDelayMillis());
+    }
+
+    @Test
+    public void testSharedGroupAndEmptyDisallow() {
+        String robots = "User-agent: a\nUser-agent: page-crawler\nDisallow:\nCrawl-delay: 0.5\n";
+        RobotsRules rules = RobotsRules.parse(robots, "page-crawler");
+
+        assertTrue(rules.isAllowed("/anything"));
+        assertEquals(500, rules.getCrawlDelayMillis());
+    }
+
+    @Test
+    public void testSitemapsKeptForEveryAgent() {
+        String robots = "User-agent: otherbot\n" +
+                "Sitemap: https://www.google.com/sitemap_index.xml\n" +
+                "Disallow: /\n" +
+                "\n" +
+                "sitemap: https://www.google.com/news.xml.gz # daily\n";
+        RobotsRules rules = RobotsRules.parse(robots, "page-crawler");
+
+        assertEquals(Arrays.asList("https://www.google.com/sitemap_index.xml", "https://www.google.com/news.xml.gz"), rules.getSitemaps());
+        assertTrue(rules.isAllowed("/"));
+        //A sitemap line does not end otherbot's group
+        assertFalse(RobotsRules.parse(robots, "otherbot").isAllowed("/"));
+        assertTrue(RobotsRules.ALLOW_ALL.getSitemaps().isEmpty());
+    }
+
+    @Test
+    public void testNoRules() {
+        assertTrue(RobotsRules.parse("", "page-crawler").isAllowed("/"));
+        assertFalse(RobotsRules.DISALLOW_ALL.isAllowed("/"));
+        assertTrue(RobotsRules.ALLOW_ALL.isAllowed("/"));
+    }
+}
@@ -0,0 +1,121 @@
+package ash.org.crawler;
+
+import ash.org.domain.UrlKey;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SimHashTest {
+
+    @Test
+    public void testSameTextSameFingerprint() {
+        assertEquals(SimHash.of("The quick brown fox"), SimHash.of("  the QUICK, brown... fox!"));
+    }
+
+    @Test
+    public void testNoWordsNoFingerprint() {
+        assertEquals(SimHash.NONE, SimHash.of(""));
+        assertEquals(SimHash.NONE, SimHash.of(" ,.; -- "));
+    }
+
+    @Test
+    public void testPiecesEndWords() {
+        SimHash pieces = new SimHash();
+        pieces.add("xxThe quick", 2, 11);
+        pieces.add(" brown fox", 0, 10);
+
+        assertEquals(SimHash.of("The quick brown fox"), pieces.fingerprint());
+    }
+
+    @Test
+    public void testSmallEditIsNearDuplicate() {
+        String article = text(new Random(23), 600);
+        String edited = article.replace(article.substring(3000, 3020), "a few changed words") + " print view footer";
+
+        assertTrue(SimHash.distance(SimHash.of(article), SimHash.of(edited)) <= SimHashIndex.MAX_DISTANCE);
+    }
+
+    @Test
+    public void testDifferentTextIsFarApart() {
+        Random random = new Random(29);
+        int total = 0;
+        for (int x = 0; x < 50; x++) {
+            int distance = SimHash.distance(SimHash.of(text(random, 300)), SimHash.of(text(random, 300)));
+            assertTrue(distance > SimHashIndex.MAX_DISTANCE);
+            total += distance;
+        }
+        //Unrelated fingerprints differ in about half their bits
+        assertTrue(total / 50 > 24 && total / 50 < 40);
+    }
+
+    @Test
+    public void testIndexFindsWithinMaxDistance() throws IOException {
+        SimHashIndex index = new SimHashIndex();
+        long fingerprint = 0x0123456789abcdefL;
+        assertNull(index.findOrAdd(fingerprint, key("/original")));
+
+        //Three bits apart, one in each of three blocks, still shares the fourth
+        assertEquals(key("/original"), index.findOrAdd(fingerprint ^ 1L ^ (1L << 20) ^ (1L << 40), key("/copy")));
+        assertNull(index.find(fingerprint ^ 1L ^ (1L << 20) ^ (1L << 40) ^ (1L << 60)));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    public void testIndexMatchesBruteForce() throws IOException {
+        Random random = new Random(31);
+        SimHashIndex index = new SimHashIndex(2);
+        List<Long> added = new ArrayList<>();
+        for (int x = 0; x < 5000; x++) {
+            long fingerprint = random.nextLong();
+            if(x % 5 == 0 && !added.isEmpty()){
+                //A near copy of an earlier fingerprint
+                fingerprint = added.get(random.nextInt(added.size())) ^ (1L << random.nextInt(64)) ^ (1L << random.nextInt(64));
+            }
+            boolean expectDuplicate = false;
+            for (long earlier : added) {
+                expectDuplicate |= SimHash.distance(fingerprint, earlier) <= 2;
+            }
+            UrlKey original = index.findOrAdd(fingerprint, key("/" + x));
+            assertEquals(expectDuplicate, original != null);
+            if(original == null){
+                added.add(fingerprint);
+            }
+        }
+        assertEquals(added.size(), index.size());
+    }
+
+    @Test
+    public void testIndexIgnoresNone() throws IOException {
+        SimHashIndex index = new SimHashIndex();
+        assertNull(index.findOrAdd(SimHash.NONE, key("/empty")));
+        assertNull(index.findOrAdd(SimHash.NONE, key("/also-empty")));
+        assertEquals(0, index.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testIndexDistanceTooLarge() {
+        new SimHashIndex(SimHashIndex.MAX_DISTANCE + 1);
+    }
+
+    private static String text(Random random, int words) {
+        StringBuilder text = new StringBuilder();
+        for (int x = 0; x < words; x++) {
+            int length = 2 + random.nextInt(8);
+            for (int y = 0; y < length; y++) {
+                text.append((char) ('a' + random.nextInt(26)));
+            }
+            text.append(x % 12 == 11 ? ". " : " ");
+        }
+        return text.toString();
+    }
+
+    private static UrlKey key(String path) throws IOException {
+        return UrlKey.of(new URL("http://www.google.com" + path));
+    }
+}
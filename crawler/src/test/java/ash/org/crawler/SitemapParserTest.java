@@ -0,0 +1,152 @@
+package ash.org.crawler;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.*;
+
+public class SitemapParserTest {
+
+    private static final String URLSET = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+            "<urlset xmlns=\"http://www.sitemaps.org/schemas/sitemap/0.9\">\n" +
+            "  <url><loc>http://www.google.com/</loc><priority>1.0</priority></url>\n" +
+            "  <url>\n" +
+            "    <loc>\n      http://www.google.com/a?x=1&amp;y=2\n    </loc>\n" +
+            "    <lastmod>2024-01-01</lastmod><changefreq>daily</changefreq>\n" +
+            "  </url>\n" +
+            "  <url><priority>0.9</priority><loc>http://www.google.com/b</loc></url>\n" +
+            "  <url><loc>http://www.google.com/c</loc><priority>high</priority></url>\n" +
+            "  <url><loc></loc></url>\n" +
+            "</urlset>";
+
+    private final List<String> urls = new ArrayList<>();
+    private final List<String> sitemaps = new ArrayList<>();
+
+    @Test
+    public void testUrlsWithPriorities() throws IOException {
+        parse(stream(URLSET), Integer.MAX_VALUE);
+
+        assertEquals(Arrays.asList("http://www.google.com/ 1.0", "http://www.google.com/a?x=1&y=2 0.5",
+                "http://www.google.com/b 0.9", "http://www.google.com/c 0.5"), urls);
+        assertTrue(sitemaps.isEmpty());
+    }
+
+    @Test
+    public void testSitemapIndex() throws IOException {
+        String index = "<sitemapindex xmlns=\"http://www.sitemaps.org/schemas/sitemap/0.9\">" +
+                "<sitemap><loc>http://www.google.com/one.xml</loc><lastmod>2024-01-01</lastmod></sitemap>" +
+                "<sitemap><loc>http://www.google.com/two.xml.gz</loc></sitemap>" +
+                "</sitemapindex>";
+        parse(stream(index), Integer.MAX_VALUE);
+
+        assertEquals(Arrays.asList("http://www.google.com/one.xml", "http://www.google.com/two.xml.gz"), sitemaps);
+        assertTrue(urls.isEmpty());
+    }
+
+    @Test
+    public void testGzipped() throws IOException {
+        ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(gzipped)) {
+            out.write(URLSET.getBytes(StandardCharsets.UTF_8));
+        }
+        parse(new ByteArrayInputStream(gzipped.toByteArray()), Integer.MAX_VALUE);
+
+        assertEquals(4, urls.size());
+    }
+
+    @Test
+    public void testListenerStopsParse() throws IOException {
+        parse(stream(URLSET), 2);
+
+        assertEquals(2, urls.size());
+    }
+
+    @Test
+    public void testStreamsLargeSitemap() throws IOException {
+        //About 11MB of sitemap generated as it is read, never held whole
+        int count = 200_000;
+        InputStream large = new InputStream() {
+            private byte[] chunk = "<urlset>".getBytes(StandardCharsets.US_ASCII);
+            private int position;
+            private int written;
+
+            @Override
+            public int read() {
+                if(position == chunk.length){
+                    if(written > count){
+                        return -1;
+                    }
+                    chunk = (written++ < count ? "<url><loc>http://www.google.com/page" + written + "</loc></url>\n" : "</urlset>")
+                            .getBytes(StandardCharsets.US_ASCII);
+                    position = 0;
+                }
+                return chunk[position++];
+            }
+        };
+        int[] seen = new int[1];
+        SitemapParser.parse(large, new SitemapParser.Listener() {
+            @Override
+            public boolean onUrl(String loc, double priority) {
+                seen[0]++;
+                return true;
+            }
+
+            @Override
+            public void onSitemap(String loc) {
+            }
+        });
+
+        assertEquals(count, seen[0]);
+    }
+
+    @Test
+    public void testExternalEntitiesRefused() {
+        String xxe = "<?xml version=\"1.0\"?><!DOCTYPE urlset [<!ENTITY secret SYSTEM \"file:///etc/passwd\">]>" +
+                "<urlset><url><loc>http://www.google.com/&secret;</loc></url></urlset>";
+        try {
+            parse(stream(xxe), Integer.MAX_VALUE);
+        } catch (IOException expected) {
+        }
+        for (String url : urls) {
+            assertFalse(url.contains("root:"));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testMalformed() throws IOException {
+        try {
+            parse(stream("<urlset><url><loc>http://www.google.com/</loc></url><url><loc>broken"), Integer.MAX_VALUE);
+        } finally {
+            //What was read before it broke is kept
+            assertEquals(Arrays.asList("http://www.google.com/ 0.5"), urls);
+        }
+    }
+
+    private void parse(InputStream in, int maxUrls) throws IOException {
+        SitemapParser.parse(in, new SitemapParser.Listener() {
+            @Override
+            public boolean onUrl(String loc, double priority) {
+                urls.add(loc + " " + priority);
+                return urls.size() < maxUrls;
+            }
+
+            @Override
+            public void onSitemap(String loc) {
+                sitemaps.add(loc);
+            }
+        });
+    }
+
+    private static InputStream stream(String xml) {
+        return new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,191 @@
+package ash.org.crawler;
+
+import ash.org.domain.UrlKey;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.*;
+
+public class SitemapsTest {
+
+    private HttpServer server;
+    private String base;
+    private final ConcurrentMap<String, AtomicInteger> requests = new ConcurrentHashMap<>();
+    private final Map<UrlKey, Double> pages = new HashMap<>();
+
+    @Before
+    public void setup() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.start();
+        base = "http://localhost:" + server.getAddress().getPort();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testFollowsRobotsAndIndexes() throws IOException {
+        serve("/robots.txt", "text/plain", "User-agent: *\nDisallow: /private\nSitemap: " + base + "/index.xml\n");
+        serve("/index.xml", "application/xml", index("/one.xml", "/two.xml.gz", "/index.xml", "/missing.xml"));
+        serve("/one.xml", "application/xml", urlset("<url><loc>" + base + "/a</loc><priority>0.8</priority></url>" +
+                "<url><loc>http://www.google.com/elsewhere</loc></url>" +
+                "<url><loc>ftp://" + base.substring(7) + "/file</loc></url>"));
+        serveGzipped("/two.xml.gz", urlset("<url><loc>" + base + "/b</loc></url><url><loc>" + base + "/a</loc></url>"));
+
+        int listed = new Sitemaps(new HttpClientFetcher(1000, 1000)).seed(new URL(base + "/"), CrawlScheduler.UNSCHEDULED, this::collect);
+
+        assertEquals(3, listed);
+        assertEquals(0.8, pages.get(key("/a")), 0);
+        assertEquals(SitemapParser.DEFAULT_PRIORITY, pages.get(key("/b")), 0);
+        assertEquals(2, pages.size());
+        //The index lists itself, it is still only read once
+        assertEquals(1, requests.get("/index.xml").get());
+        assertNull(requests.get("/sitemap.xml"));
+    }
+
+    @Test
+    public void testFallsBackToSitemapXml() throws IOException {
+        serve("/sitemap.xml", "text/xml", urlset("<url><loc>" + base + "/page</loc><priority>0.1</priority></url>"));
+
+        int listed = new Sitemaps(new HttpClientFetcher(1000, 1000)).seed(new URL(base + "/"), CrawlScheduler.UNSCHEDULED, this::collect);
+
+        assertEquals(1, listed);
+        assertEquals(0.1, pages.get(key("/page")), 0);
+    }
+
+    @Test
+    public void testMalformedSitemapKeepsWhatWasRead() throws IOException {
+        serve("/robots.txt", "text/plain", "Sitemap: " + base + "/broken.xml\nSitemap: " + base + "/fine.xml\n");
+        serve("/broken.xml", "application/xml", "<urlset><url><loc>" + base + "/early</loc></url><url><loc>");
+        serve("/fine.xml", "application/xml", urlset("<url><loc>" + base + "/fine</loc></url>"));
+
+        new Sitemaps(new HttpClientFetcher(1000, 1000)).seed(new URL(base + "/"), CrawlScheduler.UNSCHEDULED, this::collect);
+
+        assertTrue(pages.containsKey(key("/early")));
+        assertTrue(pages.containsKey(key("/fine")));
+    }
+
+    @Test
+    public void testListenerStopsSearch() throws IOException {
+        serve("/robots.txt", "text/plain", "Sitemap: " + base + "/one.xml\nSitemap: " + base + "/two.xml\n");
+        serve("/one.xml", "application/xml", urlset("<url><loc>" + base + "/a</loc></url><url><loc>" + base + "/b</loc></url>"));
+        serve("/two.xml", "application/xml", urlset("<url><loc>" + base + "/c</loc></url>"));
+
+        List<UrlKey> seen = new ArrayList<>();
+        int listed = new Sitemaps(new HttpClientFetcher(1000, 1000)).seed(new URL(base + "/"), CrawlScheduler.UNSCHEDULED,
+                (key, priority) -> seen.add(key) && seen.size() < 1);
+
+        assertEquals(1, listed);
+        assertNull(requests.get("/two.xml"));
+    }
+
+    @Test
+    public void testSkipsDisallowedAndStopsAtMaxSitemaps() throws IOException {
+        serve("/robots.txt", "text/plain", "Sitemap: " + base + "/private.xml\nSitemap: " + base + "/one.xml\nSitemap: " + base + "/two.xml\n");
+        serve("/private.xml", "application/xml", urlset("<url><loc>" + base + "/secret</loc></url>"));
+        serve("/one.xml", "application/xml", urlset("<url><loc>" + base + "/a</loc></url>"));
+        serve("/two.xml", "application/xml", urlset("<url><loc>" + base + "/b</loc></url>"));
+        CrawlScheduler noPrivate = new CrawlScheduler() {
+            @Override
+            public boolean isAllowed(URL url) {
+                return !url.getPath().startsWith("/private");
+            }
+
+            @Override
+            public <T> T fetch(URL url, Fetch<T> fetch) throws IOException {
+                return fetch.fetch();
+            }
+        };
+
+        new Sitemaps(new HttpClientFetcher(1000, 1000), 1).seed(new URL(base + "/"), noPrivate, this::collect);
+
+        assertEquals(1, pages.size());
+        assertTrue(pages.containsKey(key("/a")));
+        assertNull(requests.get("/private.xml"));
+    }
+
+    @Test
+    public void testReusesSchedulersRobots() throws IOException {
+        serve("/robots.txt", "text/plain", "Sitemap: " + base + "/one.xml\n");
+        serve("/one.xml", "application/xml", urlset("<url><loc>" + base + "/a</loc></url>"));
+        HttpClientFetcher fetcher = new HttpClientFetcher(1000, 1000);
+        PolitenessScheduler scheduler = new PolitenessScheduler(fetcher, 0, 1000, 0);
+
+        //As the crawl does for its home page before seeding
+        assertTrue(scheduler.isAllowed(new URL(base + "/")));
+        new Sitemaps(fetcher).seed(new URL(base + "/"), scheduler, this::collect);
+
+        assertTrue(pages.containsKey(key("/a")));
+        assertEquals(1, requests.get("/robots.txt").get());
+    }
+
+    private boolean collect(UrlKey key, double priority) {
+        pages.putIfAbsent(key, priority);
+        return true;
+    }
+
+    private UrlKey key(String path) throws IOException {
+        return UrlKey.of(new URL(base + path));
+    }
+
+    private static String urlset(String urls) {
+        return "<?xml version=\"1.0\" encoding=\"UTF-8\"?><urlset xmlns=\"http://www.sitemaps.org/schemas/sitemap/0.9\">" + urls + "</urlset>";
+    }
+
+    private String index(String... sitemaps) {
+        StringBuilder index = new StringBuilder("<sitemapindex xmlns=\"http://www.sitemaps.org/schemas/sitemap/0.9\">");
+        for (String sitemap : sitemaps) {
+            index.append("<sitemap><loc>").append(base).append(sitemap).append("</loc></sitemap>");
+        }
+        return index.append("</sitemapindex>").toString();
+    }
+
+    private void serve(String path, String contentType, String body) {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        server.createContext(path, exchange -> respond(exchange, contentType, bytes));
+    }
+
+    private void serveGzipped(String path, String body) throws IOException {
+        ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(gzipped)) {
+            out.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+        byte[] bytes = gzipped.toByteArray();
+        server.createContext(path, exchange -> respond(exchange, "application/x-gzip", bytes));
+    }
+
+    private void respond(HttpExchange exchange, String contentType, byte[] body) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        requests.computeIfAbsent(path, p -> new AtomicInteger()).incrementAndGet();
+        if(!path.equals(exchange.getHttpContext().getPath())){
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+            return;
+        }
+        exchange.getResponseHeaders().add("Content-Type", contentType);
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package ash.org.crawler;
+
+import ash.org.domain.PageDetails;
+import com.google.common.collect.Sets;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class StreamingExtractorTest {
+
+    @Test
+    public void testBlogMatchesDom() throws IOException {
+        assertSameAsDom("blog.html");
+    }
+
+    @Test
+    public void testShopMatchesDom() throws IOException {
+        assertSameAsDom("shop.html");
+    }
+
+    @Test
+    public void testFingerprintsTextLikeDom() throws IOException {
+        String html = "<html><head><title>Title</title><script>var skipped = 1;</script></head>"
+                + "<body><h1>Print view</h1>\n<p>The quick brown fox <a href=\"/jumps\">jumps</a> over the lazy dog.</p></body></html>";
+        URL url = new URL("https://www.google.co.uk/");
+        HTMLParser htmlParser = new FixtureHTMLParser(html);
+
+        long dom = new HTMLScraper(htmlParser, ExtractionMode.DOM).getPageAssets(url).getFingerprint();
+        long streamed = new HTMLScraper(htmlParser, ExtractionMode.STREAMING).getPageAssets(url).getFingerprint();
+
+        assertEquals(SimHash.of("Print view The quick brown fox jumps over the lazy dog"), dom);
+        assertEquals(dom, streamed);
+    }
+
+    @Test
+    public void testFingerprintsDecodedBodyTextLikeDom() throws IOException {
+        String html = "<html><head><noscript>Please enable JavaScript</noscript></head>"
+                + "<body><p>Caf&eacute; &amp; cr&egrave;me br&ucirc;l&eacute;e&nbsp;recipes for every season</p></body></html>";
+        URL url = new URL("https://www.google.co.uk/");
+        HTMLParser htmlParser = new FixtureHTMLParser(html);
+
+        long dom = new HTMLScraper(htmlParser, ExtractionMode.DOM).getPageAssets(url).getFingerprint();
+        long streamed = new HTMLScraper(htmlParser, ExtractionMode.STREAMING).getPageAssets(url).getFingerprint();
+
+        assertEquals(SimHash.of("Caf\u00e9 cr\u00e8me br\u00fbl\u00e9e recipes for every season"), dom);
+        assertEquals(dom, streamed);
+    }
+
+    @Test
+    public void testAnchorsInDocumentOrder() {
+        StreamingExtractor.Extraction extraction = StreamingExtractor.extract("<a href=\"/one\">1</a><p><a>2</a><a href='/three'>3</a>");
+
+        assertEquals(Arrays.asList("/one", "", "/three"), extraction.getHrefs());
+        assertTrue(extraction.getAssets().isEmpty());
+    }
+
+    @Test
+    public void testAssets() {
+        StreamingExtractor.Extraction extraction = StreamingExtractor.extract(
+                "<link type=\"text/css\" href=\"/a.css\"><link href=\"/b.css\"><img src=\"/c.png\"><script src=\"/d.js\"></script><script>var e;</script>");
+
+        assertEquals(Sets.newHashSet("/a.css", "/c.png", "/d.js"), extraction.getAssets());
+    }
+
+    @Test
+    public void testSkipsCommentsAndRawText() {
+        StreamingExtractor.Extraction extraction = StreamingExtractor.extract(
+                "<!-- <a href=\"/comment\"> --><script>'<a href=\"/script\">'</script><style><a href=\"/style\"></style><a href=\"/real\">");
+
+        assertEquals(Arrays.asList("/real"), extraction.getHrefs());
+    }
+
+    @Test
+    public void testUnescapesEntities() {
+        StreamingExtractor.Extraction extraction = StreamingExtractor.extract("<a href=\"/a?b=1&amp;c=2\">");
+
+        assertEquals(Arrays.asList("/a?b=1&c=2"), extraction.getHrefs());
+    }
+
+    @Test
+    public void testEmptyDocument() {
+        StreamingExtractor.Extraction extraction = StreamingExtractor.extract("");
+
+        assertTrue(extraction.getHrefs().isEmpty());
+        assertTrue(extraction.getAssets().isEmpty());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testNullHtml() {
+        StreamingExtractor.extract(null);
+    }
+
+    private void assertSameAsDom(String page) throws IOException {
+        URL url = new URL("https://www.google.co.uk/");
+        HTMLParser htmlParser = new FixtureHTMLParser(readPage(page));
+
+        PageDetails dom = new HTMLScraper(htmlParser, ExtractionMode.DOM).getPageAssets(url);
+        PageDetails streamed = new HTMLScraper(htmlParser, ExtractionMode.STREAMING).getPageAssets(url);
+
+        assertEquals(dom.getLinks(), streamed.getLinks());
+        assertEquals(dom.getAssets(), streamed.getAssets());
+        assertEquals(dom.getFingerprint(), streamed.getFingerprint());
+        assertTrue(!dom.getLinks().isEmpty() && !dom.getAssets().isEmpty());
+    }
+
+    private String readPage(String page) throws IOException {
+        try (InputStream in = getClass().getResourceAsStream("/pages/" + page)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static class FixtureHTMLParser extends HTMLParser {
+
+        private final String html;
+
+        FixtureHTMLParser(String html) {
+            super(0);
+            this.html = html;
+        }
+
+        @Override
+        public Document parse(URL url) {
+            return Jsoup.parse(html, url.toString());
+        }
+
+        @Override
+        public String fetch(URL url) {
+            return html;
+        }
+    }
+}
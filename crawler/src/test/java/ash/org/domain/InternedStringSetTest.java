@@ -0,0 +1,89 @@
+package ash.org.domain;
+
+import com.google.common.collect.Sets;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class InternedStringSetTest {
+
+    @Test
+    public void testSetSemantics() {
+        StringPool pool = new StringPool();
+        Set<String> set = new InternedStringSet(pool, Arrays.asList("/b", "/a", "/b", "/c"));
+
+        assertEquals(3, set.size());
+        assertTrue(set.contains("/a"));
+        assertFalse(set.contains("/d"));
+        assertFalse(set.contains(null));
+        assertFalse(set.contains(1));
+        assertEquals(Sets.newHashSet("/a", "/b", "/c"), set);
+        assertEquals(set, Sets.newHashSet("/a", "/b", "/c"));
+        assertEquals(Sets.newHashSet("/a", "/b", "/c").hashCode(), set.hashCode());
+    }
+
+    @Test
+    public void testContainsOnlyItsOwnMembers() {
+        StringPool pool = new StringPool();
+        new InternedStringSet(pool, Collections.singleton("/other"));
+        Set<String> set = new InternedStringSet(pool, Collections.singleton("/mine"));
+
+        assertFalse(set.contains("/other"));
+        assertEquals(2, pool.size());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testImmutable() {
+        new InternedStringSet(new StringPool(), Collections.singleton("/a")).add("/b");
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void testIteratorEnd() {
+        Iterator<String> iterator = new InternedStringSet(new StringPool(), Collections.emptySet()).iterator();
+        assertFalse(iterator.hasNext());
+        iterator.next();
+    }
+
+    @Test
+    public void testPagesShareStrings() {
+        StringPool pool = new StringPool();
+        PageDetails first = new PageDetails(Sets.newHashSet(new String("/nav"), "/first"), Sets.newHashSet(new String("/site.css")))
+                .intern(pool);
+        PageDetails second = new PageDetails(Sets.newHashSet(new String("/nav"), "/second"), Sets.newHashSet(new String("/site.css")))
+                .intern(pool);
+
+        assertSame(find(first.getLinks(), "/nav"), find(second.getLinks(), "/nav"));
+        assertSame(find(first.getAssets(), "/site.css"), find(second.getAssets(), "/site.css"));
+        assertEquals(4, pool.size());
+        assertSame(first, first.intern(pool));
+        assertNotSame(first, first.intern(new StringPool()));
+    }
+
+    @Test
+    public void testPoolIds() {
+        StringPool pool = new StringPool();
+        for (int x = 0; x < 1000; x++) {
+            assertEquals(x, pool.intern("/page" + x));
+        }
+        assertEquals(10, pool.intern("/page10"));
+        assertEquals("/page999", pool.get(999));
+        assertEquals(StringPool.NOT_POOLED, pool.idOf("/missing"));
+        assertEquals(new HashSet<>(Arrays.asList("/page1", "/page2")), new InternedStringSet(pool, Arrays.asList("/page2", "/page1")));
+    }
+
+    private static String find(Set<String> set, String value) {
+        for (String s : set) {
+            if(s.equals(value)){
+                return s;
+            }
+        }
+        throw new AssertionError(value + " not in " + set);
+    }
+}
@@ -0,0 +1,56 @@
+package ash.org.domain;
+
+import org.junit.Test;
+
+import java.net.URL;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class UrlKeyTest {
+
+    @Test
+    public void testCaseFoldsSchemeAndHost() throws Exception {
+        assertEquals(UrlKey.of(new URL("http://www.google.com/Path")), UrlKey.of(new URL("HTTP://WWW.Google.COM/Path")));
+        assertNotEquals(UrlKey.of(new URL("http://www.google.com/Path")), UrlKey.of(new URL("http://www.google.com/path")));
+    }
+
+    @Test
+    public void testDropsDefaultPortAndFragment() throws Exception {
+        UrlKey key = UrlKey.of(new URL("https://www.google.com:443/page#top"));
+
+        assertEquals("https://www.google.com/page", key.toString());
+        assertEquals(UrlKey.of(new URL("https://www.google.com/page")), key);
+    }
+
+    @Test
+    public void testKeepsOtherPorts() throws Exception {
+        UrlKey key = UrlKey.of(new URL("http://localhost:8080/page"));
+
+        assertEquals("http://localhost:8080/page", key.toString());
+        assertEquals("http://localhost:8080", UrlKey.origin(new URL("http://localhost:8080/page")));
+    }
+
+    @Test
+    public void testEmptyPathIsRoot() throws Exception {
+        assertEquals(UrlKey.of(new URL("http://www.google.com/")), UrlKey.of(new URL("http://www.google.com")));
+    }
+
+    @Test
+    public void testFromOrigin() throws Exception {
+        assertEquals(UrlKey.of(new URL("http://www.google.com/hello1")), UrlKey.fromOrigin("http://www.google.com", "/hello1"));
+        assertEquals(UrlKey.of(new URL("http://www.google.com/hello1")), UrlKey.fromOrigin("http://www.google.com", "hello1#anchor"));
+    }
+
+    @Test
+    public void testToURL() throws Exception {
+        URL url = new URL("http://www.google.com/hello1?page=2");
+
+        assertEquals(url, UrlKey.of(url).toURL());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testNullUrl() {
+        UrlKey.of(null);
+    }
+}